@@ -0,0 +1,46 @@
+package com.devmh.graphs.schema;
+
+import java.util.List;
+
+import static com.devmh.graphs.schema.SchemaDefinition.index;
+import static com.devmh.graphs.schema.SchemaDefinition.relationshipIndex;
+import static com.devmh.graphs.schema.SchemaDefinition.unique;
+
+/**
+ * Constraints and indexes for every @Node of the v1, v2, typed and generic models
+ * Several models share the Case and Docket labels with different id properties; a uniqueness
+ * constraint only applies to nodes that have the property, so the constraints coexist.
+ * Label-less lookups such as the generic MATCH (n {id: $id}) cannot use any of these.
+ */
+public final class SchemaCatalog {
+
+    public static final List<SchemaDefinition> DEFINITIONS = List.of(
+            // v1: (:Case {caseId})-[:HAS_VERSION]->(:CaseVersion)-[:TEAM_REL]->(:TeamRel)
+            unique("v1", "case_id", "Case", "caseId"),
+            unique("v1", "case_version_id", "CaseVersion", "versionId"),
+            index("v1", "case_version_lookup", "CaseVersion", "caseId", "asOf"),
+            unique("v1", "team_id", "Team", "teamId"),
+            unique("v1", "team_rel_id", "TeamRel", "id"),
+            index("v1", "team_relationship_lookup", "TeamRel", "caseId", "versionId", "kind"),
+
+            // v2: (:Docket)-[:HAS_VERSION]->(:DocketVersion)-[:CONTAINS_CASE]->(:CaseSnapshot)-[:SNAPSHOT_OF]->(:Case)
+            unique("v2", "docket_uuid", "Docket", "uuid"),
+            unique("v2", "docket_version_uuid", "DocketVersion", "uuid"),
+            index("v2", "docket_version_number", "DocketVersion", "versionNumber"),
+            unique("v2", "case_uuid", "Case", "uuid"),
+            unique("v2", "case_snapshot_uuid", "CaseSnapshot", "uuid"),
+            // keyset pages of a version seek its CONTAINS_CASE links in snapshot uuid order
+            relationshipIndex("v2", "contains_case_page", "CONTAINS_CASE", "versionUuid", "snapshotUuid"),
+
+            // typed: Judge and Lawyer nodes carry the Person label as well
+            unique("typed", "typed_case_id", "Case", "id"),
+            unique("typed", "typed_docket_id", "Docket", "id"),
+            unique("typed", "person_id", "Person", "id"),
+
+            // generic
+            unique("generic", "generic_node_id", "GenericNode", "id")
+    );
+
+    private SchemaCatalog() {
+    }
+}
@@ -0,0 +1,32 @@
+package com.devmh.graphs.schema;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/schema")
+@RequiredArgsConstructor
+public class SchemaController {
+
+    private final SchemaManager schemaManager;
+    private final SchemaProps props;
+
+    /**
+     * Missing, failed, offline, unused and undeclared indexes
+     * GET /api/schema/report
+     */
+    @GetMapping("/report")
+    public SchemaReport report() {
+        return schemaManager.report();
+    }
+
+    /**
+     * Re-applies the declared schema (idempotent) and returns the resulting report
+     * POST /api/schema/apply
+     */
+    @PostMapping("/apply")
+    public SchemaReport apply() {
+        schemaManager.apply(props.getAwaitIndexesSeconds());
+        return schemaManager.report();
+    }
+}
@@ -0,0 +1,42 @@
+package com.devmh.graphs.schema;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * One declared constraint or range index on node properties, or range index on relationship properties
+ * (label is then the relationship type)
+ * The name is also the name of the index backing a constraint, which is how SHOW INDEXES is matched back
+ */
+public record SchemaDefinition(String name, Kind kind, String module, String label, List<String> properties) {
+
+    public enum Kind { UNIQUE, INDEX, RELATIONSHIP_INDEX }
+
+    static SchemaDefinition unique(String module, String name, String label, String property) {
+        return new SchemaDefinition(name, Kind.UNIQUE, module, label, List.of(property));
+    }
+
+    static SchemaDefinition index(String module, String name, String label, String... properties) {
+        return new SchemaDefinition(name, Kind.INDEX, module, label, List.of(properties));
+    }
+
+    static SchemaDefinition relationshipIndex(String module, String name, String type, String... properties) {
+        return new SchemaDefinition(name, Kind.RELATIONSHIP_INDEX, module, type, List.of(properties));
+    }
+
+    /** Idempotent DDL for this definition */
+    public String toCypher() {
+        return switch (kind) {
+            case UNIQUE -> "CREATE CONSTRAINT " + name + " IF NOT EXISTS FOR (n:" + label + ") REQUIRE n."
+                    + properties.get(0) + " IS UNIQUE";
+            case INDEX -> "CREATE INDEX " + name + " IF NOT EXISTS FOR (n:" + label + ") ON ("
+                    + properties.stream().map(p -> "n." + p).collect(Collectors.joining(", ")) + ")";
+            case RELATIONSHIP_INDEX -> "CREATE INDEX " + name + " IF NOT EXISTS FOR ()-[r:" + label + "]-() ON ("
+                    + properties.stream().map(p -> "r." + p).collect(Collectors.joining(", ")) + ")";
+        };
+    }
+
+    boolean covers(List<String> labels, List<String> indexedProperties) {
+        return labels != null && labels.equals(List.of(label)) && properties.equals(indexedProperties);
+    }
+}
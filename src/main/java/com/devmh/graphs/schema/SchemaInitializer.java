@@ -0,0 +1,38 @@
+package com.devmh.graphs.schema;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(SchemaProps.class)
+@RequiredArgsConstructor
+public class SchemaInitializer {
+    private final SchemaManager schemaManager;
+    private final SchemaProps props;
+
+    @PostConstruct
+    public void applySchema() {
+        if (!props.isEnabled()) {
+            log.info("Schema management disabled (graphs.schema.enabled=false)");
+            return;
+        }
+        schemaManager.apply(props.getAwaitIndexesSeconds());
+
+        SchemaReport report = schemaManager.report();
+        if (!report.getMissing().isEmpty() || !report.getFailed().isEmpty() || !report.getNotOnline().isEmpty()) {
+            log.warn("Schema incomplete: missing {}, failed {}, not online {}",
+                    report.getMissing().stream().map(SchemaDefinition::name).toList(),
+                    report.getFailed().keySet(),
+                    report.getNotOnline().stream().map(SchemaReport.IndexInfo::name).toList());
+        } else {
+            log.info("Schema verified: {} constraints and indexes declared", report.getDeclared());
+        }
+        if (!report.getUndeclared().isEmpty()) {
+            log.info("Undeclared indexes: {}", report.getUndeclared().stream().map(SchemaReport.IndexInfo::name).toList());
+        }
+    }
+}
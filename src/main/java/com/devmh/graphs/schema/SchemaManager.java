@@ -0,0 +1,120 @@
+package com.devmh.graphs.schema;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies the SchemaCatalog and checks it against the live database
+ * Every statement is IF NOT EXISTS, so applying is idempotent; a failing definition is logged,
+ * remembered for the report and does not stop the others.
+ */
+@Slf4j
+@Component
+public class SchemaManager {
+
+    private final Neo4jClient neo4j;
+    private final List<SchemaDefinition> definitions;
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+    public SchemaManager(Neo4jClient neo4j) {
+        this.neo4j = neo4j;
+        this.definitions = SchemaCatalog.DEFINITIONS;
+    }
+
+    /**
+     * Creates the declared constraints and indexes that do not exist yet and waits for them to come online
+     */
+    public void apply(int awaitIndexesSeconds) {
+        for (SchemaDefinition definition : definitions) {
+            String cypher = definition.toCypher();
+            try {
+                neo4j.query(cypher).run();
+                failures.remove(definition.name());
+                log.debug("Ensured {}", cypher);
+            } catch (RuntimeException e) {
+                failures.put(definition.name(), String.valueOf(e.getMessage()));
+                log.error("Could not apply {} ({}): {}", definition.name(), definition.module(), e.getMessage());
+            }
+        }
+        neo4j.query("CALL db.awaitIndexes($timeout)")
+                .bind(awaitIndexesSeconds).to("timeout")
+                .run();
+    }
+
+    /**
+     * Compares the declared schema with SHOW INDEXES
+     */
+    public SchemaReport report() {
+        List<SchemaReport.IndexInfo> indexes = showIndexes();
+
+        SchemaReport report = new SchemaReport();
+        report.setDeclared(definitions.size());
+        report.getFailed().putAll(failures);
+
+        List<SchemaReport.IndexInfo> declared = new ArrayList<>();
+        for (SchemaDefinition definition : definitions) {
+            SchemaReport.IndexInfo match = indexes.stream()
+                    .filter(index -> index.name().equals(definition.name())
+                            || definition.covers(index.labels(), index.properties()))
+                    .filter(index -> definition.kind() != SchemaDefinition.Kind.UNIQUE || index.owningConstraint() != null)
+                    .findFirst()
+                    .orElse(null);
+            if (match == null) {
+                report.getMissing().add(definition);
+            } else {
+                declared.add(match);
+            }
+        }
+
+        for (SchemaReport.IndexInfo index : indexes) {
+            if ("LOOKUP".equals(index.type())) {
+                continue;
+            }
+            if (!"ONLINE".equals(index.state())) {
+                report.getNotOnline().add(index);
+            }
+            if (index.readCount() == null || index.readCount() == 0) {
+                report.getUnused().add(index);
+            }
+            // Fulltext indexes are managed by the search package
+            if (!"FULLTEXT".equals(index.type()) && !declared.contains(index)) {
+                report.getUndeclared().add(index);
+            }
+        }
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<SchemaReport.IndexInfo> showIndexes() {
+        String query = """
+            SHOW INDEXES
+            YIELD name, type, entityType, labelsOrTypes, properties, state, readCount, lastRead, trackedSince, owningConstraint
+            WHERE entityType IN ['NODE', 'RELATIONSHIP']
+            RETURN name, type, labelsOrTypes, properties, state, readCount, lastRead, trackedSince, owningConstraint
+            ORDER BY name
+            """;
+
+        return neo4j.query(query)
+                .fetch()
+                .all()
+                .stream()
+                .map(row -> new SchemaReport.IndexInfo(
+                        (String) row.get("name"),
+                        (String) row.get("type"),
+                        (List<String>) row.get("labelsOrTypes"),
+                        (List<String>) row.get("properties"),
+                        (String) row.get("state"),
+                        (Long) row.get("readCount"),
+                        Objects.toString(row.get("lastRead"), null),
+                        Objects.toString(row.get("trackedSince"), null),
+                        (String) row.get("owningConstraint")))
+                .toList();
+    }
+}
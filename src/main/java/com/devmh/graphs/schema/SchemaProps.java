@@ -0,0 +1,13 @@
+package com.devmh.graphs.schema;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "graphs.schema")
+public class SchemaProps {
+    /** Apply the declared constraints and indexes at startup */
+    private boolean enabled = true;
+    /** How long startup waits for new indexes to come online */
+    private int awaitIndexesSeconds = 300;
+}
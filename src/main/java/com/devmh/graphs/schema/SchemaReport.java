@@ -0,0 +1,39 @@
+package com.devmh.graphs.schema;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declared schema compared with SHOW INDEXES
+ * Read counts are tracked by the database since trackedSince (usually the last restart)
+ */
+@Data
+public class SchemaReport {
+    private int declared;
+    /** Declared but absent (for constraints: no index owned by a constraint) */
+    private List<SchemaDefinition> missing = new ArrayList<>();
+    /** Present but not ONLINE (populating or failed) */
+    private List<IndexInfo> notOnline = new ArrayList<>();
+    /** Never read since tracking started */
+    private List<IndexInfo> unused = new ArrayList<>();
+    /** Present but not declared; token lookup and fulltext indexes are not listed */
+    private List<IndexInfo> undeclared = new ArrayList<>();
+    /** Definitions whose last apply failed, e.g. a uniqueness constraint over duplicate values */
+    private Map<String, String> failed = new LinkedHashMap<>();
+
+    public record IndexInfo(
+            String name,
+            String type,
+            List<String> labels,
+            List<String> properties,
+            String state,
+            Long readCount,
+            String lastRead,
+            String trackedSince,
+            String owningConstraint) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.devmh.graphs.v1;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Outcome of a conditional delta: the version's new revision, the teams actually assigned (unknown team
+ * ids are skipped) and the edges that became visible, new ones with their generated ids included
+ */
+public record AppliedDelta(long revision, Set<String> addedTeams, List<EdgeView> addedEdges) {
+
+}
@@ -4,9 +4,16 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jsonpatch.JsonPatch;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/cases")
 @RequiredArgsConstructor
@@ -15,12 +22,39 @@ public class CaseGraphController {
     private final ObjectMapper om;
     private final CaseVersionGraphRepository graphRepo;
     private final CaseVersionGraphPatchService patchService;
+    private final CaseVersionSnapshotService snapshotService;
 
     @GetMapping("/{caseId}/versions/{versionId}/team-graph")
-    public CaseVersionGraph getTeamGraph(
+    public ResponseEntity<CaseVersionGraph> getTeamGraph(
             @PathVariable String caseId,
             @PathVariable String versionId) {
-        return graphRepo.loadGraph(caseId, versionId);
+        return graphRepo.loadRevisionedGraph(caseId, versionId)
+                .map(loaded -> ResponseEntity.ok().eTag(eTag(loaded.revision())).body(loaded.graph()))
+                .orElseGet(() -> ResponseEntity.ok(new CaseVersionGraph(List.of(), List.of())));
+    }
+
+    // Graphs of several versions of the case in one query (e.g. for timeline views); unknown versions are left out
+    @GetMapping(path = "/{caseId}/team-graphs", params = "versionId")
+    public List<RevisionedGraph> getTeamGraphs(
+            @PathVariable String caseId,
+            @RequestParam("versionId") List<String> versionIds) {
+        return graphRepo.loadGraphs(versionIds.stream()
+                .map(versionId -> new CaseVersionRef(caseId, versionId))
+                .toList());
+    }
+
+    // Graph of the case's last version with asOf at or before the instant; Content-Location names that version
+    @GetMapping(path = "/{caseId}/team-graph", params = "asOf")
+    public ResponseEntity<CaseVersionGraph> getTeamGraphAsOf(
+            @PathVariable String caseId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf) {
+        return graphRepo.loadGraphAsOf(caseId, asOf.toInstant())
+                .map(loaded -> ResponseEntity.ok()
+                        .eTag(eTag(loaded.revision()))
+                        .header(HttpHeaders.CONTENT_LOCATION,
+                                "/api/cases/" + caseId + "/versions/" + loaded.versionId() + "/team-graph")
+                        .body(loaded.graph()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PatchMapping(
@@ -31,10 +65,62 @@ public class CaseGraphController {
     public ResponseEntity<CaseVersionGraph> patchTeamGraph(
             @PathVariable String caseId,
             @PathVariable String versionId,
-            @RequestBody JsonNode patchBody
+            @RequestBody JsonNode patchBody,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        // 1) Load current graph
-        var current = graphRepo.loadGraph(caseId, versionId);
+        // 1) Load current graph and the revision it is at
+        var loaded = graphRepo.loadRevisionedGraph(caseId, versionId);
+        if (loaded.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        var current = loaded.get().graph();
+        var revision = loaded.get().revision();
+        if (ifMatch != null && !matches(ifMatch, revision)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(eTag(revision)).build();
+        }
+
+        // 2-5) Append-only patches become a delta directly; anything else is applied to the tree and diffed
+        var compiled = TeamGraphPatchCompiler.compile(patchBody);
+        final GraphDelta delta;
+        if (compiled.isPresent()) {
+            delta = compiled.get();
+        } else {
+            var diffed = diffPatched(current, patchBody);
+            if (diffed.getBody() == null) {
+                return ResponseEntity.status(diffed.getStatusCode()).build();
+            }
+            delta = diffed.getBody();
+        }
+
+        // 6) Persist delta (transactional), only if the version is still at the revision the delta is based on
+        final AppliedDelta applied;
+        try {
+            applied = patchService.applyDelta(caseId, versionId, delta, revision);
+        } catch (StaleRevisionException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+
+        // 7) Return the new projection, built in memory with the generated edge ids
+        return ResponseEntity.ok()
+                .eTag(eTag(applied.revision()))
+                .body(GraphDiffer.apply(current, delta, applied));
+    }
+
+    // Clones the version's team graph into a new version inside the database; asOf defaults to now
+    @PostMapping("/{caseId}/versions/{versionId}/snapshot")
+    public ResponseEntity<CaseVersionSnapshot> snapshot(
+            @PathVariable String caseId,
+            @PathVariable String versionId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf
+    ) {
+        return snapshotService.snapshot(caseId, versionId, asOf == null ? null : asOf.toInstant())
+                .map(created -> ResponseEntity
+                        .created(URI.create("/api/cases/" + caseId + "/versions/" + created.versionId() + "/team-graph"))
+                        .body(created))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<GraphDelta> diffPatched(CaseVersionGraph current, JsonNode patchBody) {
         var currentNode = om.valueToTree(current);
 
         // 2) Apply RFC-6902 patch (fge)
@@ -66,14 +152,22 @@ public class CaseGraphController {
         }
 
         // 5) Compute delta
-        var delta = GraphDiffer.diff(current, patched);
+        return ResponseEntity.ok(GraphDiffer.diff(current, patched));
+    }
 
-        // 6) Persist delta (transactional)
-        patchService.applyDelta(caseId, versionId, delta);
+    private static String eTag(long revision) {
+        return "\"" + revision + "\"";
+    }
 
-        // 7) Return the new projection (optional: reload to reflect generated IDs)
-        var reloaded = graphRepo.loadGraph(caseId, versionId);
-        return ResponseEntity.ok(reloaded);
+    // If-Match uses strong comparison: "*" or one of the listed revisions, weak tags never match
+    private static boolean matches(String ifMatch, long revision) {
+        for (var tag : ifMatch.split(",")) {
+            var candidate = tag.trim();
+            if (candidate.equals("*") || candidate.equals(eTag(revision))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private boolean isValidGraph(CaseVersionGraph g) {
@@ -0,0 +1,95 @@
+package com.devmh.graphs.v1;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-case (asOf, versionId) timelines, so repeated as-of reads resolve their version in memory
+ * Timelines are filled by the as-of graph query itself and dropped when a version of the case is created
+ * here; the expiry bounds staleness for versions written by other means.
+ * Each drop stamps the case with a new generation, and a timeline is only stored if the generation read
+ * before its query is still current, so a query racing a new version never caches the older timeline.
+ */
+@Component
+class CaseTimelineCache {
+
+    static final int MAX_CASES = 10_000;
+    static final Duration EXPIRY = Duration.ofMinutes(10);
+
+    private final AtomicLong generations = new AtomicLong();
+    private final Cache<String, Entry> timelines = Caffeine.newBuilder()
+            .maximumSize(MAX_CASES)
+            .expireAfterWrite(EXPIRY)
+            .build();
+
+    Optional<Timeline> get(String caseId) {
+        return Optional.ofNullable(timelines.getIfPresent(caseId)).map(Entry::timeline);
+    }
+
+    /**
+     * To be read before querying a timeline and handed back to put
+     */
+    long generation(String caseId) {
+        var entry = timelines.getIfPresent(caseId);
+        return entry == null ? 0 : entry.generation();
+    }
+
+    /**
+     * Stores the timeline unless versions of the case changed since the generation was read
+     */
+    void put(String caseId, Timeline timeline, long generation) {
+        timelines.asMap().compute(caseId, (key, current) ->
+                (current == null ? 0 : current.generation()) == generation ? new Entry(timeline, generation) : current);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVersionsChanged(CaseVersionsChangedEvent event) {
+        timelines.put(event.caseId(), new Entry(null, generations.incrementAndGet()));
+    }
+
+    /** A timeline (null once dropped) and the generation it belongs to */
+    private record Entry(Timeline timeline, long generation) {}
+
+    /**
+     * Versions of a case in asOf order (ties in creation order); versions without asOf are left out
+     */
+    static final class Timeline {
+        private final Instant[] asOf;
+        private final String[] versionIds;
+
+        Timeline(List<Instant> asOf, List<String> versionIds) {
+            this.asOf = asOf.toArray(Instant[]::new);
+            this.versionIds = versionIds.toArray(String[]::new);
+        }
+
+        /**
+         * The last version with asOf at or before the instant
+         */
+        Optional<String> resolve(Instant instant) {
+            int low = 0;
+            int high = asOf.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (asOf[mid].compareTo(instant) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low == 0 ? Optional.empty() : Optional.of(versionIds[low - 1]);
+        }
+
+        int size() {
+            return versionIds.length;
+        }
+    }
+}
@@ -1,81 +1,190 @@
 package com.devmh.graphs.v1;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.neo4j.core.Neo4jClient;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 public class CaseVersionGraphPatchService {
 
+    // Rows per UNWIND statement; a delta costs one round trip per category unless it exceeds this
+    static final int BATCH_SIZE = 1000;
+
     private final Neo4jClient client;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CaseVersionGraphPatchService(Neo4jClient client) {
+    public CaseVersionGraphPatchService(Neo4jClient client, ApplicationEventPublisher eventPublisher) {
         this.client = client;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
     public void applyDelta(String caseId, String versionId, GraphDelta delta) {
-        // Team additions
-        for (var teamId : delta.addTeams()) {
-            client.query("""
-                      MATCH (v:CaseVersion {versionId: $versionId})
-                      MATCH (t:Team {teamId: $teamId})
-                      MERGE (v)-[:ASSIGNED_TEAM]->(t)
-                    """).bindAll(Map.of("versionId", versionId, "teamId", teamId)).run();
+        applyDelta(caseId, versionId, delta, null);
+    }
+
+    /**
+     * Applies the delta if the version is still at the expected revision (any, when null), and
+     * bumps its revision. Bumping first write-locks the CaseVersion, so concurrent patches of a version
+     * run one after the other and a patch diffed against a stale base fails with StaleRevisionException.
+     */
+    @Transactional
+    public AppliedDelta applyDelta(String caseId, String versionId, GraphDelta delta, Long expectedRevision) {
+        Long revision = client.query("""
+                  MATCH (v:CaseVersion {versionId: $versionId})
+                  SET v.revision = coalesce(v.revision, 0) + 1
+                  RETURN v.revision
+                """).bind(versionId).to("versionId").fetchAs(Long.class).one().orElse(null);
+        if (revision == null || (expectedRevision != null && revision - 1 != expectedRevision)) {
+            throw new StaleRevisionException(versionId, revision == null ? null : revision - 1);
         }
 
+        // Team additions
+        Set<String> addedTeams = new LinkedHashSet<>(run("""
+                  MATCH (v:CaseVersion {versionId: $versionId})
+                  UNWIND $rows AS teamId
+                  MATCH (t:Team {teamId: teamId})
+                  MERGE (v)-[:ASSIGNED_TEAM]->(t)
+                  RETURN teamId
+                """, caseId, versionId, delta.addTeams(), teamId -> teamId));
+
         // Team removals
-        for (var teamId : delta.removeTeams()) {
-            client.query("""
-                      MATCH (v:CaseVersion {versionId: $versionId})-[r:ASSIGNED_TEAM]->(t:Team {teamId: $teamId})
-                      DELETE r
-                    """).bindAll(Map.of("versionId", versionId, "teamId", teamId)).run();
-        }
+        run("""
+                  UNWIND $rows AS teamId
+                  MATCH (:CaseVersion {versionId: $versionId})-[r:ASSIGNED_TEAM]->(:Team {teamId: teamId})
+                  DELETE r
+                """, caseId, versionId, delta.removeTeams(), teamId -> teamId);
 
         // Edge additions
+        Map<String, EdgeView> withIds = new LinkedHashMap<>();
         for (var e : delta.addEdges()) {
-            var id = (e.id() == null || e.id().isBlank()) ? java.util.UUID.randomUUID().toString() : e.id();
-            client.query("""
-                      MATCH (v:CaseVersion {versionId: $versionId})
-                      MATCH (f:Team {teamId: $from}), (t:Team {teamId: $to})
-                      MERGE (tr:TeamRel {id: $id})
-                        ON CREATE SET tr.caseId = $caseId, tr.versionId = $versionId, tr.kind = $kind
-                      MERGE (v)-[:TEAM_REL]->(tr)
-                      MERGE (tr)-[:FROM]->(f)
-                      MERGE (tr)-[:TO]->(t)
-                    """).bindAll(Map.of(
-                    "caseId", caseId,
-                    "versionId", versionId,
-                    "id", id,
-                    "from", e.from(),
-                    "to", e.to(),
-                    "kind", e.kind()
-            )).run();
+            var id = hasId(e) ? e.id() : UUID.randomUUID().toString();
+            withIds.put(id, new EdgeView(id, e.from(), e.to(), e.kind()));
         }
+        Set<String> written = new HashSet<>(run("""
+                  MATCH (v:CaseVersion {versionId: $versionId})
+                  UNWIND $rows AS e
+                  MATCH (f:Team {teamId: e.from}), (t:Team {teamId: e.to})
+                  MERGE (tr:TeamRel {id: e.id})
+                    ON CREATE SET tr.caseId = $caseId, tr.versionId = $versionId, tr.kind = e.kind
+                  MERGE (v)-[:TEAM_REL]->(tr)
+                  MERGE (tr)-[:FROM]->(f)
+                  MERGE (tr)-[:TO]->(t)
+                  RETURN e.id
+                """, caseId, versionId, withIds.values(), e -> edgeRow(e.id(), e)));
 
         // Edge removals (prefer id; fallback to composite)
+        List<EdgeView> byId = new ArrayList<>();
+        List<EdgeView> byComposite = new ArrayList<>();
         for (var e : delta.removeEdges()) {
-            if (e.id() != null && !e.id().isBlank()) {
-                client.query("""
-                          MATCH (:CaseVersion {versionId: $versionId})-[:TEAM_REL]->(tr:TeamRel {id: $id})
-                          DETACH DELETE tr
-                        """).bindAll(Map.of("versionId", versionId, "id", e.id())).run();
-            } else {
-                client.query("""
-                          MATCH (:CaseVersion {versionId: $versionId})-[:TEAM_REL]->(tr:TeamRel {caseId: $caseId, versionId: $versionId, kind: $kind})
-                          MATCH (tr)-[:FROM]->(:Team {teamId: $from})
-                          MATCH (tr)-[:TO]->(:Team {teamId: $to})
-                          DETACH DELETE tr
-                        """).bindAll(Map.of(
-                        "caseId", caseId,
-                        "versionId", versionId,
-                        "from", e.from(),
-                        "to", e.to(),
-                        "kind", e.kind()
-                )).run();
+            (hasId(e) ? byId : byComposite).add(e);
+        }
+        run("""
+                  UNWIND $rows AS id
+                  MATCH (:CaseVersion {versionId: $versionId})-[:TEAM_REL]->(tr:TeamRel {id: id})
+                  DETACH DELETE tr
+                """, caseId, versionId, byId, EdgeView::id);
+        run("""
+                  UNWIND $rows AS e
+                  MATCH (:CaseVersion {versionId: $versionId})-[:TEAM_REL]->(tr:TeamRel {caseId: $caseId, versionId: $versionId, kind: e.kind})
+                  MATCH (tr)-[:FROM]->(:Team {teamId: e.from})
+                  MATCH (tr)-[:TO]->(:Team {teamId: e.to})
+                  DETACH DELETE tr
+                """, caseId, versionId, byComposite, e -> edgeRow(null, e));
+
+        List<EdgeView> addedEdges = new ArrayList<>();
+        withIds.forEach((id, e) -> {
+            if (written.contains(id)) {
+                addedEdges.add(e);
+            }
+        });
+        // Edges kept while one of their teams was unassigned show up again once it is reassigned
+        Set<String> seen = new HashSet<>(written);
+        for (var e : revealedEdges(versionId, addedTeams)) {
+            if (seen.add(e.id())) {
+                addedEdges.add(e);
             }
         }
+        eventPublisher.publishEvent(new TeamGraphChangedEvent(caseId, versionId, revision));
+        return new AppliedDelta(revision, addedTeams, addedEdges);
+    }
+
+    private List<EdgeView> revealedEdges(String versionId, Set<String> addedTeams) {
+        if (addedTeams.isEmpty()) {
+            return List.of();
+        }
+        return List.copyOf(client.query("""
+                  MATCH (v:CaseVersion {versionId: $versionId})-[:ASSIGNED_TEAM]->(a:Team)
+                  WHERE a.teamId IN $teamIds
+                  MATCH (v)-[:TEAM_REL]->(tr:TeamRel)-[:FROM|TO]->(a)
+                  MATCH (tr)-[:FROM]->(f:Team), (tr)-[:TO]->(to:Team)
+                  WHERE (v)-[:ASSIGNED_TEAM]->(f) AND (v)-[:ASSIGNED_TEAM]->(to)
+                  RETURN DISTINCT tr.id AS id, f.teamId AS from, to.teamId AS to, tr.kind AS kind
+                """)
+                .bindAll(Map.of("versionId", versionId, "teamIds", List.copyOf(addedTeams)))
+                .fetchAs(EdgeView.class)
+                .mappedBy((types, record) -> new EdgeView(
+                        record.get("id").asString(null),
+                        record.get("from").asString(),
+                        record.get("to").asString(),
+                        record.get("kind").asString(null)))
+                .all());
+    }
+
+    /**
+     * Runs the statement once per chunk of rows; returns the first column of every result row
+     */
+    private <T> List<String> run(String cypher, String caseId, String versionId, Collection<T> items, Function<T, Object> row) {
+        List<String> results = new ArrayList<>();
+        if (items.isEmpty()) {
+            return results;
+        }
+        List<Object> rows = new ArrayList<>(Math.min(items.size(), BATCH_SIZE));
+        for (T item : items) {
+            rows.add(row.apply(item));
+            if (rows.size() == BATCH_SIZE) {
+                results.addAll(runChunk(cypher, caseId, versionId, rows));
+                rows = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!rows.isEmpty()) {
+            results.addAll(runChunk(cypher, caseId, versionId, rows));
+        }
+        return results;
+    }
+
+    private Collection<String> runChunk(String cypher, String caseId, String versionId, List<Object> rows) {
+        return client.query(cypher)
+                .bindAll(Map.of("caseId", caseId, "versionId", versionId, "rows", rows))
+                .fetchAs(String.class)
+                .all();
+    }
+
+    private static boolean hasId(EdgeView e) {
+        return e.id() != null && !e.id().isBlank();
+    }
+
+    private static Map<String, Object> edgeRow(String id, EdgeView e) {
+        Map<String, Object> row = new HashMap<>();
+        if (id != null) {
+            row.put("id", id);
+        }
+        row.put("from", e.from());
+        row.put("to", e.to());
+        row.put("kind", e.kind());
+        return row;
     }
-}
\ No newline at end of file
+}
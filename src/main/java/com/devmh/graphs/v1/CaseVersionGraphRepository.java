@@ -1,5 +1,25 @@
 package com.devmh.graphs.v1;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
 public interface CaseVersionGraphRepository {
     CaseVersionGraph loadGraph(String caseId, String versionId);
+
+    /**
+     * The graph with its version's revision, or empty when the case has no such version
+     */
+    Optional<RevisionedGraph> loadRevisionedGraph(String caseId, String versionId);
+
+    /**
+     * Graphs of many versions, of one or several cases, in as few queries as possible and in the order
+     * asked for; versions that do not exist are left out
+     */
+    List<RevisionedGraph> loadGraphs(List<CaseVersionRef> versions);
+
+    /**
+     * The graph of the case's last version with asOf at or before the instant, or empty when there is none
+     */
+    Optional<RevisionedGraph> loadGraphAsOf(String caseId, Instant asOf);
 }
@@ -1,48 +1,133 @@
 package com.devmh.graphs.v1;
 
+import org.neo4j.driver.Record;
 import org.springframework.data.neo4j.core.Neo4jClient;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Repository
 class CaseVersionGraphRepositoryImpl implements CaseVersionGraphRepository {
+
+    // Team ids and all TEAM_RELs ([id, from, to, kind]) of the version v imported by the enclosing query,
+    // one row each even when v is null or has no teams or edges. Teams and edges are collected in separate
+    // subqueries, so they never multiply; edges are filtered to assigned teams in toGraph with a hash set.
+    private static final String GRAPH_OF_VERSION = """
+          CALL {
+            WITH v
+            OPTIONAL MATCH (v)-[:ASSIGNED_TEAM]->(t:Team)
+            RETURN collect(t.teamId) AS teamIds
+          }
+          CALL {
+            WITH v
+            OPTIONAL MATCH (v)-[:TEAM_REL]->(tr:TeamRel)-[:FROM]->(f:Team), (tr)-[:TO]->(to:Team)
+            RETURN collect(CASE WHEN tr IS NULL THEN null ELSE [tr.id, f.teamId, to.teamId, tr.kind] END) AS edges
+          }
+        """;
+
+    // Versions per bulk query; larger requests are split
+    static final int MAX_VERSIONS_PER_QUERY = 500;
+
     private final Neo4jClient client;
+    private final CaseTimelineCache timelines;
 
-    public CaseVersionGraphRepositoryImpl(Neo4jClient client) { this.client = client; }
+    public CaseVersionGraphRepositoryImpl(Neo4jClient client, CaseTimelineCache timelines) {
+        this.client = client;
+        this.timelines = timelines;
+    }
 
     @Override
     public CaseVersionGraph loadGraph(String caseId, String versionId) {
+        return loadRevisionedGraph(caseId, versionId)
+                .map(RevisionedGraph::graph)
+                .orElse(new CaseVersionGraph(List.of(), List.of()));
+    }
+
+    @Override
+    public Optional<RevisionedGraph> loadRevisionedGraph(String caseId, String versionId) {
+        return loadGraphs(List.of(new CaseVersionRef(caseId, versionId))).stream().findFirst();
+    }
+
+    @Override
+    public List<RevisionedGraph> loadGraphs(List<CaseVersionRef> versions) {
+        var cypher = """
+          UNWIND range(0, size($refs) - 1) AS i
+          WITH i, $refs[i] AS ref
+          MATCH (:Case {caseId: ref.caseId})-[:HAS_VERSION]->(v:CaseVersion {versionId: ref.versionId})
+        """ + GRAPH_OF_VERSION + """
+          RETURN i, v.versionId AS versionId, coalesce(v.revision, 0) AS revision, teamIds, edges
+          ORDER BY i
+        """;
+
+        var graphs = new ArrayList<RevisionedGraph>(versions.size());
+        for (int from = 0; from < versions.size(); from += MAX_VERSIONS_PER_QUERY) {
+            var refs = versions.subList(from, Math.min(from + MAX_VERSIONS_PER_QUERY, versions.size())).stream()
+                    .map(ref -> Map.of("caseId", ref.caseId(), "versionId", ref.versionId()))
+                    .toList();
+            graphs.addAll(client.query(cypher)
+                    .bind(refs).to("refs")
+                    .fetchAs(RevisionedGraph.class)
+                    .mappedBy((types, record) -> toGraph(record))
+                    .all());
+        }
+        return graphs;
+    }
+
+    @Override
+    public Optional<RevisionedGraph> loadGraphAsOf(String caseId, Instant asOf) {
+        var cached = timelines.get(caseId);
+        if (cached.isPresent()) {
+            return cached.get().resolve(asOf).flatMap(versionId -> loadRevisionedGraph(caseId, versionId));
+        }
+        var generation = timelines.generation(caseId);
+
+        // Resolves through the case_version_lookup index and returns the case's whole timeline for the cache
         var cypher = """
-          MATCH (c:Case {caseId: $caseId})-[:HAS_VERSION]->(v:CaseVersion {versionId: $versionId})
-          MATCH (v)-[:ASSIGNED_TEAM]->(t:Team)
-          WITH v, collect(t.teamId) AS teamIds, collect(t) AS teams
-          MATCH (v)-[:TEAM_REL]->(tr:TeamRel)-[:FROM]->(f:Team)
-          MATCH (tr)-[:TO]->(to:Team)
-          WHERE f IN teams AND to IN teams
-          RETURN teamIds AS teamIds,
-                 collect({id: tr.id, from: f.teamId, to: to.teamId, kind: tr.kind}) AS edges
+          OPTIONAL MATCH (x:CaseVersion {caseId: $caseId})
+          WHERE x.asOf IS NOT NULL AND (:Case {caseId: $caseId})-[:HAS_VERSION]->(x)
+          WITH x ORDER BY x.asOf, x.createdAt
+          WITH collect(x.versionId) AS versionIds, collect(x.asOf) AS asOfs,
+               [y IN collect(x) WHERE y.asOf <= $asOf] AS eligible
+          WITH versionIds, asOfs, last(eligible) AS v
+        """ + GRAPH_OF_VERSION + """
+          RETURN versionIds, asOfs, v.versionId AS versionId, coalesce(v.revision, 0) AS revision, teamIds, edges
         """;
 
-        var row = client.query(cypher)
+        return client.query(cypher)
                 .bind(caseId).to("caseId")
-                .bind(versionId).to("versionId")
-                .fetch().one().orElse(Map.of("teamIds", List.of(), "edges", List.of()));
-
-        @SuppressWarnings("unchecked")
-        var teamIds = (List<String>) row.get("teamIds");
-        @SuppressWarnings("unchecked")
-        var edgesRaw = (List<Map<String, Object>>) row.get("edges");
-
-        var edges = edgesRaw.stream()
-                .map(m -> new EdgeView(
-                        (String) m.get("id"),
-                        (String) m.get("from"),
-                        (String) m.get("to"),
-                        (String) m.get("kind")))
-                .toList();
-
-        return new CaseVersionGraph(teamIds, edges);
+                .bind(asOf.atOffset(ZoneOffset.UTC)).to("asOf")
+                .fetchAs(RevisionedGraph.class)
+                .mappedBy((types, record) -> {
+                    var asOfs = record.get("asOfs").asList(value -> value.asZonedDateTime().toInstant());
+                    var versionIds = record.get("versionIds").asList(value -> value.asString());
+                    timelines.put(caseId, new CaseTimelineCache.Timeline(asOfs, versionIds), generation);
+                    return toGraph(record);
+                })
+                .one()
+                .filter(graph -> graph.versionId() != null);
+    }
+
+    // Only edges whose both teams are assigned to the version are part of its graph
+    private static RevisionedGraph toGraph(Record record) {
+        var teamIds = record.get("teamIds").asList(value -> value.asString());
+        var assigned = new HashSet<>(teamIds);
+        var edges = new ArrayList<EdgeView>();
+        for (var edge : record.get("edges").values()) {
+            var from = edge.get(1).asString();
+            var to = edge.get(2).asString();
+            if (assigned.contains(from) && assigned.contains(to)) {
+                edges.add(new EdgeView(edge.get(0).asString(null), from, to, edge.get(3).asString(null)));
+            }
+        }
+        return new RevisionedGraph(
+                record.get("versionId").asString(null),
+                new CaseVersionGraph(teamIds, List.copyOf(edges)),
+                record.get("revision").asLong());
     }
 }
@@ -9,27 +9,15 @@ import java.util.HashSet;
 import java.util.Set;
 
 /*
-    (:Case {caseId})-[:HAS_VERSION]->(:CaseVersion {versionId, asOf, createdAt})
+    (:Case {caseId})-[:HAS_VERSION]->(:CaseVersion {versionId, asOf, createdAt, revision})
     (:CaseVersion)-[:ASSIGNED_TEAM]->(:Team {teamId})
 
     (:CaseVersion)-[:TEAM_REL]->(:TeamRel {kind:'REPORTS_TO', caseId, versionId})
     (:TeamRel)-[:FROM]->(:Team)
     (:TeamRel)-[:TO]->(:Team)
 
-    CREATE CONSTRAINT case_id IF NOT EXISTS
-    FOR (c:Case) REQUIRE c.caseId IS UNIQUE;
-
-    CREATE CONSTRAINT case_version_id IF NOT EXISTS
-    FOR (v:CaseVersion) REQUIRE v.versionId IS UNIQUE;
-
-    CREATE INDEX case_version_lookup IF NOT EXISTS
-    FOR (v:CaseVersion) ON (v.caseId, v.asOf);
-
-    CREATE CONSTRAINT team_id IF NOT EXISTS
-    FOR (t:Team) REQUIRE t.teamId IS UNIQUE;
-
-    CREATE INDEX team_relationship_lookup IF NOT EXISTS
-    FOR (r:TeamRel) ON (r.caseId, r.versionId, r.kind);
+    Constraints and indexes (case_id, case_version_id, case_version_lookup, team_id, team_rel_id,
+    team_relationship_lookup) are applied at startup, see com.devmh.graphs.schema.SchemaCatalog.
 
     all Teams assigned at that version + all Team ↔ Team relations scoped to that version, and only among those Teams.
 
@@ -49,12 +37,16 @@ import java.util.Set;
     ORDER BY v.asOf DESC
     LIMIT 1
 
+    GET /api/cases/{caseId}/team-graph?asOf= resolves and loads in one query, see CaseVersionGraphRepository
+
     Snapshotting
 
     Creating a snapshot is append-only:
         create a new CaseVersion node,
         link teams with (:CaseVersion)-[:ASSIGNED_TEAM]->(:Team),
         and add any TeamRel nodes for this version.
+    CaseVersionSnapshotService does all three in one statement
+    (POST /api/cases/{caseId}/versions/{versionId}/snapshot).
  */
 
 @Node("CaseVersion")
@@ -64,6 +56,7 @@ public class CaseVersionNode {
     private String caseId; // duplicate for convenience/indexing
     private Instant asOf; // asOf <= $ts
     private Instant createdAt;
+    private long revision; // bumped by every team-graph patch, served as the ETag
 
     @Relationship(type = "ASSIGNED_TEAM", direction = Relationship.Direction.OUTGOING)
     private Set<TeamNode> teams = new HashSet<>();
@@ -0,0 +1,5 @@
+package com.devmh.graphs.v1;
+
+public record CaseVersionRef(String caseId, String versionId) {
+
+}
@@ -0,0 +1,10 @@
+package com.devmh.graphs.v1;
+
+import java.time.Instant;
+
+/**
+ * A CaseVersion created by cloning another one, with the number of team links and TeamRels copied
+ */
+public record CaseVersionSnapshot(String versionId, String sourceVersionId, Instant asOf, long teams, long edges) {
+
+}
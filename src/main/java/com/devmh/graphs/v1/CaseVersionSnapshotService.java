@@ -0,0 +1,89 @@
+package com.devmh.graphs.v1;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Append-only snapshotting: a new CaseVersion with the source's ASSIGNED_TEAM links and copies of all its
+ * TeamRels (also those hidden because a team is unassigned), created in one statement inside the database
+ */
+@Service
+public class CaseVersionSnapshotService {
+
+    private final Neo4jClient client;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CaseVersionSnapshotService(Neo4jClient client, ApplicationEventPublisher eventPublisher) {
+        this.client = client;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Clones the version; asOf defaults to now. Empty when the case has no such version.
+     * The source is write-locked first, so a concurrent patch lands entirely before or after the copy.
+     */
+    @Transactional
+    public Optional<CaseVersionSnapshot> snapshot(String caseId, String versionId, Instant asOf) {
+        var newVersionId = UUID.randomUUID().toString();
+        var params = new HashMap<String, Object>();
+        params.put("caseId", caseId);
+        params.put("versionId", versionId);
+        params.put("newVersionId", newVersionId);
+        params.put("asOf", asOf == null ? null : asOf.atOffset(ZoneOffset.UTC));
+
+        var created = client.query("""
+                  MATCH (c:Case {caseId: $caseId})-[:HAS_VERSION]->(src:CaseVersion {versionId: $versionId})
+                  SET src._lock = true
+                  REMOVE src._lock
+                  CREATE (c)-[:HAS_VERSION]->(v:CaseVersion {
+                      versionId: $newVersionId,
+                      caseId: $caseId,
+                      asOf: coalesce($asOf, datetime()),
+                      createdAt: datetime(),
+                      revision: 0
+                  })
+                  WITH src, v
+                  CALL {
+                      WITH src, v
+                      MATCH (src)-[:ASSIGNED_TEAM]->(t:Team)
+                      CREATE (v)-[:ASSIGNED_TEAM]->(t)
+                      RETURN count(t) AS teams
+                  }
+                  CALL {
+                      WITH src, v
+                      MATCH (src)-[:TEAM_REL]->(tr:TeamRel)-[:FROM]->(f:Team)
+                      MATCH (tr)-[:TO]->(t:Team)
+                      CREATE (v)-[:TEAM_REL]->(copy:TeamRel {
+                          id: randomUUID(),
+                          caseId: $caseId,
+                          versionId: $newVersionId,
+                          kind: tr.kind
+                      })
+                      SET copy.validFrom = tr.validFrom, copy.validTo = tr.validTo
+                      CREATE (copy)-[:FROM]->(f)
+                      CREATE (copy)-[:TO]->(t)
+                      RETURN count(copy) AS edges
+                  }
+                  RETURN v.asOf AS asOf, teams, edges
+                """)
+                .bindAll(params)
+                .fetchAs(CaseVersionSnapshot.class)
+                .mappedBy((types, record) -> new CaseVersionSnapshot(
+                        newVersionId,
+                        versionId,
+                        record.get("asOf").asZonedDateTime().toInstant(),
+                        record.get("teams").asLong(),
+                        record.get("edges").asLong()))
+                .one();
+        created.ifPresent(snapshot -> eventPublisher.publishEvent(new CaseVersionsChangedEvent(caseId)));
+        return created;
+    }
+}
@@ -0,0 +1,8 @@
+package com.devmh.graphs.v1;
+
+/**
+ * Published when a CaseVersion is added to a case, so cached timelines of the case are dropped on commit
+ */
+public record CaseVersionsChangedEvent(String caseId) {
+
+}
@@ -38,4 +38,39 @@ public final class GraphDiffer {
 
         return new GraphDelta(addTeams, removeTeams, addEdges, removeEdges);
     }
+
+    /**
+     * The projection a loadGraph would return after the applied delta: removals as the delta asked for,
+     * additions as they were written, and only edges between assigned teams
+     */
+    public static CaseVersionGraph apply(CaseVersionGraph before, GraphDelta delta, AppliedDelta applied) {
+        var teams = new java.util.LinkedHashSet<>(before.teamIds());
+        teams.removeAll(delta.removeTeams());
+        teams.addAll(applied.addedTeams());
+
+        var removedIds = new HashSet<String>();
+        var removedKeys = new HashSet<String>();
+        for (var e : delta.removeEdges()) {
+            if (e.id() != null && !e.id().isBlank()) {
+                removedIds.add(e.id());
+            } else {
+                removedKeys.add(e.from() + "|" + e.to() + "|" + e.kind());
+            }
+        }
+
+        var edges = new java.util.LinkedHashMap<String, EdgeView>();
+        for (var e : before.edges()) {
+            if (!removedIds.contains(e.id()) && !removedKeys.contains(e.from() + "|" + e.to() + "|" + e.kind())) {
+                edges.put(e.id(), e);
+            }
+        }
+        for (var e : applied.addedEdges()) {
+            edges.putIfAbsent(e.id(), e);
+        }
+
+        var visible = edges.values().stream()
+                .filter(e -> teams.contains(e.from()) && teams.contains(e.to()))
+                .toList();
+        return new CaseVersionGraph(java.util.List.copyOf(teams), visible);
+    }
 }
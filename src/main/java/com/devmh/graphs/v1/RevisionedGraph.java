@@ -0,0 +1,8 @@
+package com.devmh.graphs.v1;
+
+/**
+ * A team graph together with its version and the revision of that CaseVersion, served as the ETag
+ */
+public record RevisionedGraph(String versionId, CaseVersionGraph graph, long revision) {
+
+}
@@ -0,0 +1,13 @@
+package com.devmh.graphs.v1;
+
+/**
+ * The CaseVersion was changed (or removed) since the revision a patch was based on
+ */
+public class StaleRevisionException extends RuntimeException {
+
+    public StaleRevisionException(String versionId, Long currentRevision) {
+        super(currentRevision == null
+                ? "Case version " + versionId + " not found"
+                : "Case version " + versionId + " is at revision " + currentRevision);
+    }
+}
@@ -0,0 +1,9 @@
+package com.devmh.graphs.v1;
+
+/**
+ * Published when a delta is applied to a version's team graph, so indexes built from it are dropped on commit
+ * The revision is the one the delta moved the version to; indexes of older revisions must not be cached again
+ */
+public record TeamGraphChangedEvent(String caseId, String versionId, long revision) {
+
+}
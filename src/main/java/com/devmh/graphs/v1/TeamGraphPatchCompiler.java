@@ -0,0 +1,84 @@
+package com.devmh.graphs.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Translates JSON Patches that only append to a team graph straight into a GraphDelta, so they can be
+ * persisted without loading the graph, applying the patch to a tree and diffing it.
+ * Compiled: "add" to /teamIds/- (a team id) and to /edges/- (an edge without an id, with from, to and kind).
+ * Anything else (positional paths, remove, replace, move, copy, test, edges with a client id) depends on
+ * the current graph, and compile returns empty so the caller takes the load, patch and diff path.
+ */
+public final class TeamGraphPatchCompiler {
+
+    private TeamGraphPatchCompiler() {}
+
+    public static Optional<GraphDelta> compile(JsonNode patch) {
+        if (patch == null || !patch.isArray() || patch.isEmpty()) {
+            return Optional.empty();
+        }
+        Set<String> addTeams = new LinkedHashSet<>();
+        Set<EdgeView> addEdges = new LinkedHashSet<>();
+        for (JsonNode operation : patch) {
+            if (!operation.isObject() || !"add".equals(operation.path("op").asText(null))) {
+                return Optional.empty();
+            }
+            JsonNode value = operation.get("value");
+            switch (operation.path("path").asText("")) {
+                case "/teamIds/-" -> {
+                    if (value == null || !value.isTextual() || value.asText().isBlank()) {
+                        return Optional.empty();
+                    }
+                    addTeams.add(value.asText());
+                }
+                case "/edges/-" -> {
+                    EdgeView edge = edge(value);
+                    if (edge == null) {
+                        return Optional.empty();
+                    }
+                    addEdges.add(edge);
+                }
+                default -> {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.of(new GraphDelta(addTeams, Set.of(), addEdges, Set.of()));
+    }
+
+    private static EdgeView edge(JsonNode value) {
+        if (value == null || !value.isObject()) {
+            return null;
+        }
+        var fields = value.fieldNames();
+        while (fields.hasNext()) {
+            switch (fields.next()) {
+                case "from", "to", "kind" -> { }
+                // An explicit id may collide with an existing edge, which only a diff can tell
+                case "id" -> {
+                    if (!value.get("id").isNull()) {
+                        return null;
+                    }
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        String from = text(value.get("from"));
+        String to = text(value.get("to"));
+        String kind = text(value.get("kind"));
+        if (from == null || to == null || kind == null) {
+            return null;
+        }
+        return new EdgeView(null, from, to, kind);
+    }
+
+    private static String text(JsonNode node) {
+        return node != null && node.isTextual() && !node.asText().isBlank() ? node.asText() : null;
+    }
+}
@@ -0,0 +1,282 @@
+package com.devmh.graphs.v1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable REPORTS_TO index of one version's team graph: an edge from -> to means "from reports to to".
+ * Teams are numbered 0..n-1 and both directions are kept as int CSR arrays (managers and reports of team i
+ * are up[upOffsets[i] .. upOffsets[i + 1]) and down[downOffsets[i] .. downOffsets[i + 1])).
+ * Strongly connected components (Tarjan) are computed once at build time: components larger than one team,
+ * or with a self-report, are the cycles, and depth is taken over the component DAG so it stays finite.
+ */
+final class TeamHierarchy {
+
+    static final String REPORTS_TO = "REPORTS_TO";
+
+    private final long revision;
+    private final String[] teamIds;
+    private final Map<String, Integer> ids;
+    private final int[] upOffsets;
+    private final int[] up;
+    private final int[] downOffsets;
+    private final int[] down;
+    private final int[] component;
+    private final boolean[] cyclic;
+    private final int[] depth;
+    private final List<List<String>> cycles;
+
+    private TeamHierarchy(long revision, String[] teamIds, Map<String, Integer> ids, int[] from, int[] to, int edges) {
+        this.revision = revision;
+        this.teamIds = teamIds;
+        this.ids = ids;
+        int n = teamIds.length;
+
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int e = 0; e < edges; e++) {
+            upOffsets[from[e] + 1]++;
+            downOffsets[to[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            upOffsets[i + 1] += upOffsets[i];
+            downOffsets[i + 1] += downOffsets[i];
+        }
+        up = new int[edges];
+        down = new int[edges];
+        int[] upFill = Arrays.copyOf(upOffsets, n);
+        int[] downFill = Arrays.copyOf(downOffsets, n);
+        for (int e = 0; e < edges; e++) {
+            up[upFill[from[e]]++] = to[e];
+            down[downFill[to[e]]++] = from[e];
+        }
+
+        component = new int[n];
+        int components = stronglyConnectedComponents();
+        cyclic = new boolean[components];
+        int[] sizes = new int[components];
+        for (int i = 0; i < n; i++) {
+            sizes[component[i]]++;
+            for (int k = upOffsets[i]; k < upOffsets[i + 1]; k++) {
+                if (up[k] == i) {
+                    cyclic[component[i]] = true;
+                }
+            }
+        }
+        List<List<String>> members = new ArrayList<>();
+        Map<Integer, Integer> cycleOf = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            int c = component[i];
+            if (sizes[c] > 1 || cyclic[c]) {
+                cyclic[c] = true;
+                members.get(cycleOf.computeIfAbsent(c, key -> {
+                    members.add(new ArrayList<>());
+                    return members.size() - 1;
+                })).add(teamIds[i]);
+            }
+        }
+        cycles = members.stream().map(List::copyOf).toList();
+        depth = depths(components);
+    }
+
+    /**
+     * Builds the index from the REPORTS_TO edges of a graph; edges of other kinds are ignored
+     */
+    static TeamHierarchy of(CaseVersionGraph graph, long revision) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> teams = new ArrayList<>();
+        for (String teamId : graph.teamIds()) {
+            if (ids.putIfAbsent(teamId, teams.size()) == null) {
+                teams.add(teamId);
+            }
+        }
+        int[] from = new int[graph.edges().size()];
+        int[] to = new int[from.length];
+        int edges = 0;
+        for (EdgeView e : graph.edges()) {
+            Integer f = ids.get(e.from());
+            Integer t = ids.get(e.to());
+            if (REPORTS_TO.equals(e.kind()) && f != null && t != null) {
+                from[edges] = f;
+                to[edges] = t;
+                edges++;
+            }
+        }
+        return new TeamHierarchy(revision, teams.toArray(String[]::new), ids, from, to, edges);
+    }
+
+    long revision() {
+        return revision;
+    }
+
+    boolean contains(String teamId) {
+        return ids.containsKey(teamId);
+    }
+
+    int teamCount() {
+        return teamIds.length;
+    }
+
+    int edgeCount() {
+        return up.length;
+    }
+
+    /**
+     * Every team reporting to the team directly or indirectly, nearest first
+     */
+    List<String> descendants(String teamId) {
+        return reachable(ids.get(teamId), downOffsets, down);
+    }
+
+    /**
+     * The team's chain of command: every team it reports to directly or indirectly, nearest first
+     */
+    List<String> ancestors(String teamId) {
+        return reachable(ids.get(teamId), upOffsets, up);
+    }
+
+    /**
+     * Length of the longest reporting chain above the team (0 for a team reporting to nobody);
+     * teams of one cycle share a depth
+     */
+    int depth(String teamId) {
+        return depth[component[ids.get(teamId)]];
+    }
+
+    boolean inCycle(String teamId) {
+        return cyclic[component[ids.get(teamId)]];
+    }
+
+    int maxDepth() {
+        int max = 0;
+        for (int d : depth) {
+            max = Math.max(max, d);
+        }
+        return max;
+    }
+
+    List<List<String>> cycles() {
+        return cycles;
+    }
+
+    private List<String> reachable(int start, int[] offsets, int[] targets) {
+        boolean[] seen = new boolean[teamIds.length];
+        int[] queue = new int[teamIds.length];
+        int head = 0;
+        int tail = 0;
+        seen[start] = true;
+        queue[tail++] = start;
+        List<String> result = new ArrayList<>();
+        while (head < tail) {
+            int team = queue[head++];
+            for (int k = offsets[team]; k < offsets[team + 1]; k++) {
+                int next = targets[k];
+                if (!seen[next]) {
+                    seen[next] = true;
+                    queue[tail++] = next;
+                    result.add(teamIds[next]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Iterative Tarjan over the "reports to" edges; fills component and returns the number of components.
+     * Components are numbered in completion order, so a team's managers are in components numbered
+     * no higher than its own.
+     */
+    private int stronglyConnectedComponents() {
+        int n = teamIds.length;
+        int[] index = new int[n];
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] callStack = new int[n];
+        int[] edgeCursor = new int[n];
+        Arrays.fill(index, -1);
+        int nextIndex = 0;
+        int stackSize = 0;
+        int components = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int depthOfCall = 0;
+            callStack[depthOfCall++] = root;
+            index[root] = low[root] = nextIndex++;
+            edgeCursor[root] = upOffsets[root];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depthOfCall > 0) {
+                int v = callStack[depthOfCall - 1];
+                if (edgeCursor[v] < upOffsets[v + 1]) {
+                    int w = up[edgeCursor[v]++];
+                    if (index[w] == -1) {
+                        index[w] = low[w] = nextIndex++;
+                        edgeCursor[w] = upOffsets[w];
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        callStack[depthOfCall++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                depthOfCall--;
+                if (depthOfCall > 0) {
+                    int parent = callStack[depthOfCall - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        component[w] = components;
+                    } while (w != v);
+                    components++;
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Longest chain to the top over the component DAG; managers' components complete first, so one pass
+     * in component order sees every manager's depth before its reports
+     */
+    private int[] depths(int components) {
+        int[] result = new int[components];
+        int[][] byComponent = new int[components][];
+        int[] counts = new int[components];
+        for (int c : component) {
+            counts[c]++;
+        }
+        for (int c = 0; c < components; c++) {
+            byComponent[c] = new int[counts[c]];
+            counts[c] = 0;
+        }
+        for (int i = 0; i < teamIds.length; i++) {
+            byComponent[component[i]][counts[component[i]]++] = i;
+        }
+        for (int c = 0; c < components; c++) {
+            int d = 0;
+            for (int team : byComponent[c]) {
+                for (int k = upOffsets[team]; k < upOffsets[team + 1]; k++) {
+                    int manager = component[up[k]];
+                    if (manager != c) {
+                        d = Math.max(d, result[manager] + 1);
+                    }
+                }
+            }
+            result[c] = d;
+        }
+        return result;
+    }
+}
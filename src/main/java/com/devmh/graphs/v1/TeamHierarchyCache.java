@@ -0,0 +1,73 @@
+package com.devmh.graphs.v1;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * REPORTS_TO indexes per case version, built on first use from one graph load and reused by every
+ * hierarchy query until the version's team graph is patched here; the expiry bounds staleness for
+ * graphs written by other means.
+ * Versions are patched in place, so a patch leaves the revision it committed behind and an index built
+ * from an older revision (a load that raced the patch) is never cached over it.
+ */
+@Component
+class TeamHierarchyCache {
+
+    static final int MAX_VERSIONS = 10_000;
+    static final Duration EXPIRY = Duration.ofMinutes(10);
+
+    private final CaseVersionGraphRepository graphRepo;
+    private final Cache<CaseVersionRef, Entry> entries = Caffeine.newBuilder()
+            .maximumSize(MAX_VERSIONS)
+            .expireAfterWrite(EXPIRY)
+            .build();
+
+    TeamHierarchyCache(CaseVersionGraphRepository graphRepo) {
+        this.graphRepo = graphRepo;
+    }
+
+    /**
+     * The version's index; empty when the version does not exist
+     */
+    Optional<TeamHierarchy> get(String caseId, String versionId) {
+        var key = new CaseVersionRef(caseId, versionId);
+        var cached = entries.getIfPresent(key);
+        if (cached != null && cached.hierarchy() != null) {
+            return Optional.of(cached.hierarchy());
+        }
+        // Missing versions are not cached, so a version created later is found
+        return graphRepo.loadRevisionedGraph(caseId, versionId).map(loaded -> {
+            var built = TeamHierarchy.of(loaded.graph(), loaded.revision());
+            entries.asMap().compute(key, (k, current) -> current == null || current.accepts(built) ? Entry.of(built) : current);
+            return built;
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTeamGraphChanged(TeamGraphChangedEvent event) {
+        entries.asMap().compute(new CaseVersionRef(event.caseId(), event.versionId()),
+                (k, current) -> current != null && current.minRevision() >= event.revision()
+                        ? current
+                        : new Entry(null, event.revision()));
+    }
+
+    /**
+     * The index of a version (null until one at least minRevision is built) and the last revision committed
+     */
+    private record Entry(TeamHierarchy hierarchy, long minRevision) {
+
+        static Entry of(TeamHierarchy hierarchy) {
+            return new Entry(hierarchy, hierarchy.revision());
+        }
+
+        boolean accepts(TeamHierarchy built) {
+            return built.revision() >= minRevision && (hierarchy == null || built.revision() >= hierarchy.revision());
+        }
+    }
+}
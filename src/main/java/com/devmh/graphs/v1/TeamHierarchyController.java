@@ -0,0 +1,74 @@
+package com.devmh.graphs.v1;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Transitive REPORTS_TO queries ("from reports to to") over a version's team graph, answered from a cached index
+@RestController
+@RequestMapping("/api/cases/{caseId}/versions/{versionId}/hierarchy")
+@RequiredArgsConstructor
+public class TeamHierarchyController {
+
+    private final TeamHierarchyCache hierarchyCache;
+
+    public record HierarchySummary(int teams, int edges, int maxDepth, List<List<String>> cycles) {}
+
+    public record TeamDepth(String teamId, int depth, boolean inCycle) {}
+
+    @GetMapping
+    public ResponseEntity<HierarchySummary> getHierarchy(
+            @PathVariable String caseId,
+            @PathVariable String versionId) {
+        return hierarchyCache.get(caseId, versionId)
+                .map(h -> ResponseEntity.ok(new HierarchySummary(h.teamCount(), h.edgeCount(), h.maxDepth(), h.cycles())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Each cycle lists its teams; an empty list means the hierarchy is a proper tree or forest
+    @GetMapping("/cycles")
+    public ResponseEntity<List<List<String>>> getCycles(
+            @PathVariable String caseId,
+            @PathVariable String versionId) {
+        return hierarchyCache.get(caseId, versionId)
+                .map(h -> ResponseEntity.ok(h.cycles()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Teams reporting to the team directly or indirectly, nearest first
+    @GetMapping("/teams/{teamId}/descendants")
+    public ResponseEntity<List<String>> getDescendants(
+            @PathVariable String caseId,
+            @PathVariable String versionId,
+            @PathVariable String teamId) {
+        return forTeam(caseId, versionId, teamId, h -> h.descendants(teamId));
+    }
+
+    // Teams the team reports to directly or indirectly, nearest first
+    @GetMapping("/teams/{teamId}/ancestors")
+    public ResponseEntity<List<String>> getAncestors(
+            @PathVariable String caseId,
+            @PathVariable String versionId,
+            @PathVariable String teamId) {
+        return forTeam(caseId, versionId, teamId, h -> h.ancestors(teamId));
+    }
+
+    @GetMapping("/teams/{teamId}/depth")
+    public ResponseEntity<TeamDepth> getDepth(
+            @PathVariable String caseId,
+            @PathVariable String versionId,
+            @PathVariable String teamId) {
+        return forTeam(caseId, versionId, teamId, h -> new TeamDepth(teamId, h.depth(teamId), h.inCycle(teamId)));
+    }
+
+    // 404 when the version does not exist or the team is not assigned to it
+    private <T> ResponseEntity<T> forTeam(String caseId, String versionId, String teamId, Function<TeamHierarchy, T> query) {
+        return hierarchyCache.get(caseId, versionId)
+                .filter(h -> h.contains(teamId))
+                .map(h -> ResponseEntity.ok(query.apply(h)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,134 @@
+package com.devmh.graphs.v2;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed sparse row adjacency of a version's RELATED_TO_CASE graph
+ * Cases are dictionary-encoded to ids 0..n-1; outgoing and incoming neighbours of case i are
+ * outTargets[outOffsets[i] .. outOffsets[i + 1]) and inSources[inOffsets[i] .. inOffsets[i + 1]).
+ * Built with counting passes, so the whole graph is four int arrays plus the uuid dictionary.
+ */
+final class CaseGraphCsr {
+
+    private final String[] caseUuids;
+    private final StringIntMap ids;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    private CaseGraphCsr(String[] caseUuids, StringIntMap ids, int[] outOffsets, int[] outTargets,
+                         int[] inOffsets, int[] inSources) {
+        this.caseUuids = caseUuids;
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+    }
+
+    /**
+     * Relationships whose ends are not cases of the graph are ignored
+     */
+    static CaseGraphCsr of(DocketGraphDTO graph) {
+        int n = graph.getCases().size();
+        String[] caseUuids = new String[n];
+        StringIntMap ids = new StringIntMap(n);
+        int count = 0;
+        for (CaseNode c : graph.getCases()) {
+            if (ids.putIfAbsent(c.getUuid(), count) == StringIntMap.MISSING) {
+                caseUuids[count++] = c.getUuid();
+            }
+        }
+
+        int[] from = new int[graph.getRelationships().size()];
+        int[] to = new int[from.length];
+        int edges = 0;
+        for (CaseRelationship r : graph.getRelationships()) {
+            int source = ids.get(r.getFromCaseUuid());
+            int target = ids.get(r.getToCaseUuid());
+            if (source != StringIntMap.MISSING && target != StringIntMap.MISSING) {
+                from[edges] = source;
+                to[edges] = target;
+                edges++;
+            }
+        }
+
+        int[] outOffsets = new int[count + 1];
+        int[] inOffsets = new int[count + 1];
+        for (int e = 0; e < edges; e++) {
+            outOffsets[from[e] + 1]++;
+            inOffsets[to[e] + 1]++;
+        }
+        for (int i = 0; i < count; i++) {
+            outOffsets[i + 1] += outOffsets[i];
+            inOffsets[i + 1] += inOffsets[i];
+        }
+
+        int[] outTargets = new int[edges];
+        int[] inSources = new int[edges];
+        int[] outFill = new int[count];
+        int[] inFill = new int[count];
+        for (int e = 0; e < edges; e++) {
+            outTargets[outOffsets[from[e]] + outFill[from[e]]++] = to[e];
+            inSources[inOffsets[to[e]] + inFill[to[e]]++] = from[e];
+        }
+
+        String[] uuids = count == n ? caseUuids : Arrays.copyOf(caseUuids, count);
+        return new CaseGraphCsr(uuids, ids, outOffsets, outTargets, inOffsets, inSources);
+    }
+
+    int caseCount() {
+        return caseUuids.length;
+    }
+
+    int edgeCount() {
+        return outTargets.length;
+    }
+
+    String uuid(int id) {
+        return caseUuids[id];
+    }
+
+    /** Id of a case uuid, or StringIntMap.MISSING */
+    int id(String caseUuid) {
+        return ids.get(caseUuid);
+    }
+
+    int outDegree(int id) {
+        return outOffsets[id + 1] - outOffsets[id];
+    }
+
+    int inDegree(int id) {
+        return inOffsets[id + 1] - inOffsets[id];
+    }
+
+    int outStart(int id) {
+        return outOffsets[id];
+    }
+
+    int outEnd(int id) {
+        return outOffsets[id + 1];
+    }
+
+    int outTarget(int index) {
+        return outTargets[index];
+    }
+
+    int inStart(int id) {
+        return inOffsets[id];
+    }
+
+    int inEnd(int id) {
+        return inOffsets[id + 1];
+    }
+
+    int inSource(int index) {
+        return inSources[index];
+    }
+
+    /** Cache weight, in the unit of DocketGraphCache: 1 + cases + relationships */
+    int weight() {
+        return 1 + caseCount() + edgeCount();
+    }
+}
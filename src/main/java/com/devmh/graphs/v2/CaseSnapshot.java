@@ -28,6 +28,9 @@ public class CaseSnapshot {
     @Relationship(type = "RELATED_TO_CASE", direction = Relationship.Direction.OUTGOING)
     private Set<CaseSnapshot> relatedCaseSnapshots = new HashSet<>();
 
+    /** Case name as of the version(s) containing this snapshot */
+    private String name;
+
     private LocalDateTime snapshotAt;
 
     public CaseSnapshot() {
@@ -37,6 +40,7 @@ public class CaseSnapshot {
     public CaseSnapshot(Case sourceCase) {
         this();
         this.sourceCase = sourceCase;
+        this.name = sourceCase.getName();
     }
 
     public void addRelatedCaseSnapshot(CaseSnapshot relatedSnapshot) {
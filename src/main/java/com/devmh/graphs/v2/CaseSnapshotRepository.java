@@ -14,7 +14,9 @@ public interface CaseSnapshotRepository extends Neo4jRepository<CaseSnapshot, St
             "RETURN cs")
     List<CaseSnapshot> findByDocketVersionUuid(@Param("versionUuid") String versionUuid);
 
-    @Query("MATCH (dv:DocketVersion {uuid: $versionUuid})-[:CONTAINS_CASE]->(cs:CaseSnapshot) " +
+    @Query("MATCH (dv:DocketVersion {uuid: $versionUuid})-[cc:CONTAINS_CASE]->(cs:CaseSnapshot) " +
+            "DELETE cc " +
+            "WITH cs WHERE NOT (cs)<-[:CONTAINS_CASE]-(:DocketVersion) " +
             "DETACH DELETE cs")
     void deleteByDocketVersionUuid(@Param("versionUuid") String versionUuid);
 }
@@ -0,0 +1,16 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CompactionResult {
+    private String docketUuid;
+    private List<Integer> versionsDeleted = new ArrayList<>();
+    /** Version and snapshot nodes removed */
+    private long nodesDeleted;
+    private long relationshipsDeleted;
+    private long durationMs;
+}
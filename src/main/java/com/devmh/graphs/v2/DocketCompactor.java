@@ -0,0 +1,335 @@
+package com.devmh.graphs.v2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.summary.ResultSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prunes docket history according to each docket's RetentionPolicy (graphs.retention.defaults if unset)
+ * Expired versions are first retired: unlinked from their docket in one short transaction, so readers
+ * and writers no longer see them. Their snapshots are then deleted in CALL { } IN TRANSACTIONS chunks
+ * of graphs.retention.chunkSize rows; snapshots shared with a surviving version stay. A run that stops
+ * half way leaves retired versions behind, which the next run finishes first.
+ * Compaction of a docket runs on its write lane, so it never overlaps with a sync of the docket.
+ * Meters: graphs.retention.compaction (duration), graphs.retention.versions, graphs.retention.nodes
+ * and graphs.retention.relationships (deleted)
+ */
+@Service
+public class DocketCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocketCompactor.class);
+
+    private final Neo4jClient neo4jClient;
+    private final DocketRepository docketRepository;
+    private final DocketWriteLanes docketWriteLanes;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RetentionProps props;
+    private final Timer compactionTimer;
+    private final Counter versionsDeleted;
+    private final Counter nodesDeleted;
+    private final Counter relationshipsDeleted;
+
+    public DocketCompactor(
+            Neo4jClient neo4jClient,
+            DocketRepository docketRepository,
+            DocketWriteLanes docketWriteLanes,
+            ApplicationEventPublisher eventPublisher,
+            RetentionProps props,
+            MeterRegistry registry) {
+        this.neo4jClient = neo4jClient;
+        this.docketRepository = docketRepository;
+        this.docketWriteLanes = docketWriteLanes;
+        this.eventPublisher = eventPublisher;
+        this.props = props;
+        this.compactionTimer = Timer.builder("graphs.retention.compaction")
+                .description("Duration of compacting the history of one docket")
+                .register(registry);
+        this.versionsDeleted = Counter.builder("graphs.retention.versions")
+                .description("Docket versions deleted by retention")
+                .register(registry);
+        this.nodesDeleted = Counter.builder("graphs.retention.nodes")
+                .description("Nodes deleted by retention")
+                .register(registry);
+        this.relationshipsDeleted = Counter.builder("graphs.retention.relationships")
+                .description("Relationships deleted by retention")
+                .register(registry);
+    }
+
+    /**
+     * The docket's own policy, or the default policy if it has none
+     */
+    public RetentionPolicy getPolicy(String docketUuid) {
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})
+            RETURN d.retentionKeepLast as keepLast,
+                   d.retentionKeepDaily as keepDaily,
+                   d.retentionKeepWeekly as keepWeekly,
+                   d.retentionKeepWithinDays as keepWithinDays
+            """;
+
+        RetentionPolicy policy = neo4jClient.query(query)
+                .bind(docketUuid).to("docketUuid")
+                .fetchAs(RetentionPolicy.class)
+                .mappedBy((typeSystem, record) -> {
+                    RetentionPolicy stored = new RetentionPolicy();
+                    stored.setKeepLast(intOrNull(record.get("keepLast")));
+                    stored.setKeepDaily(intOrNull(record.get("keepDaily")));
+                    stored.setKeepWeekly(intOrNull(record.get("keepWeekly")));
+                    stored.setKeepWithinDays(intOrNull(record.get("keepWithinDays")));
+                    return stored;
+                })
+                .one()
+                .orElseThrow(() -> new ResourceNotFoundException("Docket not found with uuid: " + docketUuid));
+
+        return policy.isEmpty() ? props.getDefaults() : policy;
+    }
+
+    /**
+     * Stores the docket's policy; an empty policy falls back to the default again
+     */
+    public RetentionPolicy setPolicy(String docketUuid, RetentionPolicy policy) {
+        validate(policy);
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})
+            SET d.retentionKeepLast = $keepLast,
+                d.retentionKeepDaily = $keepDaily,
+                d.retentionKeepWeekly = $keepWeekly,
+                d.retentionKeepWithinDays = $keepWithinDays
+            RETURN d.uuid
+            """;
+
+        neo4jClient.query(query)
+                .bind(docketUuid).to("docketUuid")
+                .bind(policy.getKeepLast()).to("keepLast")
+                .bind(policy.getKeepDaily()).to("keepDaily")
+                .bind(policy.getKeepWeekly()).to("keepWeekly")
+                .bind(policy.getKeepWithinDays()).to("keepWithinDays")
+                .fetchAs(String.class)
+                .one()
+                .orElseThrow(() -> new ResourceNotFoundException("Docket not found with uuid: " + docketUuid));
+
+        logger.info("Retention policy of docket {} set to {}", docketUuid, policy);
+        return getPolicy(docketUuid);
+    }
+
+    /**
+     * Deletes the versions of a docket that its policy no longer keeps
+     */
+    public CompactionResult compact(String docketUuid) {
+        if (!docketRepository.existsById(docketUuid)) {
+            throw new ResourceNotFoundException("Docket not found with uuid: " + docketUuid);
+        }
+        return compact(docketUuid, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Scheduled run over all dockets, bounded by graphs.retention.maxVersionsPerRun
+     */
+    @Scheduled(initialDelayString = "${graphs.retention.interval:PT15M}",
+            fixedDelayString = "${graphs.retention.interval:PT15M}")
+    public void compactAll() {
+        if (!props.isEnabled()) {
+            return;
+        }
+
+        finishRetiredVersions();
+
+        int budget = props.getMaxVersionsPerRun();
+        for (String docketUuid : findDocketUuids()) {
+            if (budget <= 0) {
+                logger.info("Compaction budget of {} versions used up, continuing next run", props.getMaxVersionsPerRun());
+                return;
+            }
+            try {
+                budget -= compact(docketUuid, budget).getVersionsDeleted().size();
+            } catch (RuntimeException e) {
+                logger.warn("Compaction of docket {} failed", docketUuid, e);
+            }
+        }
+    }
+
+    private CompactionResult compact(String docketUuid, int maxVersions) {
+        return docketWriteLanes.write(docketUuid, null, () -> {
+            long startTime = System.nanoTime();
+            CompactionResult result = new CompactionResult();
+            result.setDocketUuid(docketUuid);
+
+            List<RetentionPlanner.VersionInfo> expired = RetentionPlanner.expired(
+                    findVersions(docketUuid), getPolicy(docketUuid), LocalDateTime.now());
+            if (expired.isEmpty()) {
+                return result;
+            }
+
+            List<String> expiredUuids = expired.stream()
+                    .limit(maxVersions)
+                    .map(RetentionPlanner.VersionInfo::uuid)
+                    .toList();
+            Map<String, Integer> retired = retire(docketUuid, expiredUuids);
+            retired.forEach((versionUuid, versionNumber) -> {
+                purge(versionUuid, result);
+                result.getVersionsDeleted().add(versionNumber);
+                eventPublisher.publishEvent(DocketGraphChangedEvent.version(docketUuid, versionNumber, List.of()));
+                eventPublisher.publishEvent(DocketVersionsChangedEvent.deleted(docketUuid, versionNumber));
+            });
+            result.getVersionsDeleted().sort(null);
+
+            long nanos = System.nanoTime() - startTime;
+            compactionTimer.record(nanos, TimeUnit.NANOSECONDS);
+            versionsDeleted.increment(retired.size());
+            result.setDurationMs(TimeUnit.NANOSECONDS.toMillis(nanos));
+
+            logger.info("Compacted docket {} in {}ms: versions {} deleted, {} nodes and {} relationships reclaimed",
+                    docketUuid, result.getDurationMs(), result.getVersionsDeleted(),
+                    result.getNodesDeleted(), result.getRelationshipsDeleted());
+            return result;
+        });
+    }
+
+    /**
+     * Unlinks the versions from their docket in one transaction; the docket lock orders this with
+     * version allocation, so the latest version is never retired
+     */
+    private Map<String, Integer> retire(String docketUuid, List<String> versionUuids) {
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})
+            SET d._lock = true
+            WITH d
+            OPTIONAL MATCH (d)-[hv:HAS_VERSION]->(dv:DocketVersion)
+            WHERE dv.uuid IN $versionUuids AND NOT (d)-[:LATEST_VERSION]->(dv)
+            DELETE hv
+            SET dv.retiredFrom = d.uuid
+            REMOVE d._lock
+            WITH dv
+            WHERE dv IS NOT NULL
+            RETURN dv.uuid as versionUuid, dv.versionNumber as versionNumber
+            """;
+
+        Map<String, Integer> retired = new LinkedHashMap<>();
+        neo4jClient.query(query)
+                .bind(docketUuid).to("docketUuid")
+                .bind(versionUuids).to("versionUuids")
+                .fetch()
+                .all()
+                .forEach(row -> retired.put((String) row.get("versionUuid"), ((Number) row.get("versionNumber")).intValue()));
+        return retired;
+    }
+
+    /**
+     * Deletes a retired version: snapshots only it contains, then its remaining links, then the node
+     * Runs outside of any Spring transaction, every statement commits its chunks itself
+     */
+    private void purge(String versionUuid, CompactionResult result) {
+        String snapshotsQuery = """
+            MATCH (dv:DocketVersion {uuid: $versionUuid})-[:CONTAINS_CASE]->(cs:CaseSnapshot)
+            WHERE NOT EXISTS {
+                MATCH (cs)<-[:CONTAINS_CASE]-(other:DocketVersion)
+                WHERE other <> dv
+            }
+            CALL {
+                WITH cs
+                DETACH DELETE cs
+            } IN TRANSACTIONS OF $chunkSize ROWS
+            """;
+
+        String linksQuery = """
+            MATCH (dv:DocketVersion {uuid: $versionUuid})-[cc:CONTAINS_CASE]->()
+            CALL {
+                WITH cc
+                DELETE cc
+            } IN TRANSACTIONS OF $chunkSize ROWS
+            """;
+
+        String versionQuery = """
+            MATCH (dv:DocketVersion {uuid: $versionUuid})
+            DETACH DELETE dv
+            """;
+
+        for (String query : List.of(snapshotsQuery, linksQuery, versionQuery)) {
+            record(neo4jClient.query(query)
+                    .bind(versionUuid).to("versionUuid")
+                    .bind(props.getChunkSize()).to("chunkSize")
+                    .run(), result);
+        }
+    }
+
+    /**
+     * Purges versions retired by a run that did not complete
+     */
+    private void finishRetiredVersions() {
+        String query = """
+            MATCH (dv:DocketVersion)
+            WHERE dv.retiredFrom IS NOT NULL
+            RETURN dv.uuid as versionUuid, dv.retiredFrom as docketUuid
+            """;
+
+        for (Map<String, Object> row : neo4jClient.query(query).fetch().all()) {
+            CompactionResult result = new CompactionResult();
+            result.setDocketUuid((String) row.get("docketUuid"));
+            purge((String) row.get("versionUuid"), result);
+            versionsDeleted.increment();
+            logger.info("Finished purging retired version {} of docket {}", row.get("versionUuid"), row.get("docketUuid"));
+        }
+    }
+
+    private List<RetentionPlanner.VersionInfo> findVersions(String docketUuid) {
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion)
+            RETURN dv.uuid as uuid,
+                   dv.versionNumber as versionNumber,
+                   localdatetime(dv.createdAt) as createdAt,
+                   EXISTS { (d)-[:LATEST_VERSION]->(dv) } as latest
+            """;
+
+        return List.copyOf(neo4jClient.query(query)
+                .bind(docketUuid).to("docketUuid")
+                .fetchAs(RetentionPlanner.VersionInfo.class)
+                .mappedBy((typeSystem, record) -> new RetentionPlanner.VersionInfo(
+                        record.get("uuid").asString(),
+                        record.get("versionNumber").asInt(),
+                        record.get("createdAt").isNull() ? null : record.get("createdAt").asLocalDateTime(),
+                        record.get("latest").asBoolean()))
+                .all());
+    }
+
+    private List<String> findDocketUuids() {
+        return List.copyOf(neo4jClient.query("MATCH (d:Docket) RETURN d.uuid")
+                .fetchAs(String.class)
+                .all());
+    }
+
+    private void record(ResultSummary summary, CompactionResult result) {
+        int nodes = summary.counters().nodesDeleted();
+        int relationships = summary.counters().relationshipsDeleted();
+        result.setNodesDeleted(result.getNodesDeleted() + nodes);
+        result.setRelationshipsDeleted(result.getRelationshipsDeleted() + relationships);
+        nodesDeleted.increment(nodes);
+        relationshipsDeleted.increment(relationships);
+    }
+
+    private static void validate(RetentionPolicy policy) {
+        for (Integer rule : new Integer[] {
+                policy.getKeepLast(), policy.getKeepDaily(), policy.getKeepWeekly(), policy.getKeepWithinDays()}) {
+            if (rule != null && rule < 0) {
+                throw new InvalidGraphRequestException("Retention rules must not be negative: " + policy);
+            }
+        }
+    }
+
+    private static Integer intOrNull(Value value) {
+        return value.isNull() ? null : value.asInt();
+    }
+}
@@ -0,0 +1,203 @@
+package com.devmh.graphs.v2;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of docket version graphs, weighted by graph size and evicted by W-TinyLFU.
+ * Entries are invalidated after the writing transaction commits; a load that is still running
+ * for the same key when the invalidation arrives is waited for and then discarded.
+ * Because case names live on the shared Case nodes, an index from case uuid to cached
+ * versions lets a rename drop exactly the graphs that show that case.
+ * Each entry also keeps its HTTP response (gzipped JSON and ETag) once it has been requested,
+ * so repeated GETs and conditional GETs cost neither a query nor serialization.
+ */
+@Component
+public class DocketGraphCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocketGraphCache.class);
+
+    private final GraphCacheProps props;
+    private final ObjectMapper objectMapper;
+    private final Cache<GraphKey, CachedGraph> cache;
+    private final Map<String, Map<GraphKey, CachedGraph>> graphsByCase = new ConcurrentHashMap<>();
+    private final AtomicLong caseGeneration = new AtomicLong();
+
+    public DocketGraphCache(GraphCacheProps props, ObjectMapper objectMapper) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(props.getMaxWeight())
+                .weigher((GraphKey key, CachedGraph entry) -> entry.weight())
+                .removalListener((GraphKey key, CachedGraph entry, RemovalCause cause) -> unindex(key, entry))
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /** The underlying cache, for binding its statistics to Micrometer */
+    Cache<?, ?> getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the cached graph or loads (and caches) it; exceptions of the loader are not cached
+     */
+    public DocketGraphDTO get(String docketUuid, Integer versionNumber, Supplier<DocketGraphDTO> loader) {
+        return getEntry(docketUuid, versionNumber, loader).graph();
+    }
+
+    /**
+     * Returns the serialized response of the graph, serializing it at most once per cached entry
+     */
+    public SerializedGraph getSerialized(String docketUuid, Integer versionNumber, Supplier<DocketGraphDTO> loader) {
+        return getEntry(docketUuid, versionNumber, loader).serialized(objectMapper);
+    }
+
+    private CachedGraph getEntry(String docketUuid, Integer versionNumber, Supplier<DocketGraphDTO> loader) {
+        if (!props.isEnabled()) {
+            return new CachedGraph(loader.get());
+        }
+
+        GraphKey graphKey = new GraphKey(docketUuid, versionNumber);
+        long generation = caseGeneration.get();
+        CachedGraph entry = cache.get(graphKey, key -> index(key, new CachedGraph(loader.get())));
+
+        // A case rename that committed while this graph was loading may not have seen it in the index
+        if (caseGeneration.get() != generation) {
+            cache.asMap().remove(graphKey, entry);
+        }
+        return entry;
+    }
+
+    public Map<String, Object> getStatistics() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", props.isEnabled());
+        result.put("entries", cache.estimatedSize());
+        result.put("weight", cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        result.put("maxWeight", props.getMaxWeight());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("evictionWeight", stats.evictionWeight());
+        result.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGraphChanged(DocketGraphChangedEvent event) {
+        if (event.docketUuid() != null) {
+            if (event.versionNumber() != null) {
+                cache.invalidate(new GraphKey(event.docketUuid(), event.versionNumber()));
+            } else {
+                cache.invalidateAll(cache.asMap().keySet().stream()
+                        .filter(key -> key.docketUuid().equals(event.docketUuid()))
+                        .toList());
+            }
+        }
+
+        if (!event.caseUuids().isEmpty()) {
+            caseGeneration.incrementAndGet();
+            for (String caseUuid : event.caseUuids()) {
+                Map<GraphKey, CachedGraph> graphs = graphsByCase.get(caseUuid);
+                if (graphs != null) {
+                    cache.invalidateAll(List.copyOf(graphs.keySet()));
+                }
+            }
+        }
+
+        logger.debug("Invalidated cached graphs for docket {} version {} ({} cases)",
+                event.docketUuid(), event.versionNumber(), event.caseUuids().size());
+    }
+
+    private CachedGraph index(GraphKey key, CachedGraph entry) {
+        for (CaseNode c : entry.graph().getCases()) {
+            graphsByCase.computeIfAbsent(c.getUuid(), k -> new ConcurrentHashMap<>()).put(key, entry);
+        }
+        return entry;
+    }
+
+    private void unindex(GraphKey key, CachedGraph entry) {
+        if (entry == null) {
+            return;
+        }
+        for (CaseNode c : entry.graph().getCases()) {
+            // Only drop the mapping of this entry; a reload of the same key may already be indexed
+            graphsByCase.computeIfPresent(c.getUuid(), (k, graphs) -> {
+                graphs.remove(key, entry);
+                return graphs.isEmpty() ? null : graphs;
+            });
+        }
+    }
+
+    record GraphKey(String docketUuid, Integer versionNumber) {
+    }
+
+    /**
+     * Compared by identity, so the index never confuses an entry with its reload
+     */
+    static final class CachedGraph {
+        private final DocketGraphDTO graph;
+        private final int weight;
+        private volatile SerializedGraph serialized;
+
+        CachedGraph(DocketGraphDTO graph) {
+            this.graph = graph;
+            this.weight = 1 + graph.getCases().size() + graph.getRelationships().size();
+        }
+
+        DocketGraphDTO graph() {
+            return graph;
+        }
+
+        int weight() {
+            return weight;
+        }
+
+        SerializedGraph serialized(ObjectMapper objectMapper) {
+            SerializedGraph result = serialized;
+            if (result == null) {
+                synchronized (this) {
+                    result = serialized;
+                    if (result == null) {
+                        serialized = result = serialize(objectMapper);
+                    }
+                }
+            }
+            return result;
+        }
+
+        private SerializedGraph serialize(ObjectMapper objectMapper) {
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(graph);
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+                return SerializedGraph.of(json, HexFormat.of().formatHex(digest, 0, 16));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize graph of version " + graph.getVersionUuid(), e);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
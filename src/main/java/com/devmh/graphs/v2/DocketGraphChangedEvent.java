@@ -0,0 +1,24 @@
+package com.devmh.graphs.v2;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published whenever the graph of a docket version may have changed.
+ * A null versionNumber covers every version of the docket; a null docketUuid means only the
+ * names of caseUuids changed (Case nodes are shared by every version and docket that contains them).
+ */
+public record DocketGraphChangedEvent(String docketUuid, Integer versionNumber, Collection<String> caseUuids) {
+
+    public static DocketGraphChangedEvent version(String docketUuid, Integer versionNumber, Collection<String> caseUuids) {
+        return new DocketGraphChangedEvent(docketUuid, versionNumber, caseUuids);
+    }
+
+    public static DocketGraphChangedEvent docket(String docketUuid) {
+        return new DocketGraphChangedEvent(docketUuid, null, List.of());
+    }
+
+    public static DocketGraphChangedEvent cases(Collection<String> caseUuids) {
+        return new DocketGraphChangedEvent(null, null, caseUuids);
+    }
+}
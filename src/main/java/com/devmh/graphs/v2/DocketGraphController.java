@@ -1,9 +1,19 @@
 package com.devmh.graphs.v2;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.OffsetDateTime;
 import java.util.Map;
 
 @RestController
@@ -11,28 +21,87 @@ import java.util.Map;
 public class DocketGraphController {
 
     private final DocketGraphService docketGraphService;
+    private final GraphJobService graphJobService;
 
-    public DocketGraphController(DocketGraphService docketGraphService) {
+    public DocketGraphController(DocketGraphService docketGraphService, GraphJobService graphJobService) {
         this.docketGraphService = docketGraphService;
+        this.graphJobService = graphJobService;
     }
 
     /**
      * Retrieves the complete graph for a specific docket version
      * GET /api/dockets/{docketUuid}/graph/versions/{versionNumber}
+     * Responds with a strong ETag; If-None-Match with a current tag returns 304 Not Modified.
+     * The body is pre-serialized JSON, sent gzip-encoded when the client accepts it.
      */
-    @GetMapping("/versions/{versionNumber}")
-    public ResponseEntity<DocketGraphDTO> getDocketVersionGraph(
+    @GetMapping(path = "/versions/{versionNumber}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getDocketVersionGraph(
             @PathVariable String docketUuid,
-            @PathVariable Integer versionNumber) {
+            @PathVariable Integer versionNumber,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
-        DocketGraphDTO graph = docketGraphService.getDocketVersionGraph(docketUuid, versionNumber);
-        return ResponseEntity.ok(graph);
+        SerializedGraph graph = docketGraphService.getSerializedDocketVersionGraph(docketUuid, versionNumber);
+        return serializedGraphResponse(graph, ifNoneMatch, acceptEncoding, ResponseEntity.ok());
+    }
+
+    /**
+     * Retrieves the graph of the version that was the docket's latest at a point in time
+     * GET /api/dockets/{docketUuid}/graph?asOf=2024-06-01T12:00:00Z
+     * Content-Location names the resolved version; caching headers as for a version's graph
+     */
+    @GetMapping(params = "asOf", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getDocketGraphAsOf(
+            @PathVariable String docketUuid,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        int versionNumber = docketGraphService.resolveVersionAsOf(docketUuid, asOf.toInstant());
+        SerializedGraph graph = docketGraphService.getSerializedDocketVersionGraph(docketUuid, versionNumber);
+        return serializedGraphResponse(graph, ifNoneMatch, acceptEncoding, ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_LOCATION,
+                        "/api/dockets/" + docketUuid + "/graph/versions/" + versionNumber));
+    }
+
+    /**
+     * Pages through the cases of a version, ordered by snapshot uuid
+     * GET /api/dockets/{docketUuid}/graph/versions/{versionNumber}/cases?after={cursor}&limit=1000
+     * Pass the nextCursor of a page as "after" to get the following page; it is null on the last page
+     */
+    @GetMapping("/versions/{versionNumber}/cases")
+    public ResponseEntity<GraphPage<CaseNode>> getDocketVersionCases(
+            @PathVariable String docketUuid,
+            @PathVariable Integer versionNumber,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "1000") int limit) {
+
+        return ResponseEntity.ok(docketGraphService.getDocketVersionCasePage(
+                docketUuid, versionNumber, after, limit));
+    }
+
+    /**
+     * Pages through the relationships of a version, ordered by (from, to) snapshot uuid
+     * GET /api/dockets/{docketUuid}/graph/versions/{versionNumber}/relationships?after={cursor}&limit=1000
+     */
+    @GetMapping("/versions/{versionNumber}/relationships")
+    public ResponseEntity<GraphPage<CaseRelationship>> getDocketVersionRelationships(
+            @PathVariable String docketUuid,
+            @PathVariable Integer versionNumber,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "1000") int limit) {
+
+        return ResponseEntity.ok(docketGraphService.getDocketVersionRelationshipPage(
+                docketUuid, versionNumber, after, limit));
     }
 
     /**
      * Creates a new version by replacing the entire graph
      * POST /api/dockets/{docketUuid}/graph
-     * Body: { "description": "...", "cases": [...], "relationships": [...] }
+     * Body: { "description": "...", "cases": [...], "relationships": [...],
+     *         "copyOnWrite": true, "parentVersionNumber": 3, "parallel": false }
+     * With copyOnWrite the new version shares unchanged case snapshots with the parent (default: latest)
+     * With parallel the new version is written by partitioned concurrent sessions (ignored with copyOnWrite)
      */
     @PostMapping
     public ResponseEntity<GraphSyncResult> replaceGraph(
@@ -43,6 +112,75 @@ public class DocketGraphController {
         return new ResponseEntity<>(result, HttpStatus.CREATED);
     }
 
+    /**
+     * Creates a new version in a background job
+     * POST /api/dockets/{docketUuid}/graph?async=true
+     * Same body as the synchronous variant; responds 202 Accepted with the job status and its
+     * Location (/api/graph-jobs/{jobId}) to poll for progress, or to DELETE to cancel the job
+     */
+    @PostMapping(params = "async=true")
+    public ResponseEntity<GraphJobStatus> replaceGraphAsync(
+            @PathVariable String docketUuid,
+            @RequestBody ReplaceGraphRequest request) {
+
+        GraphJobStatus status = graphJobService.submit(docketUuid, request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/graph-jobs/" + status.getJobId()))
+                .body(status);
+    }
+
+    /**
+     * Creates a new version from a streamed graph, written in fixed-size batches while parsing
+     * POST /api/dockets/{docketUuid}/graph/stream
+     * Content-Type: application/x-ndjson
+     * Body: one object per line, cases before the relationships that use them
+     *   {"uuid": "...", "name": "..."}
+     *   {"fromCaseUuid": "...", "toCaseUuid": "..."}
+     */
+    @PostMapping(path = "/stream", consumes = "application/x-ndjson")
+    public ResponseEntity<GraphSyncResult> replaceGraphFromStream(
+            @PathVariable String docketUuid,
+            InputStream body) throws IOException {
+
+        GraphSyncResult result = docketGraphService.replaceGraphFromStream(docketUuid, body);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
+    /**
+     * Exports a version as a compact binary archive (see VersionArchive)
+     * GET /api/dockets/{docketUuid}/graph/versions/{versionNumber}/archive
+     */
+    @GetMapping(path = "/versions/{versionNumber}/archive", produces = VersionArchive.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportVersionArchive(
+            @PathVariable String docketUuid,
+            @PathVariable Integer versionNumber) {
+
+        DocketGraphDTO graph = docketGraphService.getDocketVersionGraph(docketUuid, versionNumber);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(docketUuid + "-v" + versionNumber + ".dkgv")
+                        .build()
+                        .toString())
+                .contentType(MediaType.parseMediaType(VersionArchive.MEDIA_TYPE))
+                .body(out -> VersionArchive.write(graph, out));
+    }
+
+    /**
+     * Creates a new version from an archive exported by this or another environment
+     * POST /api/dockets/{docketUuid}/graph/archive?description=...
+     * Content-Type: application/vnd.devmh.docket-version (or application/octet-stream)
+     * Without a description the new version keeps the archived one
+     */
+    @PostMapping(path = "/archive", consumes = {VersionArchive.MEDIA_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<GraphSyncResult> importVersionArchive(
+            @PathVariable String docketUuid,
+            @RequestParam(required = false) String description,
+            InputStream body) throws IOException {
+
+        GraphSyncResult result = docketGraphService.importVersionArchive(docketUuid, body, description);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
     /**
      * Updates an existing version's graph (synchronizes with application model)
      * PUT /api/dockets/{docketUuid}/graph/versions/{versionNumber}
@@ -59,6 +197,23 @@ public class DocketGraphController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Applies a delta to an existing version without resending or reloading the full graph
+     * PATCH /api/dockets/{docketUuid}/graph/versions/{versionNumber}
+     * Body: { "addCases": [...], "removeCases": ["uuid", ...], "renameCases": [...],
+     *         "addRelationships": [...], "removeRelationships": [...] }
+     */
+    @PatchMapping("/versions/{versionNumber}")
+    public ResponseEntity<GraphSyncResult> applyVersionDelta(
+            @PathVariable String docketUuid,
+            @PathVariable Integer versionNumber,
+            @RequestBody GraphDeltaRequest request) {
+
+        GraphSyncResult result = docketGraphService.applyVersionDelta(
+                docketUuid, versionNumber, request);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * Get statistics about a version
      * GET /api/dockets/{docketUuid}/graph/versions/{versionNumber}/statistics
@@ -86,4 +241,45 @@ public class DocketGraphController {
                 docketUuid, version1, version2);
         return ResponseEntity.ok(comparison);
     }
+
+    /**
+     * Full structural diff between two versions
+     * GET /api/dockets/{docketUuid}/graph/compare/full?version1=1&version2=2
+     */
+    @GetMapping("/compare/full")
+    public ResponseEntity<VersionDiffDTO> compareVersionsFull(
+            @PathVariable String docketUuid,
+            @RequestParam Integer version1,
+            @RequestParam Integer version2) {
+
+        VersionDiffDTO diff = docketGraphService.compareVersionsFull(docketUuid, version1, version2);
+        return ResponseEntity.ok(diff);
+    }
+
+    private ResponseEntity<byte[]> serializedGraphResponse(
+            SerializedGraph graph,
+            String ifNoneMatch,
+            String acceptEncoding,
+            ResponseEntity.BodyBuilder response) {
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        response.eTag(gzip ? graph.getGzipETag() : graph.getETag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        if (graph.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .headers(response.build().getHeaders())
+                    .build();
+        }
+        if (gzip) {
+            return response
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(graph.getGzipped());
+        }
+        return response
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(graph.getUncompressed());
+    }
 }
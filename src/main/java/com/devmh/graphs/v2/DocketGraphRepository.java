@@ -1,5 +1,8 @@
 package com.devmh.graphs.v2;
 
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.neo4j.core.Neo4jClient;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,12 +13,38 @@ import java.util.stream.Collectors;
 @Repository
 public class DocketGraphRepository {
 
+    private static final Logger logger = LoggerFactory.getLogger(DocketGraphRepository.class);
+
     private final Neo4jClient neo4jClient;
 
     public DocketGraphRepository(Neo4jClient neo4jClient) {
         this.neo4jClient = neo4jClient;
     }
 
+    /**
+     * Copies version and snapshot uuid onto CONTAINS_CASE links written before they carried them,
+     * so the page queries find every link on the contains_case_page index (once, in chunks)
+     */
+    @PostConstruct
+    public void backfillContainsCaseKeys() {
+        String query = """
+            MATCH (dv:DocketVersion)-[cc:CONTAINS_CASE]->(cs:CaseSnapshot)
+            WHERE cc.snapshotUuid IS NULL
+            CALL {
+                WITH dv, cc, cs
+                SET cc.versionUuid = dv.uuid, cc.snapshotUuid = cs.uuid
+            } IN TRANSACTIONS OF 10000 ROWS
+            """;
+
+        int links = neo4jClient.query(query)
+                .run()
+                .counters()
+                .propertiesSet() / 2;
+        if (links > 0) {
+            logger.info("Backfilled page keys of {} CONTAINS_CASE links", links);
+        }
+    }
+
     /**
      * Efficiently retrieves the complete graph for a specific docket version
      * Returns all case snapshots and their relationships
@@ -34,7 +63,7 @@ public class DocketGraphRepository {
                    collect(DISTINCT {
                        snapshotUuid: cs.uuid,
                        caseUuid: c.uuid,
-                       caseName: c.name
+                       caseName: coalesce(cs.name, c.name)
                    }) as cases,
                    collect(DISTINCT {
                        fromSnapshotUuid: cs.uuid,
@@ -55,56 +84,128 @@ public class DocketGraphRepository {
     }
 
     /**
-     * Get statistics about a docket version
+     * Returns one page of the version's cases ordered by snapshot uuid
+     * Keyset pagination: the cursor is the last snapshot uuid of the previous page
+     * Pages seek the contains_case_page index on (versionUuid, snapshotUuid) from the cursor, which only
+     * holds the version's own links in snapshot uuid order, so a page reads about limit entries
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> getDocketVersionStatistics(String docketUuid, Integer versionNumber) {
+    public GraphPage<CaseNode> getDocketVersionCasePage(
+            String docketUuid,
+            Integer versionNumber,
+            String afterSnapshotUuid,
+            int limit) {
+
         String query = """
             MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
-            OPTIONAL MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)
-            OPTIONAL MATCH (cs)-[r:RELATED_TO_CASE]->(:CaseSnapshot)
-            RETURN count(DISTINCT cs) as caseCount,
-                   count(r) as relationshipCount
+            WITH dv.uuid as versionUuid
+            MATCH (:DocketVersion)-[cc:CONTAINS_CASE]->(cs:CaseSnapshot)
+            WHERE cc.versionUuid = versionUuid AND cc.snapshotUuid > $after
+            WITH cs, cc
+            ORDER BY cc.snapshotUuid
+            LIMIT $limit
+            MATCH (cs)-[:SNAPSHOT_OF]->(c:Case)
+            RETURN cs.uuid as snapshotUuid, c.uuid as caseUuid, coalesce(cs.name, c.name) as caseName
+            ORDER BY snapshotUuid
             """;
 
-        return neo4jClient.query(query)
+        List<CaseNode> cases = new ArrayList<>(neo4jClient.query(query)
                 .bind(docketUuid).to("docketUuid")
                 .bind(versionNumber).to("versionNumber")
-                .fetch()
-                .one()
-                .orElse(Map.of("caseCount", 0L, "relationshipCount", 0L));
+                .bind(afterSnapshotUuid != null ? afterSnapshotUuid : "").to("after")
+                .bind(limit + 1).to("limit")
+                .fetchAs(CaseNode.class)
+                .mappedBy((typeSystem, record) -> {
+                    CaseNode node = new CaseNode(record.get("caseUuid").asString(), record.get("caseName").asString(null));
+                    node.setSnapshotUuid(record.get("snapshotUuid").asString());
+                    return node;
+                })
+                .all());
+
+        String nextCursor = null;
+        if (cases.size() > limit) {
+            cases = cases.subList(0, limit);
+            nextCursor = cases.get(limit - 1).getSnapshotUuid();
+        }
+        return new GraphPage<>(cases, nextCursor);
     }
 
     /**
-     * Compare two versions of a docket to see what changed
+     * Returns one page of the version's relationships ordered by (from snapshot uuid, to snapshot uuid)
+     * Keyset pagination: the cursor is "fromSnapshotUuid:toSnapshotUuid" of the last relationship of the previous page
+     * Source snapshots are sought on the contains_case_page index from the cursor, as for case pages
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> compareDocketVersions(
+    public GraphPage<CaseRelationship> getDocketVersionRelationshipPage(
             String docketUuid,
-            Integer version1,
-            Integer version2) {
+            Integer versionNumber,
+            String afterFromSnapshotUuid,
+            String afterToSnapshotUuid,
+            int limit) {
 
         String query = """
-            MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv1:DocketVersion {versionNumber: $version1})
-            MATCH (d)-[:HAS_VERSION]->(dv2:DocketVersion {versionNumber: $version2})
-            
-            OPTIONAL MATCH (dv1)-[:CONTAINS_CASE]->(cs1:CaseSnapshot)-[:SNAPSHOT_OF]->(c1:Case)
-            OPTIONAL MATCH (dv2)-[:CONTAINS_CASE]->(cs2:CaseSnapshot)-[:SNAPSHOT_OF]->(c2:Case)
-            
-            WITH collect(DISTINCT c1.uuid) as cases1, collect(DISTINCT c2.uuid) as cases2
-            
-            RETURN [uuid IN cases1 WHERE NOT uuid IN cases2] as removedCases,
-                   [uuid IN cases2 WHERE NOT uuid IN cases1] as addedCases,
-                   [uuid IN cases1 WHERE uuid IN cases2] as unchangedCases
+            MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
+            WITH dv.uuid as versionUuid
+            MATCH (:DocketVersion)-[cc:CONTAINS_CASE]->(cs:CaseSnapshot)
+            WHERE cc.versionUuid = versionUuid AND cc.snapshotUuid >= $afterFrom
+            MATCH (cs)-[:RELATED_TO_CASE]->(relatedCs:CaseSnapshot)
+            WHERE cc.snapshotUuid > $afterFrom OR relatedCs.uuid > $afterTo
+            WITH cs, cc, relatedCs
+            ORDER BY cc.snapshotUuid, relatedCs.uuid
+            LIMIT $limit
+            MATCH (cs)-[:SNAPSHOT_OF]->(c:Case)
+            MATCH (relatedCs)-[:SNAPSHOT_OF]->(relatedC:Case)
+            RETURN cs.uuid as fromSnapshotUuid, c.uuid as fromCaseUuid,
+                   relatedCs.uuid as toSnapshotUuid, relatedC.uuid as toCaseUuid
+            ORDER BY fromSnapshotUuid, toSnapshotUuid
+            """;
+
+        List<Map<String, Object>> rows = new ArrayList<>(neo4jClient.query(query)
+                .bind(docketUuid).to("docketUuid")
+                .bind(versionNumber).to("versionNumber")
+                .bind(afterFromSnapshotUuid != null ? afterFromSnapshotUuid : "").to("afterFrom")
+                .bind(afterToSnapshotUuid != null ? afterToSnapshotUuid : "").to("afterTo")
+                .bind(limit + 1).to("limit")
+                .fetch()
+                .all());
+
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            Map<String, Object> last = rows.get(limit - 1);
+            nextCursor = last.get("fromSnapshotUuid") + ":" + last.get("toSnapshotUuid");
+        }
+
+        List<CaseRelationship> relationships = rows.stream()
+                .map(r -> {
+                    CaseRelationship rel = new CaseRelationship();
+                    rel.setFromCaseUuid((String) r.get("fromCaseUuid"));
+                    rel.setToCaseUuid((String) r.get("toCaseUuid"));
+                    return rel;
+                })
+                .collect(Collectors.toList());
+        return new GraphPage<>(relationships, nextCursor);
+    }
+
+    /**
+     * Get statistics about a docket version
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getDocketVersionStatistics(String docketUuid, Integer versionNumber) {
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
+            OPTIONAL MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)
+            OPTIONAL MATCH (cs)-[r:RELATED_TO_CASE]->(:CaseSnapshot)
+            RETURN count(DISTINCT cs) as caseCount,
+                   count(r) as relationshipCount
             """;
 
         return neo4jClient.query(query)
                 .bind(docketUuid).to("docketUuid")
-                .bind(version1).to("version1")
-                .bind(version2).to("version2")
+                .bind(versionNumber).to("versionNumber")
                 .fetch()
                 .one()
-                .orElse(Collections.emptyMap());
+                .orElse(Map.of("caseCount", 0L, "relationshipCount", 0L));
     }
 
     private DocketGraphDTO buildGraphDTO(Map<String, Object> result) {
@@ -3,40 +3,113 @@ package com.devmh.graphs.v2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Transactional
 public class DocketGraphService {
 
     private static final Logger logger = LoggerFactory.getLogger(DocketGraphService.class);
+    static final int MAX_PAGE_SIZE = 10_000;
 
     private final DocketRepository docketRepository;
     private final DocketVersionRepository docketVersionRepository;
     private final DocketGraphRepository docketGraphRepository;
     private final GraphSyncService graphSyncService;
+    private final GraphStreamReader graphStreamReader;
+    private final DocketGraphCache docketGraphCache;
+    private final VersionDiffEngine versionDiffEngine;
+    private final SyncMetrics syncMetrics;
+    private final DocketWriteLanes docketWriteLanes;
+    private final DocketTimeline docketTimeline;
+    private final TransactionTemplate readOnlyTransaction;
 
     public DocketGraphService(
             DocketRepository docketRepository,
             DocketVersionRepository docketVersionRepository,
             DocketGraphRepository docketGraphRepository,
-            GraphSyncService graphSyncService) {
+            GraphSyncService graphSyncService,
+            GraphStreamReader graphStreamReader,
+            DocketGraphCache docketGraphCache,
+            VersionDiffEngine versionDiffEngine,
+            SyncMetrics syncMetrics,
+            DocketWriteLanes docketWriteLanes,
+            DocketTimeline docketTimeline,
+            PlatformTransactionManager transactionManager) {
         this.docketRepository = docketRepository;
         this.docketVersionRepository = docketVersionRepository;
         this.docketGraphRepository = docketGraphRepository;
         this.graphSyncService = graphSyncService;
+        this.graphStreamReader = graphStreamReader;
+        this.docketGraphCache = docketGraphCache;
+        this.versionDiffEngine = versionDiffEngine;
+        this.syncMetrics = syncMetrics;
+        this.docketWriteLanes = docketWriteLanes;
+        this.docketTimeline = docketTimeline;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
      * Retrieves the complete graph for a specific docket version
      * This is optimized for read performance using a single Cypher query
+     * Graphs are served from DocketGraphCache until a write to the version commits
      */
     @Transactional(readOnly = true)
     public DocketGraphDTO getDocketVersionGraph(String docketUuid, Integer versionNumber) {
         logger.info("Retrieving graph for docket {} version {}", docketUuid, versionNumber);
 
+        long startTime = System.currentTimeMillis();
+        DocketGraphDTO graph = docketGraphCache.get(docketUuid, versionNumber,
+                () -> loadDocketVersionGraph(docketUuid, versionNumber));
+        long duration = System.currentTimeMillis() - startTime;
+
+        logger.info("Retrieved graph with {} cases and {} relationships in {}ms",
+                graph.getCases().size(),
+                graph.getRelationships().size(),
+                duration);
+
+        return graph;
+    }
+
+    /**
+     * Retrieves the serialized graph (gzipped JSON and ETag) for a specific docket version
+     * Runs outside a transaction so that a cache hit does not open a Neo4j session at all
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SerializedGraph getSerializedDocketVersionGraph(String docketUuid, Integer versionNumber) {
+        return docketGraphCache.getSerialized(docketUuid, versionNumber,
+                () -> readOnlyTransaction.execute(status -> loadDocketVersionGraph(docketUuid, versionNumber)));
+    }
+
+    /**
+     * Number of the version that was the docket's latest at the given time
+     * Served from DocketTimeline; only the first lookup of a docket reads its versions from Neo4j
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int resolveVersionAsOf(String docketUuid, Instant asOf) {
+        return docketTimeline.resolve(docketUuid, asOf)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Docket " + docketUuid + " has no version as of " + asOf));
+    }
+
+    private DocketGraphDTO loadDocketVersionGraph(String docketUuid, Integer versionNumber) {
         // Verify docket exists
         if (!docketRepository.existsById(docketUuid)) {
             throw new ResourceNotFoundException("Docket not found with uuid: " + docketUuid);
@@ -47,58 +120,268 @@ public class DocketGraphService {
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Version " + versionNumber + " not found for docket " + docketUuid));
 
-        long startTime = System.currentTimeMillis();
-        DocketGraphDTO graph = docketGraphRepository.getDocketVersionGraph(docketUuid, versionNumber);
-        long duration = System.currentTimeMillis() - startTime;
+        return docketGraphRepository.getDocketVersionGraph(docketUuid, versionNumber);
+    }
 
-        logger.info("Retrieved graph with {} cases and {} relationships in {}ms",
-                graph.getCases().size(),
-                graph.getRelationships().size(),
-                duration);
+    /**
+     * Retrieves one page of a version's cases (keyset pagination over snapshot uuids)
+     */
+    @Transactional(readOnly = true)
+    public GraphPage<CaseNode> getDocketVersionCasePage(
+            String docketUuid,
+            Integer versionNumber,
+            String after,
+            int limit) {
 
-        return graph;
+        validatePageLimit(limit);
+        verifyVersionExists(docketUuid, versionNumber);
+
+        return docketGraphRepository.getDocketVersionCasePage(docketUuid, versionNumber, after, limit);
+    }
+
+    /**
+     * Retrieves one page of a version's relationships (keyset pagination over snapshot uuid pairs)
+     */
+    @Transactional(readOnly = true)
+    public GraphPage<CaseRelationship> getDocketVersionRelationshipPage(
+            String docketUuid,
+            Integer versionNumber,
+            String after,
+            int limit) {
+
+        validatePageLimit(limit);
+        String afterFrom = null;
+        String afterTo = null;
+        if (after != null) {
+            int separator = after.indexOf(':');
+            if (separator <= 0 || separator == after.length() - 1) {
+                throw new InvalidGraphRequestException("Invalid relationship cursor: " + after);
+            }
+            afterFrom = after.substring(0, separator);
+            afterTo = after.substring(separator + 1);
+        }
+        verifyVersionExists(docketUuid, versionNumber);
+
+        return docketGraphRepository.getDocketVersionRelationshipPage(
+                docketUuid, versionNumber, afterFrom, afterTo, limit);
+    }
+
+    private void validatePageLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidGraphRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private void verifyVersionExists(String docketUuid, Integer versionNumber) {
+        docketVersionRepository.findByDocketUuidAndVersionNumber(docketUuid, versionNumber)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Version " + versionNumber + " not found for docket " + docketUuid));
     }
 
     /**
      * Replaces the entire graph for a docket version using efficient synchronization
      * This creates a new version and syncs the application model with Neo4j
+     * With copyOnWrite the new version shares unchanged case snapshots with its parent version
+     * With parallel the new version is written over several sessions and published once complete
+     * Runs on the docket's write lane, so a copy-on-write never reads a parent version that is being updated
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public GraphSyncResult replaceGraph(String docketUuid, ReplaceGraphRequest request) {
+        return replaceGraph(docketUuid, request, null);
+    }
+
+    /**
+     * Same as {@link #replaceGraph(String, ReplaceGraphRequest)}; the monitor (may be null) can follow
+     * the progress of the write and cancel it (see GraphJobService)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public GraphSyncResult replaceGraph(String docketUuid, ReplaceGraphRequest request, SyncMonitor monitor) {
         logger.info("Replacing graph for docket {}", docketUuid);
 
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         // Verify docket exists
         if (!docketRepository.existsById(docketUuid)) {
             throw new ResourceNotFoundException("Docket not found with uuid: " + docketUuid);
         }
 
-        // Get next version number
-        Integer maxVersion = docketVersionRepository.findMaxVersionNumber(docketUuid).orElse(0);
-        Integer newVersionNumber = maxVersion + 1;
+        // A copy-on-write of the latest version holds the whole docket, as the parent is only known on the lane
+        Integer laneVersion = request.isCopyOnWrite() ? request.getParentVersionNumber() : null;
+        GraphSyncResult result = docketWriteLanes.write(docketUuid, laneVersion,
+                () -> writeNewVersion(docketUuid, request, monitor));
+
+        result.setDurationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+        logger.info("Graph replaced for docket {} version {} in {}ms: {} cases (+{} -{} ~{}), {} relationships (+{} -{})",
+                docketUuid, result.getVersionNumber(), result.getDurationMs(),
+                request.getCases().size(), result.getCasesAdded(), result.getCasesRemoved(), result.getCasesUpdated(),
+                request.getRelationships().size(), result.getRelationshipsAdded(), result.getRelationshipsRemoved());
 
-        // Use efficient sync service to replace the graph
-        GraphSyncResult result = graphSyncService.syncGraph(
-                docketUuid,
-                newVersionNumber,
-                request.getCases(),
-                request.getRelationships()
+        return result;
+    }
+
+    private GraphSyncResult writeNewVersion(String docketUuid, ReplaceGraphRequest request, SyncMonitor monitor) {
+        // The new version number is allocated by the sync service, in the transaction that writes it
+        Integer parentVersionNumber = !request.isCopyOnWrite() ? null
+                : request.getParentVersionNumber() != null
+                ? request.getParentVersionNumber()
+                : docketVersionRepository.findLatestVersionNumber(docketUuid).orElse(null);
+
+        if (parentVersionNumber != null) {
+            // Share unchanged snapshots with the parent version, write only the delta
+            docketVersionRepository.findByDocketUuidAndVersionNumber(docketUuid, parentVersionNumber)
+                    .orElseThrow(() -> new ResourceNotFoundException(
+                            "Version " + parentVersionNumber + " not found for docket " + docketUuid));
+
+            return graphSyncService.forkGraph(
+                    docketUuid,
+                    parentVersionNumber,
+                    request.getDescription(),
+                    request.getCases(),
+                    request.getRelationships(),
+                    monitor
+            );
+        } else if (request.isParallel()) {
+            // Nothing to diff against in a new version: partition the writes over several sessions
+            return graphSyncService.syncGraphParallel(
+                    docketUuid,
+                    request.getDescription(),
+                    request.getCases(),
+                    request.getRelationships(),
+                    monitor
+            );
+        } else {
+            // Use efficient sync service to replace the graph
+            return graphSyncService.createGraph(
+                    docketUuid,
+                    request.getDescription(),
+                    request.getCases(),
+                    request.getRelationships(),
+                    monitor
+            );
+        }
+    }
+
+    /**
+     * Creates a new version from an NDJSON stream of cases and relationships
+     * Batches are written as they are parsed, so heap use does not depend on the payload size
+     */
+    public GraphSyncResult replaceGraphFromStream(String docketUuid, InputStream body) throws IOException {
+        logger.info("Replacing graph for docket {} from stream", docketUuid);
+
+        SyncContext context = syncMetrics.start(SyncMetrics.STREAM);
+
+        // Verify docket exists
+        if (!docketRepository.existsById(docketUuid)) {
+            throw new ResourceNotFoundException("Docket not found with uuid: " + docketUuid);
+        }
+
+        DocketVersionAllocator.Allocation version = graphSyncService.createEmptyVersion(docketUuid, null, context);
+        String versionUuid = version.versionUuid();
+        Integer newVersionNumber = version.versionNumber();
+
+        // Relationships whose cases are not in the stream are skipped, so only created ones are counted
+        int[] relationshipsAdded = new int[1];
+        GraphStreamReader.StreamCounts counts = graphStreamReader.read(
+                body,
+                GraphSyncService.BATCH_SIZE,
+                cases -> graphSyncService.appendCases(versionUuid, cases, context),
+                relationships -> relationshipsAdded[0] += graphSyncService.appendRelationships(versionUuid, relationships, context)
         );
 
+        GraphSyncResult result = new GraphSyncResult();
         result.setVersionNumber(newVersionNumber);
-        result.setDurationMs(System.currentTimeMillis() - startTime);
+        result.setCasesAdded(counts.getCases());
+        result.setRelationshipsAdded(relationshipsAdded[0]);
+        result.setSnapshotsCreated(counts.getCases());
+        context.finish(result);
 
-        logger.info("Graph replaced for docket {} version {} in {}ms: {} cases (+{} -{} ~{}), {} relationships (+{} -{})",
+        logger.info("Graph streamed into docket {} version {} in {}ms: {} cases, {} of {} relationships",
                 docketUuid, newVersionNumber, result.getDurationMs(),
-                request.getCases().size(), result.getCasesAdded(), result.getCasesRemoved(), result.getCasesUpdated(),
-                request.getRelationships().size(), result.getRelationshipsAdded(), result.getRelationshipsRemoved());
+                counts.getCases(), relationshipsAdded[0], counts.getRelationships());
+
+        return result;
+    }
+
+    /**
+     * Creates a new version from an uploaded VersionArchive, spooled to a temporary file so it can be mapped
+     */
+    public GraphSyncResult importVersionArchive(String docketUuid, InputStream body, String description)
+            throws IOException {
+        Path archiveFile = Files.createTempFile("docket-version-", ".dkgv");
+        try {
+            Files.copy(body, archiveFile, StandardCopyOption.REPLACE_EXISTING);
+            return importVersionArchive(docketUuid, archiveFile, description);
+        } finally {
+            Files.deleteIfExists(archiveFile);
+        }
+    }
+
+    /**
+     * Creates a new version from a VersionArchive file
+     * Rows are decoded from the mapped file straight into batch parameters, without building CaseNodes
+     * or CaseRelationships; the new version takes the archived description unless one is given
+     */
+    public GraphSyncResult importVersionArchive(String docketUuid, Path archiveFile, String description)
+            throws IOException {
+        SyncContext context = syncMetrics.start(SyncMetrics.IMPORT);
+
+        if (!docketRepository.existsById(docketUuid)) {
+            throw new ResourceNotFoundException("Docket not found with uuid: " + docketUuid);
+        }
+
+        VersionArchive archive = VersionArchive.open(archiveFile);
+        logger.info("Importing {} cases and {} relationships of docket {} version {} into docket {}",
+                archive.caseCount(), archive.relationshipCount(),
+                archive.sourceDocketUuid(), archive.sourceVersionNumber(), docketUuid);
+
+        DocketVersionAllocator.Allocation version = graphSyncService.createEmptyVersion(
+                docketUuid, description != null ? description : archive.description(), context);
+        String versionUuid = version.versionUuid();
+
+        int batchSize = GraphSyncService.BATCH_SIZE;
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < archive.caseCount(); i++) {
+            Map<String, Object> row = new HashMap<>(4);
+            row.put("uuid", archive.caseUuid(i));
+            row.put("name", archive.caseName(i));
+            batch.add(row);
+            if (batch.size() == batchSize || i == archive.caseCount() - 1) {
+                graphSyncService.appendCaseData(versionUuid, batch, context);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        int relationshipsAdded = 0;
+        for (int i = 0; i < archive.relationshipCount(); i++) {
+            batch.add(Map.of(
+                    "fromUuid", archive.caseUuid(archive.relationshipFrom(i)),
+                    "toUuid", archive.caseUuid(archive.relationshipTo(i))));
+            if (batch.size() == batchSize || i == archive.relationshipCount() - 1) {
+                relationshipsAdded += graphSyncService.appendRelationshipData(versionUuid, batch, context);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        GraphSyncResult result = new GraphSyncResult();
+        result.setVersionNumber(version.versionNumber());
+        result.setCasesAdded(archive.caseCount());
+        result.setRelationshipsAdded(relationshipsAdded);
+        result.setSnapshotsCreated(archive.caseCount());
+        context.finish(result);
+
+        logger.info("Archive imported into docket {} version {} in {}ms",
+                docketUuid, version.versionNumber(), result.getDurationMs());
 
         return result;
     }
 
     /**
      * Updates an existing version's graph (synchronizes application model with Neo4j)
+     * Runs on the docket's write lane; a newer update of the same version that arrives while this one
+     * is still queued replaces it, and both callers get the result of the one sync (see DocketWriteLanes)
+     * No transaction is held while waiting, the sync opens its own on the lane
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public GraphSyncResult updateVersionGraph(
             String docketUuid,
             Integer versionNumber,
@@ -106,30 +389,46 @@ public class DocketGraphService {
 
         logger.info("Updating graph for docket {} version {}", docketUuid, versionNumber);
 
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         // Verify version exists
         docketVersionRepository.findByDocketUuidAndVersionNumber(docketUuid, versionNumber)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Version " + versionNumber + " not found for docket " + docketUuid));
 
-        // Use efficient sync service
-        GraphSyncResult result = graphSyncService.syncGraph(
-                docketUuid,
-                versionNumber,
-                request.getCases(),
-                request.getRelationships()
-        );
-
-        result.setVersionNumber(versionNumber);
-        result.setDurationMs(System.currentTimeMillis() - startTime);
+        // Use efficient sync service, serialized with the docket's other writes
+        GraphSyncResult result = docketWriteLanes.replace(docketUuid, versionNumber, request,
+                latest -> graphSyncService.syncGraph(
+                        docketUuid,
+                        versionNumber,
+                        latest.getCases(),
+                        latest.getRelationships()
+                ));
 
-        logger.info("Graph updated for docket {} version {} in {}ms",
-                docketUuid, versionNumber, result.getDurationMs());
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        logger.info("Graph updated for docket {} version {} in {}ms ({} queued updates coalesced)",
+                docketUuid, versionNumber, durationMs, result.getCoalescedRequests());
 
         return result;
     }
 
+    /**
+     * Applies explicit case and relationship operations to an existing version
+     * Unlike updateVersionGraph the current graph is neither loaded nor diffed
+     * Runs on the docket's write lane after everything queued before it, never coalesced
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public GraphSyncResult applyVersionDelta(
+            String docketUuid,
+            Integer versionNumber,
+            GraphDeltaRequest request) {
+
+        logger.info("Applying delta to docket {} version {}", docketUuid, versionNumber);
+
+        return docketWriteLanes.write(docketUuid, versionNumber,
+                () -> graphSyncService.applyDelta(docketUuid, versionNumber, request));
+    }
+
     @Transactional(readOnly = true)
     public Map<String, Object> getVersionStatistics(String docketUuid, Integer versionNumber) {
         // Verify version exists
@@ -140,21 +439,48 @@ public class DocketGraphService {
         return docketGraphRepository.getDocketVersionStatistics(docketUuid, versionNumber);
     }
 
+    /**
+     * Compares the case uuids of two versions (cases present in both count as unchanged, renamed or not)
+     */
     @Transactional(readOnly = true)
     public Map<String, Object> compareVersions(
             String docketUuid,
             Integer version1,
             Integer version2) {
 
-        // Verify both versions exist
-        docketVersionRepository.findByDocketUuidAndVersionNumber(docketUuid, version1)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Version " + version1 + " not found for docket " + docketUuid));
+        verifyVersionExists(docketUuid, version1);
+        verifyVersionExists(docketUuid, version2);
 
-        docketVersionRepository.findByDocketUuidAndVersionNumber(docketUuid, version2)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Version " + version2 + " not found for docket " + docketUuid));
+        List<String> unchangedCases = new ArrayList<>();
+        VersionDiffDTO diff = versionDiffEngine.compare(docketUuid, version1, version2, unchangedCases::add);
+        diff.getRenamedCases().forEach(r -> unchangedCases.add(r.getUuid()));
+
+        Map<String, Object> comparison = new LinkedHashMap<>();
+        comparison.put("removedCases", diff.getRemovedCases().stream().map(CaseNode::getUuid).toList());
+        comparison.put("addedCases", diff.getAddedCases().stream().map(CaseNode::getUuid).toList());
+        comparison.put("unchangedCases", unchangedCases);
+        return comparison;
+    }
+
+    /**
+     * Full structural diff of two versions: added, removed and renamed cases, added and removed relationships
+     */
+    @Transactional(readOnly = true)
+    public VersionDiffDTO compareVersionsFull(
+            String docketUuid,
+            Integer version1,
+            Integer version2) {
+
+        verifyVersionExists(docketUuid, version1);
+        verifyVersionExists(docketUuid, version2);
+
+        VersionDiffDTO diff = versionDiffEngine.compare(docketUuid, version1, version2, null);
+
+        logger.info("Compared docket {} version {} with {} in {}ms: +{} -{} ~{} cases, +{} -{} relationships",
+                docketUuid, version1, version2, diff.getDurationMs(),
+                diff.getAddedCases().size(), diff.getRemovedCases().size(), diff.getRenamedCases().size(),
+                diff.getAddedRelationships().size(), diff.getRemovedRelationships().size());
 
-        return docketGraphRepository.compareDocketVersions(docketUuid, version1, version2);
+        return diff;
     }
 }
@@ -2,6 +2,7 @@ package com.devmh.graphs.v2;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,29 +18,33 @@ public class DocketService {
     private final DocketRepository docketRepository;
     private final DocketVersionRepository docketVersionRepository;
     private final DocketGraphRepository docketGraphRepository;
+    private final DocketVersionAllocator versionAllocator;
+    private final ApplicationEventPublisher eventPublisher;
 
     public DocketService(
             DocketRepository docketRepository,
             DocketVersionRepository docketVersionRepository,
-            DocketGraphRepository docketGraphRepository) {
+            DocketGraphRepository docketGraphRepository,
+            DocketVersionAllocator versionAllocator,
+            ApplicationEventPublisher eventPublisher) {
         this.docketRepository = docketRepository;
         this.docketVersionRepository = docketVersionRepository;
         this.docketGraphRepository = docketGraphRepository;
+        this.versionAllocator = versionAllocator;
+        this.eventPublisher = eventPublisher;
     }
 
     public DocketDTO createDocket(CreateDocketRequest request) {
         Docket docket = new Docket(request.getName());
         Docket saved = docketRepository.save(docket);
 
-        // Create initial version (version 1)
-        DocketVersion initialVersion = new DocketVersion(
-                1,
+        // Create initial version (version 1) through the allocator, which also starts the counter
+        versionAllocator.allocate(
+                saved.getUuid(),
                 request.getInitialVersionDescription() != null
                         ? request.getInitialVersionDescription()
                         : "Initial version"
         );
-        initialVersion.setDocket(saved);
-        docketVersionRepository.save(initialVersion);
 
         return convertToDTO(saved);
     }
@@ -79,6 +84,7 @@ public class DocketService {
             throw new ResourceNotFoundException("Docket not found with uuid: " + uuid);
         }
         docketRepository.deleteById(uuid);
+        eventPublisher.publishEvent(DocketGraphChangedEvent.docket(uuid));
     }
 
     private DocketDTO convertToDTO(Docket docket) {
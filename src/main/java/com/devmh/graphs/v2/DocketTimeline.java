@@ -0,0 +1,169 @@
+package com.devmh.graphs.v2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index from points in time to docket versions, for as-of reads
+ * Each docket's timeline is loaded with one query on first use and then kept current from
+ * DocketVersionsChangedEvent after commit; a deleted docket drops its timeline.
+ * A timeline holds the creation times in ascending order next to the highest version number
+ * created up to each of them, so resolving a time is a binary search over a long[].
+ */
+@Component
+public class DocketTimeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocketTimeline.class);
+
+    private final Neo4jClient neo4jClient;
+    private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+
+    public DocketTimeline(Neo4jClient neo4jClient) {
+        this.neo4jClient = neo4jClient;
+    }
+
+    /**
+     * The version that was the docket's latest at asOf, empty if the docket had no version yet
+     * Versions deleted by retention are skipped, the newest surviving version before them is returned
+     */
+    public Optional<Integer> resolve(String docketUuid, Instant asOf) {
+        Timeline timeline = timelines.computeIfAbsent(docketUuid, this::load);
+        int versionNumber = timeline.latestAt(asOf.toEpochMilli());
+        return versionNumber > 0 ? Optional.of(versionNumber) : Optional.empty();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVersionsChanged(DocketVersionsChangedEvent event) {
+        timelines.computeIfPresent(event.docketUuid(), (key, timeline) -> event.createdAt() != null
+                ? timeline.with(event.versionNumber(), event.createdAt().toEpochMilli())
+                : timeline.without(event.versionNumber()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGraphChanged(DocketGraphChangedEvent event) {
+        if (event.docketUuid() != null && event.versionNumber() == null) {
+            timelines.remove(event.docketUuid());
+        }
+    }
+
+    private Timeline load(String docketUuid) {
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})
+            OPTIONAL MATCH (d)-[:HAS_VERSION]->(dv:DocketVersion)
+            WHERE dv.createdAt IS NOT NULL
+            WITH d, dv, datetime(dv.createdAt).epochMillis as createdAt
+            ORDER BY createdAt, dv.versionNumber
+            RETURN d.uuid as docketUuid, collect(createdAt) as createdAt, collect(dv.versionNumber) as versionNumbers
+            """;
+
+        Timeline timeline = neo4jClient.query(query)
+                .bind(docketUuid).to("docketUuid")
+                .fetchAs(Timeline.class)
+                .mappedBy((typeSystem, record) -> new Timeline(
+                        record.get("createdAt").asList(value -> value.asLong()).stream()
+                                .mapToLong(Long::longValue).toArray(),
+                        record.get("versionNumbers").asList(value -> value.asInt()).stream()
+                                .mapToInt(Integer::intValue).toArray()))
+                .one()
+                .orElseThrow(() -> new ResourceNotFoundException("Docket not found with uuid: " + docketUuid));
+
+        logger.debug("Loaded timeline of docket {} with {} versions", docketUuid, timeline.size());
+        return timeline;
+    }
+
+    /**
+     * Immutable, sorted by (createdAt, versionNumber)
+     */
+    static final class Timeline {
+
+        static final Timeline EMPTY = new Timeline(new long[0], new int[0]);
+
+        private final long[] createdAt;
+        private final int[] versionNumbers;
+        /** Highest version number among entries 0..i */
+        private final int[] latestUpTo;
+
+        /** Arrays must already be sorted by (createdAt, versionNumber) */
+        Timeline(long[] createdAt, int[] versionNumbers) {
+            this.createdAt = createdAt;
+            this.versionNumbers = versionNumbers;
+            this.latestUpTo = new int[versionNumbers.length];
+            int latest = 0;
+            for (int i = 0; i < versionNumbers.length; i++) {
+                latest = Math.max(latest, versionNumbers[i]);
+                latestUpTo[i] = latest;
+            }
+        }
+
+        int size() {
+            return versionNumbers.length;
+        }
+
+        /**
+         * Highest version number created at or before the time, 0 if there is none
+         */
+        int latestAt(long epochMillis) {
+            int low = 0;
+            int high = createdAt.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (createdAt[mid] <= epochMillis) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found < 0 ? 0 : latestUpTo[found];
+        }
+
+        Timeline with(int versionNumber, long epochMillis) {
+            Timeline base = without(versionNumber);
+            int position = 0;
+            while (position < base.createdAt.length
+                    && (base.createdAt[position] < epochMillis
+                    || base.createdAt[position] == epochMillis && base.versionNumbers[position] < versionNumber)) {
+                position++;
+            }
+            long[] times = new long[base.createdAt.length + 1];
+            int[] numbers = new int[base.versionNumbers.length + 1];
+            System.arraycopy(base.createdAt, 0, times, 0, position);
+            System.arraycopy(base.versionNumbers, 0, numbers, 0, position);
+            times[position] = epochMillis;
+            numbers[position] = versionNumber;
+            System.arraycopy(base.createdAt, position, times, position + 1, base.createdAt.length - position);
+            System.arraycopy(base.versionNumbers, position, numbers, position + 1, base.versionNumbers.length - position);
+            return new Timeline(times, numbers);
+        }
+
+        Timeline without(int versionNumber) {
+            int index = -1;
+            for (int i = 0; i < versionNumbers.length; i++) {
+                if (versionNumbers[i] == versionNumber) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return this;
+            }
+            long[] times = new long[createdAt.length - 1];
+            int[] numbers = new int[versionNumbers.length - 1];
+            System.arraycopy(createdAt, 0, times, 0, index);
+            System.arraycopy(versionNumbers, 0, numbers, 0, index);
+            System.arraycopy(createdAt, index + 1, times, index, times.length - index);
+            System.arraycopy(versionNumbers, index + 1, numbers, index, numbers.length - index);
+            return new Timeline(times, numbers);
+        }
+    }
+}
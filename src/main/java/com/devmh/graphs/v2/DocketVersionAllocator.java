@@ -0,0 +1,167 @@
+package com.devmh.graphs.v2;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+/**
+ * Allocates version numbers from a counter on the Docket node and maintains its LATEST_VERSION pointer.
+ * The counter is read only after the docket's write lock is taken (SET d._lock), so concurrent
+ * writers are serialized on the docket for the rest of their transaction and never get the same number.
+ * The version node and the pointer are written in the same transaction as the increment.
+ * Numbers of staged versions that are discarded again are not reused.
+ * Versions becoming visible on their docket are announced with DocketVersionsChangedEvent.
+ */
+@Component
+public class DocketVersionAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocketVersionAllocator.class);
+
+    private final Neo4jClient neo4jClient;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DocketVersionAllocator(Neo4jClient neo4jClient, ApplicationEventPublisher eventPublisher) {
+        this.neo4jClient = neo4jClient;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public record Allocation(String versionUuid, int versionNumber, Instant createdAt) {
+    }
+
+    /**
+     * Creates the next version of the docket and points LATEST_VERSION at it
+     * Must run inside the transaction that writes the version's graph
+     */
+    public Allocation allocate(String docketUuid, String description) {
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})
+            SET d._lock = true
+            WITH d, coalesce(d.versionCounter, 0) + 1 as versionNumber
+            SET d.versionCounter = versionNumber
+            REMOVE d._lock
+            CREATE (d)-[:HAS_VERSION]->(dv:DocketVersion {
+                uuid: randomUUID(),
+                versionNumber: versionNumber,
+                createdAt: datetime(),
+                isActive: true,
+                description: coalesce($description, 'Version ' + versionNumber)
+            })
+            WITH d, dv
+            OPTIONAL MATCH (d)-[latest:LATEST_VERSION]->()
+            DELETE latest
+            CREATE (d)-[:LATEST_VERSION]->(dv)
+            RETURN dv.uuid as versionUuid, dv.versionNumber as versionNumber, dv.createdAt as createdAt
+            """;
+
+        Allocation allocation = run(query, docketUuid, description);
+        eventPublisher.publishEvent(DocketVersionsChangedEvent.created(
+                docketUuid, allocation.versionNumber(), allocation.createdAt()));
+        return allocation;
+    }
+
+    /**
+     * Reserves the next version number for a version that is not linked to its docket yet
+     * (see GraphSyncService#syncGraphParallel); it becomes visible with {@link #publish}
+     */
+    public Allocation allocateStaged(String docketUuid, String description) {
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})
+            SET d._lock = true
+            WITH d, coalesce(d.versionCounter, 0) + 1 as versionNumber
+            SET d.versionCounter = versionNumber
+            REMOVE d._lock
+            CREATE (dv:DocketVersion {
+                uuid: randomUUID(),
+                versionNumber: versionNumber,
+                createdAt: datetime(),
+                isActive: true,
+                description: coalesce($description, 'Version ' + versionNumber),
+                stagedFor: d.uuid
+            })
+            RETURN dv.uuid as versionUuid, dv.versionNumber as versionNumber, dv.createdAt as createdAt
+            """;
+
+        return run(query, docketUuid, description);
+    }
+
+    /**
+     * Links a staged version to its docket; LATEST_VERSION only moves forward, because a version
+     * allocated after this one may have been published first
+     */
+    public void publish(String docketUuid, String versionUuid) {
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})
+            MATCH (dv:DocketVersion {uuid: $versionUuid})
+            SET d._lock = true
+            CREATE (d)-[:HAS_VERSION]->(dv)
+            REMOVE dv.stagedFor, d._lock
+            WITH d, dv
+            OPTIONAL MATCH (d)-[latest:LATEST_VERSION]->(current:DocketVersion)
+            WITH d, dv, latest, current
+            CALL {
+                WITH d, dv, latest, current
+                WITH d, dv, latest, current
+                WHERE current IS NULL OR current.versionNumber < dv.versionNumber
+                DELETE latest
+                CREATE (d)-[:LATEST_VERSION]->(dv)
+            }
+            RETURN dv.versionNumber as versionNumber, dv.createdAt as createdAt
+            """;
+
+        neo4jClient.query(query)
+                .bind(docketUuid).to("docketUuid")
+                .bind(versionUuid).to("versionUuid")
+                .fetch()
+                .one()
+                .ifPresent(row -> eventPublisher.publishEvent(DocketVersionsChangedEvent.created(
+                        docketUuid,
+                        ((Number) row.get("versionNumber")).intValue(),
+                        ((ZonedDateTime) row.get("createdAt")).toInstant())));
+    }
+
+    /**
+     * Initializes counter and pointer of dockets created before they existed (one scan per such docket, once)
+     */
+    @PostConstruct
+    public void backfillLegacyDockets() {
+        String query = """
+            MATCH (d:Docket)
+            WHERE d.versionCounter IS NULL
+            OPTIONAL MATCH (d)-[:HAS_VERSION]->(dv:DocketVersion)
+            WITH d, dv
+            ORDER BY dv.versionNumber DESC
+            WITH d, collect(dv)[0] as latest
+            SET d.versionCounter = coalesce(latest.versionNumber, 0)
+            FOREACH (v IN CASE WHEN latest IS NULL THEN [] ELSE [latest] END |
+                MERGE (d)-[:LATEST_VERSION]->(v))
+            RETURN count(d) as dockets
+            """;
+
+        long dockets = neo4jClient.query(query)
+                .fetchAs(Long.class)
+                .one()
+                .orElse(0L);
+        if (dockets > 0) {
+            logger.info("Initialized version counters of {} dockets", dockets);
+        }
+    }
+
+    private Allocation run(String query, String docketUuid, String description) {
+        return neo4jClient.query(query)
+                .bind(docketUuid).to("docketUuid")
+                .bind(description).to("description")
+                .fetchAs(Allocation.class)
+                .mappedBy((typeSystem, record) -> new Allocation(
+                        record.get("versionUuid").asString(),
+                        record.get("versionNumber").asInt(),
+                        record.get("createdAt").asZonedDateTime().toInstant()))
+                .one()
+                .orElseThrow(() -> new ResourceNotFoundException("Docket not found with uuid: " + docketUuid));
+    }
+}
@@ -21,12 +21,15 @@ public interface DocketVersionRepository extends Neo4jRepository<DocketVersion,
             @Param("docketUuid") String docketUuid,
             @Param("versionNumber") Integer versionNumber);
 
-    @Query("MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion) " +
+    /**
+     * Latest published version, through the pointer maintained by DocketVersionAllocator
+     */
+    @Query("MATCH (d:Docket {uuid: $docketUuid})-[:LATEST_VERSION]->(dv:DocketVersion) " +
             "WHERE dv.isActive = true " +
-            "RETURN dv ORDER BY dv.versionNumber DESC LIMIT 1")
+            "RETURN dv")
     Optional<DocketVersion> findActiveDocketVersion(@Param("docketUuid") String docketUuid);
 
-    @Query("MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion) " +
-            "RETURN MAX(dv.versionNumber)")
-    Optional<Integer> findMaxVersionNumber(@Param("docketUuid") String docketUuid);
+    @Query("MATCH (d:Docket {uuid: $docketUuid})-[:LATEST_VERSION]->(dv:DocketVersion) " +
+            "RETURN dv.versionNumber")
+    Optional<Integer> findLatestVersionNumber(@Param("docketUuid") String docketUuid);
 }
\ No newline at end of file
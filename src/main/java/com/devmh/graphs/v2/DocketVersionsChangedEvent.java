@@ -0,0 +1,18 @@
+package com.devmh.graphs.v2;
+
+import java.time.Instant;
+
+/**
+ * Published when a version is linked to its docket (createdAt set) or removed from it (createdAt null)
+ * Keeps DocketTimeline current without reloading it.
+ */
+public record DocketVersionsChangedEvent(String docketUuid, int versionNumber, Instant createdAt) {
+
+    public static DocketVersionsChangedEvent created(String docketUuid, int versionNumber, Instant createdAt) {
+        return new DocketVersionsChangedEvent(docketUuid, versionNumber, createdAt);
+    }
+
+    public static DocketVersionsChangedEvent deleted(String docketUuid, int versionNumber) {
+        return new DocketVersionsChangedEvent(docketUuid, versionNumber, null);
+    }
+}
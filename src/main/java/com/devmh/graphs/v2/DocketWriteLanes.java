@@ -0,0 +1,203 @@
+package com.devmh.graphs.v2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Serializes writes per docket: each docket has a lane that runs its writes
+ * one at a time, in arrival order, on a virtual thread. Lanes of different dockets run in parallel.
+ * A full replacement that is still waiting is superseded by a newer replacement of the same version:
+ * the newer graph takes the waiting one's place and all callers receive the result of that one sync
+ * (last writer wins). Other writes queued after it keep their order, as a replacement arriving after
+ * them starts a new entry. Lanes are created on demand and dropped once their queue drains.
+ * Meter: graphs.sync.coalesced counts replacements that were superseded before they ran
+ */
+@Component
+public class DocketWriteLanes {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocketWriteLanes.class);
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter coalesced;
+
+    public DocketWriteLanes(MeterRegistry registry) {
+        this.coalesced = Counter.builder("graphs.sync.coalesced")
+                .description("Full graph replacements superseded by a newer one while queued")
+                .register(registry);
+    }
+
+    /**
+     * Replaces the version's graph on the docket's lane and waits for the sync that carried it out,
+     * which is a later replacement's if this one was superseded while queued
+     */
+    public <R> GraphSyncResult replace(
+            String docketUuid,
+            int versionNumber,
+            R request,
+            Function<R, GraphSyncResult> sync) {
+
+        CompletableFuture<GraphSyncResult> future = new CompletableFuture<>();
+        lanes.compute(docketUuid, (key, lane) -> {
+            Lane entered = lane != null ? lane : new Lane();
+            Write<GraphSyncResult> pending = entered.replacements.get(versionNumber);
+            if (pending != null) {
+                pending.supersede(() -> sync.apply(request), future);
+                coalesced.increment();
+                logger.debug("Replacement of docket {} version {} superseded a queued one", docketUuid, versionNumber);
+            } else {
+                Write<GraphSyncResult> write = new Write<>(() -> sync.apply(request), future);
+                entered.queue.add(write);
+                entered.replacements.put(versionNumber, write);
+                startIfIdle(docketUuid, entered);
+            }
+            return entered;
+        });
+        return await(future);
+    }
+
+    /**
+     * Runs any other write on the docket's lane, after everything queued before it
+     * A null versionNumber stands for a write that affects the whole docket
+     */
+    public <T> T write(String docketUuid, Integer versionNumber, Supplier<T> body) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        lanes.compute(docketUuid, (key, lane) -> {
+            Lane entered = lane != null ? lane : new Lane();
+            // A later replacement must not overtake this write by joining an earlier one
+            if (versionNumber != null) {
+                entered.replacements.remove(versionNumber);
+            } else {
+                entered.replacements.clear();
+            }
+            entered.queue.add(new Write<>(body, future));
+            startIfIdle(docketUuid, entered);
+            return entered;
+        });
+        return await(future);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /** Must be called while holding the lane (inside lanes.compute) */
+    private void startIfIdle(String docketUuid, Lane lane) {
+        if (!lane.running) {
+            lane.running = true;
+            executor.execute(() -> drain(docketUuid));
+        }
+    }
+
+    private void drain(String docketUuid) {
+        boolean drained = false;
+        try {
+            while (true) {
+                Write<?>[] next = new Write<?>[1];
+                lanes.computeIfPresent(docketUuid, (key, lane) -> {
+                    next[0] = lane.queue.poll();
+                    if (next[0] == null) {
+                        return null;
+                    }
+                    lane.replacements.values().remove(next[0]);
+                    return lane;
+                });
+                if (next[0] == null) {
+                    drained = true;
+                    return;
+                }
+                next[0].run();
+            }
+        } finally {
+            if (!drained) {
+                // Hand the lane to a new drain thread, so writes queued behind the failure still run
+                lanes.computeIfPresent(docketUuid, (key, lane) -> {
+                    lane.running = false;
+                    startIfIdle(docketUuid, lane);
+                    return lane;
+                });
+            }
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the docket's write lane", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Queue state of one docket, only touched inside lanes.compute */
+    private static final class Lane {
+        private final Queue<Write<?>> queue = new ArrayDeque<>();
+        /** Queued replacements that have not started yet, by version number */
+        private final Map<Integer, Write<GraphSyncResult>> replacements = new HashMap<>();
+        private boolean running;
+    }
+
+    /** Fields are only replaced inside lanes.compute, before the write is taken off the queue */
+    private static final class Write<T> {
+        private Supplier<T> body;
+        private CompletableFuture<T> caller;
+        private int superseded;
+
+        Write(Supplier<T> body, CompletableFuture<T> caller) {
+            this.body = body;
+            this.caller = caller;
+        }
+
+        void supersede(Supplier<T> newer, CompletableFuture<T> newerCaller) {
+            CompletableFuture<T> earlier = caller;
+            newerCaller.whenComplete((result, failure) -> {
+                if (failure != null) {
+                    earlier.completeExceptionally(failure);
+                } else {
+                    earlier.complete(result);
+                }
+            });
+            body = newer;
+            caller = newerCaller;
+            superseded++;
+        }
+
+        void run() {
+            try {
+                T result = body.get();
+                if (result instanceof GraphSyncResult syncResult) {
+                    syncResult.setCoalescedRequests(superseded);
+                }
+                caller.complete(result);
+            } catch (Throwable e) {
+                // Errors too: the caller waits without a timeout and must always be released
+                caller.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.devmh.graphs.v2;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/dockets/{docketUuid}/graph/versions/{versionNumber}/analytics")
+public class GraphAnalyticsController {
+
+    private final GraphAnalyticsService graphAnalyticsService;
+
+    public GraphAnalyticsController(GraphAnalyticsService graphAnalyticsService) {
+        this.graphAnalyticsService = graphAnalyticsService;
+    }
+
+    /**
+     * Connected components of the version's relationship graph (direction ignored)
+     * GET /api/dockets/{docketUuid}/graph/versions/{versionNumber}/analytics/components?limit=10
+     */
+    @GetMapping("/components")
+    public ResponseEntity<GraphComponentsDTO> getComponents(
+            @PathVariable String docketUuid,
+            @PathVariable Integer versionNumber,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        return ResponseEntity.ok(graphAnalyticsService.getComponents(docketUuid, versionNumber, checkLimit(limit)));
+    }
+
+    /**
+     * Shortest relationship path between two cases of the version
+     * GET /api/dockets/{docketUuid}/graph/versions/{versionNumber}/analytics/path?from={caseUuid}&to={caseUuid}&directed=false
+     */
+    @GetMapping("/path")
+    public ResponseEntity<GraphPathDTO> getShortestPath(
+            @PathVariable String docketUuid,
+            @PathVariable Integer versionNumber,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "false") boolean directed) {
+
+        return ResponseEntity.ok(graphAnalyticsService.getShortestPath(docketUuid, versionNumber, from, to, directed));
+    }
+
+    /**
+     * Most connected cases of the version
+     * GET /api/dockets/{docketUuid}/graph/versions/{versionNumber}/analytics/ranking?by=degree|pagerank&limit=20
+     */
+    @GetMapping("/ranking")
+    public ResponseEntity<List<RankedCaseDTO>> getRanking(
+            @PathVariable String docketUuid,
+            @PathVariable Integer versionNumber,
+            @RequestParam(defaultValue = "degree") String by,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        return ResponseEntity.ok(graphAnalyticsService.getRanking(docketUuid, versionNumber, by, checkLimit(limit)));
+    }
+
+    private static int checkLimit(int limit) {
+        if (limit < 1 || limit > DocketGraphService.MAX_PAGE_SIZE) {
+            throw new InvalidGraphRequestException("limit must be between 1 and " + DocketGraphService.MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+}
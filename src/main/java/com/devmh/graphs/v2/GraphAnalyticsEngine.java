@@ -0,0 +1,438 @@
+package com.devmh.graphs.v2;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Graph algorithms over a {@link CaseGraphCsr}, parallelized as fork/join range tasks on the common pool:
+ * lock-free union-find for components, level-synchronous BFS for paths, pull-based PageRank and
+ * per-range top-k selection for rankings. Ranges at or below the thresholds run on the calling thread.
+ */
+final class GraphAnalyticsEngine {
+
+    /** Below this many cases a pass over all cases runs on the calling thread */
+    static final int PARALLEL_THRESHOLD = 16_384;
+    /** Below this many frontier cases a BFS level is expanded on the calling thread */
+    static final int FRONTIER_THRESHOLD = 2_048;
+
+    private GraphAnalyticsEngine() {
+    }
+
+    /**
+     * Weakly connected components (relationship direction ignored)
+     * Returns the component label of every case, which is the smallest case id in its component
+     */
+    static int[] components(CaseGraphCsr graph) {
+        int n = graph.caseCount();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        forRange(n, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                parent.set(u, u);
+            }
+        });
+        forRange(n, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                    union(parent, u, graph.outTarget(e));
+                }
+            }
+        });
+
+        int[] labels = new int[n];
+        forRange(n, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                labels[u] = find(parent, u);
+            }
+        });
+        return labels;
+    }
+
+    /**
+     * Shortest path as case ids from source to target, empty if the target is unreachable
+     * With directed the path follows relationship direction, otherwise relationships are walked both ways
+     */
+    static int[] shortestPath(CaseGraphCsr graph, int source, int target, boolean directed) {
+        if (source == target) {
+            return new int[] {source};
+        }
+
+        AtomicIntegerArray parent = new AtomicIntegerArray(graph.caseCount());
+        forRange(graph.caseCount(), (from, to) -> {
+            for (int u = from; u < to; u++) {
+                parent.set(u, -1);
+            }
+        });
+        parent.set(source, source);
+
+        int[] frontier = {source};
+        while (frontier.length > 0 && parent.get(target) < 0) {
+            int[] current = frontier;
+            frontier = current.length <= FRONTIER_THRESHOLD
+                    ? expand(graph, current, 0, current.length, parent, directed).toArray()
+                    : ForkJoinPool.commonPool().invoke(new FrontierTask(graph, current, 0, current.length, parent, directed)).toArray();
+        }
+        if (parent.get(target) < 0) {
+            return new int[0];
+        }
+
+        IntList path = new IntList(16);
+        for (int u = target; u != source; u = parent.get(u)) {
+            path.add(u);
+        }
+        path.add(source);
+        int[] result = path.toArray();
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+            int swap = result[i];
+            result[i] = result[j];
+            result[j] = swap;
+        }
+        return result;
+    }
+
+    /**
+     * PageRank with uniform teleport; rank of cases without outgoing relationships is spread over all cases
+     * Iterates until the L1 change of an iteration drops below tolerance or maxIterations is reached
+     */
+    static double[] pageRank(CaseGraphCsr graph, double damping, int maxIterations, double tolerance) {
+        int n = graph.caseCount();
+        if (n == 0) {
+            return new double[0];
+        }
+
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        double[] contribution = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            final double[] current = rank;
+            final double[] updated = next;
+            forRange(n, (from, to) -> {
+                for (int u = from; u < to; u++) {
+                    int degree = graph.outDegree(u);
+                    contribution[u] = degree > 0 ? current[u] / degree : 0;
+                }
+            });
+            double dangling = IntStream.range(0, n).parallel()
+                    .filter(u -> graph.outDegree(u) == 0)
+                    .mapToDouble(u -> current[u])
+                    .sum();
+            double base = (1 - damping) / n + damping * dangling / n;
+            forRange(n, (from, to) -> {
+                for (int v = from; v < to; v++) {
+                    double sum = 0;
+                    for (int e = graph.inStart(v); e < graph.inEnd(v); e++) {
+                        sum += contribution[graph.inSource(e)];
+                    }
+                    updated[v] = base + damping * sum;
+                }
+            });
+            double change = IntStream.range(0, n).parallel()
+                    .mapToDouble(v -> Math.abs(updated[v] - current[v]))
+                    .sum();
+
+            rank = updated;
+            next = current;
+            if (change < tolerance) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Ids of the limit highest scoring cases, best first; ties go to the lower id
+     */
+    static int[] top(int size, int limit, IntToDoubleFunction score) {
+        TopK top = size <= PARALLEL_THRESHOLD
+                ? TopK.of(0, size, limit, score)
+                : ForkJoinPool.commonPool().invoke(new TopTask(0, size, limit, score));
+        return top.sorted();
+    }
+
+    private static int find(AtomicIntegerArray parent, int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x) {
+                return x;
+            }
+            int grandparent = parent.get(p);
+            if (p != grandparent) {
+                // Path halving; losing the race only costs a longer walk next time
+                parent.compareAndSet(x, p, grandparent);
+            }
+            x = grandparent;
+        }
+    }
+
+    /**
+     * Links the root with the larger id below the smaller one, so a root is always its set's smallest id
+     */
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            int rootA = find(parent, a);
+            int rootB = find(parent, b);
+            if (rootA == rootB) {
+                return;
+            }
+            int low = Math.min(rootA, rootB);
+            int high = Math.max(rootA, rootB);
+            if (parent.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Claims the unvisited neighbours of frontier[from, to) and returns them as the next level
+     */
+    private static IntList expand(CaseGraphCsr graph, int[] frontier, int from, int to,
+                                  AtomicIntegerArray parent, boolean directed) {
+        IntList next = new IntList(Math.max(16, (to - from) * 2));
+        for (int i = from; i < to; i++) {
+            int u = frontier[i];
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                int v = graph.outTarget(e);
+                if (parent.get(v) < 0 && parent.compareAndSet(v, -1, u)) {
+                    next.add(v);
+                }
+            }
+            if (!directed) {
+                for (int e = graph.inStart(u); e < graph.inEnd(u); e++) {
+                    int v = graph.inSource(e);
+                    if (parent.get(v) < 0 && parent.compareAndSet(v, -1, u)) {
+                        next.add(v);
+                    }
+                }
+            }
+        }
+        return next;
+    }
+
+    private static void forRange(int size, RangeAction action) {
+        if (size <= PARALLEL_THRESHOLD) {
+            action.run(0, size);
+        } else {
+            ForkJoinPool.commonPool().invoke(new RangeTask(action, 0, size));
+        }
+    }
+
+    @FunctionalInterface
+    interface RangeAction {
+        void run(int from, int to);
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private final RangeAction action;
+        private final int from;
+        private final int to;
+
+        RangeTask(RangeAction action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                action.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(action, from, mid), new RangeTask(action, mid, to));
+        }
+    }
+
+    private static final class FrontierTask extends RecursiveTask<IntList> {
+        private final CaseGraphCsr graph;
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final AtomicIntegerArray parent;
+        private final boolean directed;
+
+        FrontierTask(CaseGraphCsr graph, int[] frontier, int from, int to, AtomicIntegerArray parent, boolean directed) {
+            this.graph = graph;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.parent = parent;
+            this.directed = directed;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (to - from <= FRONTIER_THRESHOLD) {
+                return expand(graph, frontier, from, to, parent, directed);
+            }
+            int mid = (from + to) >>> 1;
+            FrontierTask left = new FrontierTask(graph, frontier, from, mid, parent, directed);
+            left.fork();
+            IntList right = new FrontierTask(graph, frontier, mid, to, parent, directed).compute();
+            IntList result = left.join();
+            result.addAll(right);
+            return result;
+        }
+    }
+
+    private static final class TopTask extends RecursiveTask<TopK> {
+        private final int from;
+        private final int to;
+        private final int limit;
+        private final IntToDoubleFunction score;
+
+        TopTask(int from, int to, int limit, IntToDoubleFunction score) {
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+            this.score = score;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return TopK.of(from, to, limit, score);
+            }
+            int mid = (from + to) >>> 1;
+            TopTask left = new TopTask(from, mid, limit, score);
+            left.fork();
+            TopK right = new TopTask(mid, to, limit, score).compute();
+            TopK result = left.join();
+            result.merge(right);
+            return result;
+        }
+    }
+
+    /**
+     * Bounded min-heap of (score, id); the root is the weakest entry kept
+     */
+    private static final class TopK {
+        private final int limit;
+        private final int[] ids;
+        private final double[] scores;
+        private int size;
+
+        private TopK(int limit) {
+            this.limit = limit;
+            this.ids = new int[limit];
+            this.scores = new double[limit];
+        }
+
+        static TopK of(int from, int to, int limit, IntToDoubleFunction score) {
+            TopK top = new TopK(limit);
+            for (int id = from; id < to; id++) {
+                top.offer(id, score.applyAsDouble(id));
+            }
+            return top;
+        }
+
+        void merge(TopK other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.ids[i], other.scores[i]);
+            }
+        }
+
+        void offer(int id, double score) {
+            if (limit == 0) {
+                return;
+            }
+            if (size < limit) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (better(id, score, ids[0], scores[0])) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        int[] sorted() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> a.equals(b) ? 0 : better(ids[a], scores[a], ids[b], scores[b]) ? -1 : 1);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = ids[order[i]];
+            }
+            return result;
+        }
+
+        private static boolean better(int id, double score, int otherId, double otherScore) {
+            return score > otherScore || score == otherScore && id < otherId;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!better(ids[parent], scores[parent], ids[i], scores[i])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int weakest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (better(ids[weakest], scores[weakest], ids[child], scores[child])) {
+                        weakest = child;
+                    }
+                }
+                if (weakest == i) {
+                    return;
+                }
+                swap(i, weakest);
+                i = weakest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    /** Growable int array */
+    private static final class IntList {
+        private int[] values;
+        private int size;
+
+        IntList(int capacity) {
+            values = new int[capacity];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "graphs.analytics")
+public class GraphAnalyticsProps {
+    /** Upper bound of cached version weight, where a version weighs 1 + cases + relationships */
+    private long maxWeight = 2_000_000;
+    private double pageRankDamping = 0.85;
+    private int pageRankMaxIterations = 50;
+    /** PageRank stops once the summed change of an iteration is below this */
+    private double pageRankTolerance = 1e-9;
+}
@@ -0,0 +1,220 @@
+package com.devmh.graphs.v2;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Connected components, shortest paths and rankings of a version's RELATED_TO_CASE graph, computed in
+ * the JVM on a CaseGraphCsr (see GraphAnalyticsEngine) instead of shipping the graph to an external tool.
+ * The CSR of a version and its whole-graph results (component labels, PageRank) are cached together,
+ * weighted by graph size, and dropped when a write to the version commits. Results carry case uuids
+ * only, so renames do not invalidate them.
+ */
+@Service
+public class GraphAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphAnalyticsService.class);
+
+    private final DocketGraphService docketGraphService;
+    private final GraphAnalyticsProps props;
+    private final Cache<GraphKey, VersionAnalytics> cache;
+
+    public GraphAnalyticsService(DocketGraphService docketGraphService, GraphAnalyticsProps props) {
+        this.docketGraphService = docketGraphService;
+        this.props = props;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(props.getMaxWeight())
+                .weigher((GraphKey key, VersionAnalytics analytics) -> analytics.graph.weight())
+                .recordStats()
+                .build();
+    }
+
+    /** The underlying cache, for binding its statistics to Micrometer */
+    Cache<?, ?> getCache() {
+        return cache;
+    }
+
+    public GraphComponentsDTO getComponents(String docketUuid, Integer versionNumber, int limit) {
+        VersionAnalytics analytics = analytics(docketUuid, versionNumber);
+        CaseGraphCsr graph = analytics.graph;
+        int[] labels = analytics.componentLabels();
+
+        int n = graph.caseCount();
+        int[] sizes = new int[n];
+        for (int label : labels) {
+            sizes[label]++;
+        }
+
+        GraphComponentsDTO dto = new GraphComponentsDTO();
+        dto.setDocketUuid(docketUuid);
+        dto.setVersionNumber(versionNumber);
+        dto.setCaseCount(n);
+        dto.setRelationshipCount(graph.edgeCount());
+        for (int id = 0; id < n; id++) {
+            if (sizes[id] > 0) {
+                dto.setComponentCount(dto.getComponentCount() + 1);
+                dto.setLargestComponentSize(Math.max(dto.getLargestComponentSize(), sizes[id]));
+            }
+            if (graph.inDegree(id) == 0 && graph.outDegree(id) == 0) {
+                dto.setIsolatedCaseCount(dto.getIsolatedCaseCount() + 1);
+            }
+        }
+
+        int[] largest = GraphAnalyticsEngine.top(n, Math.min(limit, n), label -> sizes[label]);
+        for (int label : largest) {
+            if (sizes[label] == 0) {
+                break;
+            }
+            GraphComponentsDTO.Component component = new GraphComponentsDTO.Component();
+            component.setSize(sizes[label]);
+            dto.getComponents().add(component);
+        }
+        // One pass collects the members of every returned component
+        int[] slot = new int[n];
+        Arrays.fill(slot, -1);
+        for (int i = 0; i < dto.getComponents().size(); i++) {
+            slot[largest[i]] = i;
+        }
+        for (int id = 0; id < n; id++) {
+            int index = slot[labels[id]];
+            if (index >= 0) {
+                dto.getComponents().get(index).getCaseUuids().add(graph.uuid(id));
+            }
+        }
+        return dto;
+    }
+
+    public GraphPathDTO getShortestPath(
+            String docketUuid,
+            Integer versionNumber,
+            String fromCaseUuid,
+            String toCaseUuid,
+            boolean directed) {
+
+        CaseGraphCsr graph = analytics(docketUuid, versionNumber).graph;
+        int source = caseId(graph, fromCaseUuid, docketUuid, versionNumber);
+        int target = caseId(graph, toCaseUuid, docketUuid, versionNumber);
+
+        int[] path = GraphAnalyticsEngine.shortestPath(graph, source, target, directed);
+
+        GraphPathDTO dto = new GraphPathDTO();
+        dto.setFromCaseUuid(fromCaseUuid);
+        dto.setToCaseUuid(toCaseUuid);
+        dto.setDirected(directed);
+        dto.setFound(path.length > 0);
+        dto.setLength(path.length - 1);
+        for (int id : path) {
+            dto.getCaseUuids().add(graph.uuid(id));
+        }
+        return dto;
+    }
+
+    /**
+     * Most connected cases by "degree" (incoming plus outgoing relationships) or "pagerank"
+     * The pageRank of the entries is only set when ranking by it
+     */
+    public List<RankedCaseDTO> getRanking(String docketUuid, Integer versionNumber, String by, int limit) {
+        VersionAnalytics analytics = analytics(docketUuid, versionNumber);
+        CaseGraphCsr graph = analytics.graph;
+        boolean byPageRank = "pagerank".equals(by.toLowerCase(Locale.ROOT));
+        double[] pageRank = byPageRank ? analytics.pageRank() : null;
+
+        int[] top = switch (by.toLowerCase(Locale.ROOT)) {
+            case "degree" -> GraphAnalyticsEngine.top(graph.caseCount(), Math.min(limit, graph.caseCount()),
+                    id -> graph.inDegree(id) + graph.outDegree(id));
+            case "pagerank" -> GraphAnalyticsEngine.top(graph.caseCount(), Math.min(limit, graph.caseCount()),
+                    id -> pageRank[id]);
+            default -> throw new InvalidGraphRequestException("Unknown ranking '" + by + "', use degree or pagerank");
+        };
+
+        List<RankedCaseDTO> ranking = new ArrayList<>(top.length);
+        for (int id : top) {
+            RankedCaseDTO ranked = new RankedCaseDTO();
+            ranked.setCaseUuid(graph.uuid(id));
+            ranked.setInDegree(graph.inDegree(id));
+            ranked.setOutDegree(graph.outDegree(id));
+            if (pageRank != null) {
+                ranked.setPageRank(pageRank[id]);
+            }
+            ranking.add(ranked);
+        }
+        return ranking;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGraphChanged(DocketGraphChangedEvent event) {
+        if (event.docketUuid() == null) {
+            return;
+        }
+        if (event.versionNumber() != null) {
+            cache.invalidate(new GraphKey(event.docketUuid(), event.versionNumber()));
+        } else {
+            cache.invalidateAll(cache.asMap().keySet().stream()
+                    .filter(key -> key.docketUuid().equals(event.docketUuid()))
+                    .toList());
+        }
+    }
+
+    private VersionAnalytics analytics(String docketUuid, Integer versionNumber) {
+        return cache.get(new GraphKey(docketUuid, versionNumber), key -> {
+            long startTime = System.nanoTime();
+            CaseGraphCsr graph = CaseGraphCsr.of(docketGraphService.getDocketVersionGraph(docketUuid, versionNumber));
+            logger.info("Built CSR of docket {} version {} ({} cases, {} relationships) in {}ms",
+                    docketUuid, versionNumber, graph.caseCount(), graph.edgeCount(),
+                    (System.nanoTime() - startTime) / 1_000_000);
+            return new VersionAnalytics(graph, props);
+        });
+    }
+
+    private static int caseId(CaseGraphCsr graph, String caseUuid, String docketUuid, Integer versionNumber) {
+        int id = graph.id(caseUuid);
+        if (id == StringIntMap.MISSING) {
+            throw new ResourceNotFoundException(
+                    "Case " + caseUuid + " not found in docket " + docketUuid + " version " + versionNumber);
+        }
+        return id;
+    }
+
+    private record GraphKey(String docketUuid, Integer versionNumber) {
+    }
+
+    /**
+     * A version's CSR with its whole-graph results, each computed once on first request
+     */
+    private static final class VersionAnalytics {
+        private final CaseGraphCsr graph;
+        private final GraphAnalyticsProps props;
+        private int[] componentLabels;
+        private double[] pageRank;
+
+        VersionAnalytics(CaseGraphCsr graph, GraphAnalyticsProps props) {
+            this.graph = graph;
+            this.props = props;
+        }
+
+        synchronized int[] componentLabels() {
+            if (componentLabels == null) {
+                componentLabels = GraphAnalyticsEngine.components(graph);
+            }
+            return componentLabels;
+        }
+
+        synchronized double[] pageRank() {
+            if (pageRank == null) {
+                pageRank = GraphAnalyticsEngine.pageRank(graph, props.getPageRankDamping(),
+                        props.getPageRankMaxIterations(), props.getPageRankTolerance());
+            }
+            return pageRank;
+        }
+    }
+}
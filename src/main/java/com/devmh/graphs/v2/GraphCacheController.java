@@ -0,0 +1,28 @@
+package com.devmh.graphs.v2;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/graph-cache")
+public class GraphCacheController {
+
+    private final DocketGraphCache docketGraphCache;
+
+    public GraphCacheController(DocketGraphCache docketGraphCache) {
+        this.docketGraphCache = docketGraphCache;
+    }
+
+    /**
+     * Hit, miss and eviction counters of the docket version graph cache
+     * GET /api/graph-cache/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(docketGraphCache.getStatistics());
+    }
+}
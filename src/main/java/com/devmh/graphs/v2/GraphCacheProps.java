@@ -0,0 +1,12 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "graphs.cache")
+public class GraphCacheProps {
+    private boolean enabled = true;
+    /** Upper bound of cached graph weight, where a graph weighs 1 + cases + relationships */
+    private long maxWeight = 2_000_000;
+}
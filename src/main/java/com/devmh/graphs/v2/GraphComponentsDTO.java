@@ -0,0 +1,26 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class GraphComponentsDTO {
+    private String docketUuid;
+    private Integer versionNumber;
+    private int caseCount;
+    private int relationshipCount;
+    private int componentCount;
+    private int largestComponentSize;
+    /** Cases without any relationship, each its own component */
+    private int isolatedCaseCount;
+    /** Largest components first, up to the requested limit */
+    private List<Component> components = new ArrayList<>();
+
+    @Data
+    public static class Component {
+        private int size;
+        private List<String> caseUuids = new ArrayList<>();
+    }
+}
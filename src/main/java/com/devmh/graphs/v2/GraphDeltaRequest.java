@@ -0,0 +1,15 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class GraphDeltaRequest {
+    private List<CaseNode> addCases = new ArrayList<>();
+    private List<String> removeCases = new ArrayList<>();
+    private List<CaseNode> renameCases = new ArrayList<>();
+    private List<CaseRelationship> addRelationships = new ArrayList<>();
+    private List<CaseRelationship> removeRelationships = new ArrayList<>();
+}
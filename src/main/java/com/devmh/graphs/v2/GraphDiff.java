@@ -0,0 +1,15 @@
+package com.devmh.graphs.v2;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Represents the differences between current and desired state
+ */
+final class GraphDiff {
+    Set<CaseNode> casesToAdd = new HashSet<>();
+    Set<String> casesToRemove = new HashSet<>();
+    Set<CaseNode> casesToUpdate = new HashSet<>();
+    Set<RelationshipKey> relationshipsToAdd = new HashSet<>();
+    Set<RelationshipKey> relationshipsToRemove = new HashSet<>();
+}
@@ -0,0 +1,198 @@
+package com.devmh.graphs.v2;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Diffs the desired graph against a dictionary-encoded {@link GraphState} without per-element objects:
+ * application uuids are encoded into the state's id space (new uuids get ids after the version's cases),
+ * application relationships become packed longs in a {@link LongHashSet}, and the four comparisons
+ * run as fork/join range tasks over primitive arrays. Only the differences are materialized.
+ */
+final class GraphDiffEngine {
+
+    /** Below this many elements a range is compared on the calling thread */
+    static final int PARALLEL_THRESHOLD = 32_768;
+
+    private GraphDiffEngine() {
+    }
+
+    /**
+     * Rejects a case the graph cannot hold; shared by every write path so clients get one message
+     */
+    static CaseNode checkCase(CaseNode c) {
+        if (c == null || c.getUuid() == null || c.getName() == null) {
+            throw new InvalidGraphRequestException("Every case needs a uuid and a name");
+        }
+        return c;
+    }
+
+    static CaseRelationship checkRelationship(CaseRelationship r) {
+        if (r == null || r.getFromCaseUuid() == null || r.getToCaseUuid() == null) {
+            throw new InvalidGraphRequestException("Every relationship needs a fromCaseUuid and a toCaseUuid");
+        }
+        return r;
+    }
+
+    /**
+     * Same result as diffing uuid sets, name maps and relationship key sets:
+     * duplicate application case uuids are rejected, duplicate relationships collapse
+     */
+    static GraphDiff diff(GraphState current, List<CaseNode> applicationCases, List<CaseRelationship> applicationRelationships) {
+        int caseCount = current.caseCount();
+        Dictionary dictionary = new Dictionary(current, applicationCases.size());
+
+        // Encode application cases; ids < caseCount are cases of the current version
+        int[] appCaseIds = new int[applicationCases.size()];
+        BitSet appPresent = new BitSet(caseCount + applicationCases.size());
+        for (int i = 0; i < appCaseIds.length; i++) {
+            CaseNode c = checkCase(applicationCases.get(i));
+            int id = dictionary.encode(c.getUuid());
+            if (appPresent.get(id)) {
+                throw new InvalidGraphRequestException("Duplicate case uuid " + c.getUuid());
+            }
+            appPresent.set(id);
+            appCaseIds[i] = id;
+        }
+
+        // Encode application relationships as packed longs, dropping duplicates
+        LongHashSet appEdgeSet = new LongHashSet(applicationRelationships.size());
+        long[] appEdges = new long[applicationRelationships.size()];
+        int appEdgeCount = 0;
+        for (CaseRelationship r : applicationRelationships) {
+            checkRelationship(r);
+            long edge = LongHashSet.pack(dictionary.encode(r.getFromCaseUuid()), dictionary.encode(r.getToCaseUuid()));
+            if (appEdgeSet.add(edge)) {
+                appEdges[appEdgeCount++] = edge;
+            }
+        }
+        final int edgeCount = appEdgeCount;
+
+        GraphDiff diff = new GraphDiff();
+
+        List<CaseNode> added = new ArrayList<>();
+        List<CaseNode> updated = new ArrayList<>();
+        for (CaseNode c : GraphDiffEngine.<CaseNode>run(appCaseIds.length, (from, to, out) -> {
+            for (int i = from; i < to; i++) {
+                int id = appCaseIds[i];
+                CaseNode app = applicationCases.get(i);
+                if (id >= caseCount || !Objects.equals(current.name(id), app.getName())) {
+                    out.add(new CaseNode(app.getUuid(), app.getName()));
+                }
+            }
+        })) {
+            (current.id(c.getUuid()) >= 0 ? updated : added).add(c);
+        }
+        diff.casesToAdd = new HashSet<>(added);
+        diff.casesToUpdate = new HashSet<>(updated);
+
+        diff.casesToRemove = new HashSet<>(run(caseCount, (from, to, out) -> {
+            for (int id = appPresent.nextClearBit(from); id < to; id = appPresent.nextClearBit(id + 1)) {
+                out.add(current.uuid(id));
+            }
+        }));
+
+        diff.relationshipsToAdd = new HashSet<>(run(edgeCount, (from, to, out) -> {
+            for (int i = from; i < to; i++) {
+                if (!current.containsEdge(appEdges[i])) {
+                    out.add(dictionary.relationship(appEdges[i]));
+                }
+            }
+        }));
+
+        diff.relationshipsToRemove = new HashSet<>(run(current.relationshipCount(), (from, to, out) -> {
+            for (int i = from; i < to; i++) {
+                long edge = current.edge(i);
+                if (!appEdgeSet.contains(edge)) {
+                    out.add(dictionary.relationship(edge));
+                }
+            }
+        }));
+
+        return diff;
+    }
+
+    private static <T> List<T> run(int size, RangeCollector<T> collector) {
+        if (size <= PARALLEL_THRESHOLD) {
+            List<T> out = new ArrayList<>();
+            collector.collect(0, size, out);
+            return out;
+        }
+        return ForkJoinPool.commonPool().invoke(new RangeTask<>(collector, 0, size));
+    }
+
+    @FunctionalInterface
+    interface RangeCollector<T> {
+        void collect(int from, int to, List<T> out);
+    }
+
+    private static final class RangeTask<T> extends RecursiveTask<List<T>> {
+        private final RangeCollector<T> collector;
+        private final int from;
+        private final int to;
+
+        RangeTask(RangeCollector<T> collector, int from, int to) {
+            this.collector = collector;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                List<T> out = new ArrayList<>();
+                collector.collect(from, to, out);
+                return out;
+            }
+            int mid = (from + to) >>> 1;
+            RangeTask<T> left = new RangeTask<>(collector, from, mid);
+            left.fork();
+            List<T> right = new RangeTask<>(collector, mid, to).compute();
+            List<T> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+    }
+
+    /**
+     * The state's ids extended by uuids that only the application graph contains
+     * Written only while encoding, read concurrently afterwards
+     */
+    private static final class Dictionary {
+        private final GraphState current;
+        private final StringIntMap extraIds;
+        private final List<String> extraUuids = new ArrayList<>();
+
+        Dictionary(GraphState current, int expectedExtra) {
+            this.current = current;
+            this.extraIds = new StringIntMap(expectedExtra);
+        }
+
+        int encode(String uuid) {
+            int id = current.id(uuid);
+            if (id >= 0) {
+                return id;
+            }
+            int next = current.caseCount() + extraUuids.size();
+            int existing = extraIds.putIfAbsent(uuid, next);
+            if (existing != StringIntMap.MISSING) {
+                return existing;
+            }
+            extraUuids.add(uuid);
+            return next;
+        }
+
+        String uuid(int id) {
+            return id < current.caseCount() ? current.uuid(id) : extraUuids.get(id - current.caseCount());
+        }
+
+        RelationshipKey relationship(long edge) {
+            return new RelationshipKey(uuid(LongHashSet.from(edge)), uuid(LongHashSet.to(edge)));
+        }
+    }
+}
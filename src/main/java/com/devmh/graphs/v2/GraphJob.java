@@ -0,0 +1,128 @@
+package com.devmh.graphs.v2;
+
+import java.time.Instant;
+import java.util.concurrent.Future;
+
+/**
+ * One asynchronous graph replacement (see GraphJobService)
+ */
+class GraphJob {
+
+    private final String id;
+    private final String docketUuid;
+    private final long rowsRequested;
+    private final SyncMonitor monitor = new SyncMonitor();
+    private final Instant submittedAt = Instant.now();
+    private volatile GraphJobStatus.State state = GraphJobStatus.State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile GraphSyncResult result;
+    private volatile String error;
+    private volatile Future<?> future;
+
+    GraphJob(String id, String docketUuid, long rowsRequested) {
+        this.id = id;
+        this.docketUuid = docketUuid;
+        this.rowsRequested = rowsRequested;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getDocketUuid() {
+        return docketUuid;
+    }
+
+    SyncMonitor getMonitor() {
+        return monitor;
+    }
+
+    GraphJobStatus.State getState() {
+        return state;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    /**
+     * Moves a queued job to running; false if it was cancelled in the meantime
+     */
+    synchronized boolean start() {
+        if (state != GraphJobStatus.State.QUEUED) {
+            return false;
+        }
+        startedAt = Instant.now();
+        state = GraphJobStatus.State.RUNNING;
+        return true;
+    }
+
+    synchronized void succeeded(GraphSyncResult result) {
+        this.result = result;
+        finish(GraphJobStatus.State.SUCCEEDED);
+    }
+
+    synchronized void failed(String error) {
+        this.error = error;
+        finish(GraphJobStatus.State.FAILED);
+    }
+
+    synchronized void cancelled() {
+        finish(GraphJobStatus.State.CANCELLED);
+    }
+
+    /**
+     * Requests cancellation: a queued job is cancelled right away (interrupting its wait for a permit),
+     * a running one stops before its next phase or batch and rolls back
+     */
+    synchronized void cancel() {
+        monitor.cancel();
+        if (state == GraphJobStatus.State.QUEUED) {
+            if (future != null) {
+                future.cancel(true);
+            }
+            finish(GraphJobStatus.State.CANCELLED);
+        }
+    }
+
+    GraphJobStatus toStatus() {
+        GraphJobStatus status = new GraphJobStatus();
+        status.setJobId(id);
+        status.setDocketUuid(docketUuid);
+        status.setState(state);
+        status.setCancelRequested(monitor.isCancelled());
+        status.setSubmittedAt(submittedAt);
+        status.setStartedAt(startedAt);
+        status.setFinishedAt(finishedAt);
+        status.setRowsRequested(rowsRequested);
+        SyncContext context = monitor.getContext();
+        if (context != null) {
+            status.setOperation(context.getOperation());
+            status.setPhase(context.getCurrentPhase());
+            status.setBatchesWritten(context.getBatchesWritten());
+            status.setRowsWritten(context.getRowsWritten());
+            status.setElapsedMs(context.getElapsedMs());
+            status.setPhaseDurationsMs(context.getPhaseDurationsMs());
+        }
+        status.setResult(result);
+        status.setError(error);
+        return status;
+    }
+
+    private void finish(GraphJobStatus.State finalState) {
+        if (finishedAt != null) {
+            return;
+        }
+        state = finalState;
+        finishedAt = Instant.now();
+    }
+}
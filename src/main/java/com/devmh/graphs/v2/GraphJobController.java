@@ -0,0 +1,44 @@
+package com.devmh.graphs.v2;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/graph-jobs")
+public class GraphJobController {
+
+    private final GraphJobService graphJobService;
+
+    public GraphJobController(GraphJobService graphJobService) {
+        this.graphJobService = graphJobService;
+    }
+
+    /**
+     * State, current phase and batch progress of a graph job; the sync result once it succeeded
+     * GET /api/graph-jobs/{jobId}
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<GraphJobStatus> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(graphJobService.getStatus(jobId));
+    }
+
+    /**
+     * Graph jobs of a docket, newest first
+     * GET /api/graph-jobs?docketUuid={docketUuid}
+     */
+    @GetMapping
+    public ResponseEntity<List<GraphJobStatus>> getJobs(@RequestParam String docketUuid) {
+        return ResponseEntity.ok(graphJobService.getStatuses(docketUuid));
+    }
+
+    /**
+     * Cancels a queued or running job; a running sync rolls back (a parallel one discards its staged version)
+     * DELETE /api/graph-jobs/{jobId}
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<GraphJobStatus> cancelJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(graphJobService.cancel(jobId));
+    }
+}
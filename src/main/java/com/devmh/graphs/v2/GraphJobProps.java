@@ -0,0 +1,19 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "graphs.jobs")
+public class GraphJobProps {
+    /** Jobs running at the same time over all dockets */
+    private int maxConcurrent = 4;
+    /** Jobs running at the same time for one docket */
+    private int maxPerDocket = 1;
+    /** Queued and running jobs accepted before submissions are rejected with 429 */
+    private int maxPending = 100;
+    /** How long finished jobs stay available for polling */
+    private Duration retention = Duration.ofHours(1);
+}
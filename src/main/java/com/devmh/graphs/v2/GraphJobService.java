@@ -0,0 +1,175 @@
+package com.devmh.graphs.v2;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs graph replacements as background jobs so that large writes do not hold a request thread.
+ * Every job gets a virtual thread; the number of running syncs is bounded by a global semaphore
+ * and by a semaphore per docket, so queued jobs only park cheap threads. The per-docket permit is
+ * taken first, so jobs queued behind a busy docket never hold a global slot.
+ * Finished jobs are kept for polling for graphs.jobs.retention.
+ */
+@Service
+public class GraphJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphJobService.class);
+
+    private final DocketGraphService docketGraphService;
+    private final DocketRepository docketRepository;
+    private final GraphJobProps props;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore globalPermits;
+    private final Map<String, DocketLane> docketLanes = new ConcurrentHashMap<>();
+    private final Map<String, GraphJob> jobs = new ConcurrentHashMap<>();
+
+    public GraphJobService(
+            DocketGraphService docketGraphService,
+            DocketRepository docketRepository,
+            GraphJobProps props) {
+        this.docketGraphService = docketGraphService;
+        this.docketRepository = docketRepository;
+        this.props = props;
+        this.globalPermits = new Semaphore(props.getMaxConcurrent(), true);
+    }
+
+    /**
+     * Queues a graph replacement and returns its initial status
+     */
+    public GraphJobStatus submit(String docketUuid, ReplaceGraphRequest request) {
+        if (!docketRepository.existsById(docketUuid)) {
+            throw new ResourceNotFoundException("Docket not found with uuid: " + docketUuid);
+        }
+        evictExpired();
+        long pending = jobs.values().stream().filter(job -> !job.isFinished()).count();
+        if (pending >= props.getMaxPending()) {
+            throw new TooManyJobsException("Too many pending graph jobs (" + pending + "), retry later");
+        }
+
+        long rows = (request.getCases() != null ? request.getCases().size() : 0)
+                + (request.getRelationships() != null ? request.getRelationships().size() : 0);
+        GraphJob job = new GraphJob(UUID.randomUUID().toString(), docketUuid, rows);
+        jobs.put(job.getId(), job);
+        job.setFuture(executor.submit(() -> run(job, request)));
+
+        logger.info("Queued graph job {} for docket {} ({} rows)", job.getId(), docketUuid, rows);
+        return job.toStatus();
+    }
+
+    public GraphJobStatus getStatus(String jobId) {
+        return findJob(jobId).toStatus();
+    }
+
+    /**
+     * Jobs of a docket, newest first
+     */
+    public List<GraphJobStatus> getStatuses(String docketUuid) {
+        return jobs.values().stream()
+                .filter(job -> job.getDocketUuid().equals(docketUuid))
+                .map(GraphJob::toStatus)
+                .sorted(Comparator.comparing(GraphJobStatus::getSubmittedAt).reversed())
+                .toList();
+    }
+
+    /**
+     * Requests cancellation; returns the status right after the request (finished jobs are unaffected)
+     */
+    public GraphJobStatus cancel(String jobId) {
+        GraphJob job = findJob(jobId);
+        if (!job.isFinished()) {
+            job.cancel();
+            logger.info("Cancellation requested for graph job {}", jobId);
+        }
+        return job.toStatus();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(GraphJob::cancel);
+        executor.shutdown();
+    }
+
+    private void run(GraphJob job, ReplaceGraphRequest request) {
+        String docketUuid = job.getDocketUuid();
+        DocketLane lane = enterLane(docketUuid);
+        try {
+            lane.permits.acquire();
+            try {
+                globalPermits.acquire();
+                try {
+                    if (!job.start()) {
+                        return;
+                    }
+                    job.succeeded(docketGraphService.replaceGraph(docketUuid, request, job.getMonitor()));
+                    logger.info("Graph job {} for docket {} succeeded", job.getId(), docketUuid);
+                } finally {
+                    globalPermits.release();
+                }
+            } finally {
+                lane.permits.release();
+            }
+        } catch (InterruptedException e) {
+            job.cancelled();
+            Thread.currentThread().interrupt();
+        } catch (SyncCancelledException e) {
+            job.cancelled();
+            logger.info("Graph job {} for docket {} cancelled", job.getId(), docketUuid);
+        } catch (Throwable e) {
+            // Errors too: a job left RUNNING would never reach a state its pollers can stop at
+            job.failed(e.getMessage() != null ? e.getMessage() : e.toString());
+            logger.warn("Graph job {} for docket {} failed", job.getId(), docketUuid, e);
+        } finally {
+            leaveLane(docketUuid);
+        }
+    }
+
+    private GraphJob findJob(String jobId) {
+        GraphJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Graph job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void evictExpired() {
+        Instant cutoff = Instant.now().minus(props.getRetention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    /**
+     * Lanes are reference counted so an idle docket does not keep its semaphore,
+     * while a docket with queued jobs never gets a second one
+     */
+    private DocketLane enterLane(String docketUuid) {
+        return docketLanes.compute(docketUuid, (key, lane) -> {
+            DocketLane entered = lane != null ? lane : new DocketLane(props.getMaxPerDocket());
+            entered.users++;
+            return entered;
+        });
+    }
+
+    private void leaveLane(String docketUuid) {
+        docketLanes.computeIfPresent(docketUuid, (key, lane) -> --lane.users == 0 ? null : lane);
+    }
+
+    private static final class DocketLane {
+        private final Semaphore permits;
+        private int users;
+
+        DocketLane(int maxPerDocket) {
+            this.permits = new Semaphore(maxPerDocket, true);
+        }
+    }
+}
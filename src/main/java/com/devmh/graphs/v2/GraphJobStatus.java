@@ -0,0 +1,33 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+public class GraphJobStatus {
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    private String jobId;
+    private String docketUuid;
+    private State state;
+    private boolean cancelRequested;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    /** Progress of the running sync (see SyncContext) */
+    private String operation;
+    private String phase;
+    private long batchesWritten;
+    private long rowsWritten;
+    /** Cases plus relationships of the request; copies and removals are written on top of these */
+    private long rowsRequested;
+    private long elapsedMs;
+    private Map<String, Long> phaseDurationsMs;
+
+    private GraphSyncResult result;
+    private String error;
+}
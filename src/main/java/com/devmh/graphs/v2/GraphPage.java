@@ -0,0 +1,18 @@
+package com.devmh.graphs.v2;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated read; nextCursor is null on the last page
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GraphPage<T> {
+    private List<T> items;
+    private String nextCursor;
+}
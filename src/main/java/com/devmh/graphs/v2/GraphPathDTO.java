@@ -0,0 +1,18 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class GraphPathDTO {
+    private String fromCaseUuid;
+    private String toCaseUuid;
+    private boolean directed;
+    private boolean found;
+    /** Number of relationships on the path, -1 if there is none */
+    private int length = -1;
+    /** Cases on the path, from first */
+    private List<String> caseUuids = new ArrayList<>();
+}
@@ -0,0 +1,171 @@
+package com.devmh.graphs.v2;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Represents the current state of the graph in Neo4j, dictionary-encoded:
+ * every case uuid of the version gets a dense int id, names and the shared flag are indexed by id,
+ * and relationships are (fromId, toId) pairs packed into longs.
+ */
+final class GraphState {
+
+    private final StringIntMap ids = new StringIntMap(1024);
+    private String[] uuids = new String[1024];
+    private String[] names = new String[1024];
+    private final BitSet shared = new BitSet();
+    private int caseCount;
+
+    private long[] edges = new long[1024];
+    private int edgeCount;
+    private final LongHashSet edgeSet = new LongHashSet(1024);
+
+    /**
+     * Adds a case of the version; a uuid seen before keeps its first entry
+     */
+    void addCase(String uuid, String name, boolean isShared) {
+        if (ids.putIfAbsent(uuid, caseCount) != StringIntMap.MISSING) {
+            return;
+        }
+        if (caseCount == uuids.length) {
+            uuids = Arrays.copyOf(uuids, caseCount * 2);
+            names = Arrays.copyOf(names, caseCount * 2);
+        }
+        uuids[caseCount] = uuid;
+        names[caseCount] = name;
+        if (isShared) {
+            shared.set(caseCount);
+        }
+        caseCount++;
+    }
+
+    /**
+     * Adds a relationship between two cases of the version
+     * Returns false (and ignores it) if an endpoint is not a case of the version
+     */
+    boolean addRelationship(String fromUuid, String toUuid) {
+        int fromId = ids.get(fromUuid);
+        int toId = ids.get(toUuid);
+        if (fromId < 0 || toId < 0) {
+            return false;
+        }
+        long edge = LongHashSet.pack(fromId, toId);
+        if (edgeSet.add(edge)) {
+            if (edgeCount == edges.length) {
+                edges = Arrays.copyOf(edges, edgeCount * 2);
+            }
+            edges[edgeCount++] = edge;
+        }
+        return true;
+    }
+
+    int caseCount() {
+        return caseCount;
+    }
+
+    int sharedCount() {
+        return shared.cardinality();
+    }
+
+    int relationshipCount() {
+        return edgeCount;
+    }
+
+    /** Id of a case of the version, or StringIntMap.MISSING */
+    int id(String uuid) {
+        return ids.get(uuid);
+    }
+
+    String uuid(int id) {
+        return uuids[id];
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    boolean isShared(String uuid) {
+        int id = ids.get(uuid);
+        return id >= 0 && shared.get(id);
+    }
+
+    long edge(int index) {
+        return edges[index];
+    }
+
+    boolean containsEdge(long edge) {
+        return edgeSet.contains(edge);
+    }
+
+    /**
+     * Shared cases that must be copied before the version is changed: the shared seeds, plus every
+     * shared case that reaches a seed or a removed case through relationships of this version.
+     * Removed cases themselves are never part of the closure.
+     */
+    Set<String> sharedClosure(Collection<String> seeds, Set<String> removed) {
+        if (shared.isEmpty()) {
+            return Set.of();
+        }
+
+        BitSet removedIds = new BitSet(caseCount);
+        for (String uuid : removed) {
+            int id = ids.get(uuid);
+            if (id >= 0) {
+                removedIds.set(id);
+            }
+        }
+
+        // Predecessor lists in CSR form: preds of id are predecessors[offsets[id] .. offsets[id + 1])
+        int[] offsets = new int[caseCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[LongHashSet.to(edges[i]) + 1]++;
+        }
+        for (int id = 0; id < caseCount; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+        int[] predecessors = new int[edgeCount];
+        int[] fill = Arrays.copyOf(offsets, caseCount);
+        for (int i = 0; i < edgeCount; i++) {
+            predecessors[fill[LongHashSet.to(edges[i])]++] = LongHashSet.from(edges[i]);
+        }
+
+        BitSet closure = new BitSet(caseCount);
+        int[] queue = new int[caseCount];
+        int head = 0;
+        int tail = 0;
+        for (String uuid : seeds) {
+            int id = ids.get(uuid);
+            if (id >= 0 && shared.get(id) && !removedIds.get(id) && !closure.get(id)) {
+                closure.set(id);
+                queue[tail++] = id;
+            }
+        }
+        for (int id = removedIds.nextSetBit(0); id >= 0; id = removedIds.nextSetBit(id + 1)) {
+            tail = enqueuePredecessors(id, offsets, predecessors, removedIds, closure, queue, tail);
+        }
+        while (head < tail) {
+            tail = enqueuePredecessors(queue[head++], offsets, predecessors, removedIds, closure, queue, tail);
+        }
+
+        Set<String> result = new HashSet<>();
+        for (int id = closure.nextSetBit(0); id >= 0; id = closure.nextSetBit(id + 1)) {
+            result.add(uuids[id]);
+        }
+        return result;
+    }
+
+    private int enqueuePredecessors(int id, int[] offsets, int[] predecessors, BitSet removedIds,
+                                    BitSet closure, int[] queue, int tail) {
+        for (int p = offsets[id]; p < offsets[id + 1]; p++) {
+            int pred = predecessors[p];
+            if (shared.get(pred) && !removedIds.get(pred) && !closure.get(pred)) {
+                closure.set(pred);
+                queue[tail++] = pred;
+            }
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,126 @@
+package com.devmh.graphs.v2;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Incrementally parses a docket graph from NDJSON (one object per line) or a top-level JSON array.
+ * Each object is either a case ({"uuid": "...", "name": "..."}) or a relationship
+ * ({"fromCaseUuid": "...", "toCaseUuid": "..."}); cases must precede the relationships that reference them.
+ * Cases need a name and each uuid may appear once, as a version holds one snapshot per case.
+ * Only one batch of each kind is held in memory at a time, plus the uuids of the cases read so far.
+ */
+@Component
+public class GraphStreamReader {
+
+    private final JsonFactory jsonFactory;
+
+    public GraphStreamReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Reads the stream and hands fixed-size batches to the sinks
+     * Pending cases are always flushed before a relationship batch so relationships can match their snapshots
+     */
+    public StreamCounts read(
+            InputStream in,
+            int batchSize,
+            Consumer<List<CaseNode>> caseSink,
+            Consumer<List<CaseRelationship>> relationshipSink) throws IOException {
+
+        StreamCounts counts = new StreamCounts();
+        List<CaseNode> cases = new ArrayList<>(batchSize);
+        List<CaseRelationship> relationships = new ArrayList<>(batchSize);
+        Set<String> caseUuids = new HashSet<>();
+
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_ARRAY || token == JsonToken.END_ARRAY) {
+                    continue;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    throw new InvalidGraphRequestException(
+                            "Expected a JSON object at " + parser.currentLocation() + " but found " + token);
+                }
+
+                String uuid = null;
+                String name = null;
+                String fromCaseUuid = null;
+                String toCaseUuid = null;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "uuid" -> uuid = parser.getValueAsString();
+                        case "name" -> name = parser.getValueAsString();
+                        case "fromCaseUuid" -> fromCaseUuid = parser.getValueAsString();
+                        case "toCaseUuid" -> toCaseUuid = parser.getValueAsString();
+                        default -> parser.skipChildren();
+                    }
+                }
+
+                if (uuid != null) {
+                    if (name == null) {
+                        throw new InvalidGraphRequestException(
+                                "Case " + uuid + " ending at " + parser.currentLocation() + " has no name");
+                    }
+                    if (!caseUuids.add(uuid)) {
+                        throw new InvalidGraphRequestException(
+                                "Case " + uuid + " ending at " + parser.currentLocation() + " appears more than once");
+                    }
+                    cases.add(new CaseNode(uuid, name));
+                    counts.cases++;
+                    if (cases.size() >= batchSize) {
+                        flush(cases, caseSink);
+                    }
+                } else if (fromCaseUuid != null && toCaseUuid != null) {
+                    CaseRelationship relationship = new CaseRelationship();
+                    relationship.setFromCaseUuid(fromCaseUuid);
+                    relationship.setToCaseUuid(toCaseUuid);
+                    relationships.add(relationship);
+                    counts.relationships++;
+                    if (relationships.size() >= batchSize) {
+                        flush(cases, caseSink);
+                        flush(relationships, relationshipSink);
+                    }
+                } else {
+                    throw new InvalidGraphRequestException(
+                            "Object ending at " + parser.currentLocation() + " is neither a case nor a relationship");
+                }
+            }
+        }
+
+        flush(cases, caseSink);
+        flush(relationships, relationshipSink);
+
+        return counts;
+    }
+
+    private <T> void flush(List<T> batch, Consumer<List<T>> sink) {
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+            batch.clear();
+        }
+    }
+
+    @Getter
+    public static class StreamCounts {
+        private int cases;
+        private int relationships;
+    }
+}
@@ -0,0 +1,46 @@
+package com.devmh.graphs.v2;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({GraphSyncProps.class, GraphCacheProps.class, GraphJobProps.class, RetentionProps.class,
+        GraphAnalyticsProps.class})
+public class GraphSyncConfig {
+
+    /**
+     * Bounded pool for parallel version writes; callers run the overflow themselves rather than queueing without limit
+     */
+    @Bean
+    public ThreadPoolTaskExecutor graphSyncWriteExecutor(GraphSyncProps props) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(props.getParallelism());
+        executor.setMaxPoolSize(props.getParallelism());
+        executor.setQueueCapacity(props.getPartitions() * 4);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("graph-sync-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Publishes hit, miss, eviction and size metrics of the graph cache as cache.* meters (cache=docketGraphs)
+     */
+    @Bean
+    public MeterBinder docketGraphCacheMetrics(DocketGraphCache docketGraphCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, docketGraphCache.getCache(), "docketGraphs");
+    }
+
+    @Bean
+    public MeterBinder graphAnalyticsCacheMetrics(GraphAnalyticsService graphAnalyticsService) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, graphAnalyticsService.getCache(), "graphAnalytics");
+    }
+}
@@ -0,0 +1,15 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "graphs.sync")
+public class GraphSyncProps {
+    /** Number of sessions writing concurrently in parallel mode */
+    private int parallelism = 4;
+    /** Number of hash partitions rows are spread over (at least parallelism) */
+    private int partitions = 8;
+    /** Retries of a batch that failed with a transient error (deadlock, leader switch) */
+    private int maxRetries = 3;
+}
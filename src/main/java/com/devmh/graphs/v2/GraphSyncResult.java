@@ -2,6 +2,8 @@ package com.devmh.graphs.v2;
 
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class GraphSyncResult {
     private Integer versionNumber;
@@ -10,5 +12,12 @@ public class GraphSyncResult {
     private int casesUpdated;
     private int relationshipsAdded;
     private int relationshipsRemoved;
+    private Integer parentVersionNumber;
+    private int snapshotsShared;
+    private int snapshotsCreated;
     private long durationMs;
+    /** Time spent per sync phase, in execution order */
+    private Map<String, Long> phaseDurationsMs;
+    /** Queued replacements of the same version that were superseded by this sync (see DocketWriteLanes) */
+    private int coalescedRequests;
 }
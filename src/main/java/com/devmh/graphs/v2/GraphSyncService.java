@@ -2,11 +2,16 @@ package com.devmh.graphs.v2;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.neo4j.core.Neo4jClient;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -16,21 +21,46 @@ import java.util.stream.Collectors;
  * 2. Batched UNWIND operations for bulk creates/updates
  * 3. Efficient MERGE operations to avoid duplicate work
  * 4. Minimized database round trips
+ *
+ * Versions may share CaseSnapshot nodes (copy-on-write, see {@link #forkGraph}). The invariant is
+ * that every RELATED_TO_CASE edge leaving a snapshot of a version points to a snapshot of the same
+ * version, so a shared snapshot is never mutated in place: it is copied for the version being
+ * written first, together with every shared snapshot that can reach it.
+ * Snapshots carry the case name as of their version (Case.name is only the latest name), so a
+ * rename is a change of the snapshot as well.
+ * Every operation is measured phase by phase and batch by batch through a SyncContext (see SyncMetrics).
  */
 @Service
 public class GraphSyncService {
 
     private static final Logger logger = LoggerFactory.getLogger(GraphSyncService.class);
-    private static final int BATCH_SIZE = 1000;
+    static final int BATCH_SIZE = 1000;
 
     private final Neo4jClient neo4jClient;
-
-    public GraphSyncService(Neo4jClient neo4jClient) {
+    private final ParallelBatchWriter parallelBatchWriter;
+    private final DocketVersionAllocator versionAllocator;
+    private final TransactionTemplate requiresNewTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SyncMetrics syncMetrics;
+
+    public GraphSyncService(
+            Neo4jClient neo4jClient,
+            ParallelBatchWriter parallelBatchWriter,
+            DocketVersionAllocator versionAllocator,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            SyncMetrics syncMetrics) {
         this.neo4jClient = neo4jClient;
+        this.parallelBatchWriter = parallelBatchWriter;
+        this.versionAllocator = versionAllocator;
+        this.eventPublisher = eventPublisher;
+        this.syncMetrics = syncMetrics;
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     /**
-     * Synchronizes the application model graph with Neo4j for a specific docket version
+     * Synchronizes the application model graph with Neo4j for an existing docket version
      * Uses efficient diff-based approach to minimize database operations
      */
     @Transactional
@@ -40,109 +70,542 @@ public class GraphSyncService {
             List<CaseNode> applicationCases,
             List<CaseRelationship> applicationRelationships) {
 
-        long startTime = System.currentTimeMillis();
-        GraphSyncResult result = new GraphSyncResult();
+        SyncContext context = syncMetrics.start(SyncMetrics.SYNC);
 
         logger.debug("Starting graph sync for docket {} version {}", docketUuid, versionNumber);
 
-        // Step 1: Ensure docket version exists
-        ensureDocketVersionExists(docketUuid, versionNumber);
+        // Step 1: Look up the docket version
+        String versionUuid = context.phase("findVersion", () -> findVersionUuid(docketUuid, versionNumber));
+
+        GraphSyncResult result = synchronize(
+                docketUuid, versionNumber, versionUuid, applicationCases, applicationRelationships, context);
+        context.finish(result);
+
+        logger.info("Graph sync completed in {}ms: {}", result.getDurationMs(), result.getPhaseDurationsMs());
+
+        return result;
+    }
+
+    /**
+     * Creates the next version of the docket (see DocketVersionAllocator) and writes the graph into it
+     * The monitor (may be null) can follow and cancel the sync
+     */
+    @Transactional
+    public GraphSyncResult createGraph(
+            String docketUuid,
+            String description,
+            List<CaseNode> applicationCases,
+            List<CaseRelationship> applicationRelationships,
+            SyncMonitor monitor) {
+
+        SyncContext context = syncMetrics.start(SyncMetrics.SYNC, monitor);
+
+        // Step 1: Allocate the version
+        DocketVersionAllocator.Allocation version = context.phase("allocateVersion",
+                () -> versionAllocator.allocate(docketUuid, description));
+        logger.debug("Starting graph sync for docket {} new version {}", docketUuid, version.versionNumber());
+
+        GraphSyncResult result = synchronize(docketUuid, version.versionNumber(), version.versionUuid(),
+                applicationCases, applicationRelationships, context);
+        context.finish(result);
+
+        logger.info("Graph sync completed in {}ms: {}", result.getDurationMs(), result.getPhaseDurationsMs());
+
+        return result;
+    }
+
+    /**
+     * Creates a new version as a copy-on-write fork of its parent version.
+     * The new version first links every CaseSnapshot of the parent, then the usual diff is applied
+     * against that shared state, so only added cases, cases whose outgoing relationships changed
+     * (and the shared cases pointing at them) get new snapshots.
+     */
+    @Transactional
+    public GraphSyncResult forkGraph(
+            String docketUuid,
+            Integer parentVersionNumber,
+            String description,
+            List<CaseNode> applicationCases,
+            List<CaseRelationship> applicationRelationships,
+            SyncMonitor monitor) {
+
+        SyncContext context = syncMetrics.start(SyncMetrics.FORK, monitor);
+
+        DocketVersionAllocator.Allocation version = context.phase("allocateVersion",
+                () -> versionAllocator.allocate(docketUuid, description));
+        Integer versionNumber = version.versionNumber();
+        String versionUuid = version.versionUuid();
+        logger.debug("Forking docket {} version {} into version {}", docketUuid, parentVersionNumber, versionNumber);
+
+        long linked = context.phase("linkParent", () -> linkParentSnapshots(docketUuid, parentVersionNumber, versionUuid));
+        logger.debug("Linked {} snapshots of version {}", linked, parentVersionNumber);
+
+        GraphSyncResult result = synchronize(
+                docketUuid, versionNumber, versionUuid, applicationCases, applicationRelationships, context);
+        result.setParentVersionNumber(parentVersionNumber);
+        context.finish(result);
+
+        logger.info("Graph fork completed in {}ms: {} snapshots shared, {} created",
+                result.getDurationMs(), result.getSnapshotsShared(), result.getSnapshotsCreated());
+
+        return result;
+    }
+
+    /**
+     * Writes a brand-new version with hash-partitioned batches on several sessions in parallel.
+     * The version is staged (not linked to its docket, so invisible to every read path) while the
+     * partitions commit independently, and is published with a single HAS_VERSION link afterwards.
+     * Runs outside the caller's transaction; a failed staging is deleted again.
+     */
+    public GraphSyncResult syncGraphParallel(
+            String docketUuid,
+            String description,
+            List<CaseNode> applicationCases,
+            List<CaseRelationship> applicationRelationships,
+            SyncMonitor monitor) {
+
+        SyncContext context = syncMetrics.start(SyncMetrics.PARALLEL, monitor);
+
+        // Same validation as the diff against an empty version: duplicate cases are rejected, relationships collapse
+        Map<String, String> caseNames = new LinkedHashMap<>();
+        for (CaseNode c : applicationCases) {
+            GraphDiffEngine.checkCase(c);
+            if (caseNames.put(c.getUuid(), c.getName()) != null) {
+                throw new InvalidGraphRequestException("Duplicate case uuid " + c.getUuid());
+            }
+        }
+        List<CaseNode> cases = caseNames.entrySet().stream()
+                .map(e -> new CaseNode(e.getKey(), e.getValue()))
+                .toList();
+        List<RelationshipKey> relationships = applicationRelationships.stream()
+                .map(GraphDiffEngine::checkRelationship)
+                .map(r -> new RelationshipKey(r.getFromCaseUuid(), r.getToCaseUuid()))
+                .distinct()
+                .toList();
+
+        DocketVersionAllocator.Allocation version = context.phase("stage",
+                () -> requiresNewTransaction.execute(status -> versionAllocator.allocateStaged(docketUuid, description)));
+        Integer versionNumber = version.versionNumber();
+        String versionUuid = version.versionUuid();
+        logger.debug("Staged docket {} version {} as {}", docketUuid, versionNumber, versionUuid);
+
+        // Relationships whose ends are not cases of the version are skipped, so only created ones are counted
+        AtomicInteger relationshipsAdded = new AtomicInteger();
+        try {
+            // Cases first (every partition touches distinct Case nodes), then relationships by source case
+            context.phase("addCases", () -> parallelBatchWriter.write(cases, CaseNode::getUuid, BATCH_SIZE,
+                    batch -> context.batch("cases", batch.size(), () -> writeCaseBatch(versionUuid, toCaseData(batch), context))));
+            context.phase("addRelationships", () -> parallelBatchWriter.write(relationships, r -> r.fromUuid, BATCH_SIZE,
+                    batch -> relationshipsAdded.addAndGet(context.batch("relationships", batch.size(),
+                            () -> writeRelationshipBatch(versionUuid, toRelationshipData(batch), context)))));
+
+            context.phase("publish", () -> requiresNewTransaction.executeWithoutResult(
+                    status -> versionAllocator.publish(docketUuid, versionUuid)));
+            eventPublisher.publishEvent(DocketGraphChangedEvent.version(docketUuid, versionNumber, caseNames.keySet()));
+        } catch (RuntimeException e) {
+            logger.warn("Parallel sync of docket {} version {} failed, discarding staged version {}",
+                    docketUuid, versionNumber, versionUuid, e);
+            requiresNewTransaction.executeWithoutResult(status -> discardStagedVersion(versionUuid));
+            throw e;
+        }
+
+        GraphSyncResult result = new GraphSyncResult();
+        result.setVersionNumber(versionNumber);
+        result.setCasesAdded(cases.size());
+        result.setRelationshipsAdded(relationshipsAdded.get());
+        result.setSnapshotsCreated(cases.size());
+        context.finish(result);
+
+        logger.info("Parallel graph sync completed in {}ms: {}", result.getDurationMs(), result.getPhaseDurationsMs());
+
+        return result;
+    }
+
+    /**
+     * Creates the next, empty version that batches can then be appended to (streaming ingestion)
+     */
+    @Transactional
+    public DocketVersionAllocator.Allocation createEmptyVersion(String docketUuid, String description, SyncContext context) {
+        DocketVersionAllocator.Allocation version = context.phase("allocateVersion",
+                () -> versionAllocator.allocate(docketUuid, description));
+        eventPublisher.publishEvent(DocketGraphChangedEvent.version(docketUuid, version.versionNumber(), List.of()));
+        return version;
+    }
+
+    /**
+     * Appends one batch of cases to a version without diffing against its current state
+     */
+    @Transactional
+    public void appendCases(String versionUuid, List<CaseNode> cases, SyncContext context) {
+        if (!cases.isEmpty()) {
+            context.phase("addCases", () -> addCases(versionUuid, cases, context));
+            eventPublisher.publishEvent(DocketGraphChangedEvent.cases(
+                    cases.stream().map(CaseNode::getUuid).toList()));
+        }
+    }
+
+    /**
+     * Appends one batch of relationships to a version and returns how many were created; relationships
+     * whose cases have no snapshot in the version are skipped
+     */
+    @Transactional
+    public int appendRelationships(String versionUuid, List<CaseRelationship> relationships, SyncContext context) {
+        if (relationships.isEmpty()) {
+            return 0;
+        }
+        return context.phase("addRelationships", () -> addRelationships(versionUuid, relationships.stream()
+                .map(r -> new RelationshipKey(r.getFromCaseUuid(), r.getToCaseUuid()))
+                .toList(), context));
+    }
+
+    /**
+     * Appends one batch of case rows ({uuid, name}) to a version, for readers that decode straight into
+     * query parameters instead of building CaseNodes (see VersionArchive)
+     */
+    @Transactional
+    public void appendCaseData(String versionUuid, List<Map<String, Object>> caseData, SyncContext context) {
+        if (!caseData.isEmpty()) {
+            context.phase("addCases", () -> context.batch("cases", caseData.size(),
+                    () -> writeCaseBatch(versionUuid, caseData, context)));
+            eventPublisher.publishEvent(DocketGraphChangedEvent.cases(
+                    caseData.stream().map(c -> (String) c.get("uuid")).toList()));
+        }
+    }
+
+    /**
+     * Appends one batch of relationship rows ({fromUuid, toUuid}); both cases must already have snapshots in it
+     */
+    @Transactional
+    public int appendRelationshipData(String versionUuid, List<Map<String, Object>> relationshipData, SyncContext context) {
+        if (relationshipData.isEmpty()) {
+            return 0;
+        }
+        return context.phase("addRelationships", () -> context.batch("relationships", relationshipData.size(),
+                () -> writeRelationshipBatch(versionUuid, relationshipData, context)));
+    }
+
+    /**
+     * Applies explicit add/remove/rename operations to an existing version.
+     * Only the cases named in the delta (and, for copy-on-write versions, the shared snapshots
+     * that can reach them) are read; the rest of the version is never loaded or diffed.
+     * Operations are applied as: remove relationships, remove cases, add cases, rename cases, add relationships.
+     */
+    @Transactional
+    public GraphSyncResult applyDelta(String docketUuid, Integer versionNumber, GraphDeltaRequest delta) {
+        // Same checks as a full sync, before anything is read or written
+        delta.getAddCases().forEach(GraphDiffEngine::checkCase);
+        delta.getRenameCases().forEach(GraphDiffEngine::checkCase);
+        if (delta.getRemoveCases().contains(null)) {
+            throw new InvalidGraphRequestException("Every removed case needs a uuid");
+        }
+        delta.getAddRelationships().forEach(GraphDiffEngine::checkRelationship);
+        delta.getRemoveRelationships().forEach(GraphDiffEngine::checkRelationship);
+
+        SyncContext context = syncMetrics.start(SyncMetrics.DELTA);
+
+        String versionUuid = context.phase("findVersion", () -> findVersionUuid(docketUuid, versionNumber));
+
+        // Same de-duplication as a full sync; later entries win for names
+        Map<String, String> addedNames = new LinkedHashMap<>();
+        delta.getAddCases().forEach(c -> addedNames.put(c.getUuid(), c.getName()));
+        Map<String, String> renamedNames = new LinkedHashMap<>();
+        delta.getRenameCases().forEach(c -> renamedNames.put(c.getUuid(), c.getName()));
+        Set<String> removeCases = new HashSet<>(delta.getRemoveCases());
+        Set<RelationshipKey> addRelationships = toRelationshipKeys(delta.getAddRelationships());
+        Set<RelationshipKey> removeRelationships = toRelationshipKeys(delta.getRemoveRelationships());
+
+        // Step 1: Probe only the cases the delta touches
+        Set<String> touched = new HashSet<>(addedNames.keySet());
+        touched.addAll(renamedNames.keySet());
+        touched.addAll(removeCases);
+        addRelationships.forEach(r -> touched.add(r.fromUuid));
+        removeRelationships.forEach(r -> touched.add(r.fromUuid));
+        Map<String, Boolean> present = context.phase("probe", () -> probeCases(versionUuid, touched));
+
+        Set<String> casesToRemove = new HashSet<>(removeCases);
+        casesToRemove.retainAll(present.keySet());
+
+        List<CaseNode> casesToAdd = new ArrayList<>();
+        Map<String, String> casesToRename = new LinkedHashMap<>();
+        addedNames.forEach((uuid, name) -> {
+            if (present.containsKey(uuid) && !casesToRemove.contains(uuid)) {
+                casesToRename.put(uuid, name);
+            } else {
+                casesToAdd.add(new CaseNode(uuid, name));
+            }
+        });
+        renamedNames.forEach((uuid, name) -> {
+            if (present.containsKey(uuid) && !casesToRemove.contains(uuid)) {
+                casesToRename.put(uuid, name);
+            }
+        });
+
+        // Step 2: Copy the shared snapshots that are about to change
+        Set<String> seeds = new HashSet<>();
+        addRelationships.forEach(r -> seeds.add(r.fromUuid));
+        removeRelationships.forEach(r -> seeds.add(r.fromUuid));
+        seeds.addAll(casesToRename.keySet());
+        seeds.removeIf(uuid -> !Boolean.TRUE.equals(present.get(uuid)) || casesToRemove.contains(uuid));
+        Set<String> casesToCopy = context.phase("closure", () -> sharedClosure(versionUuid, seeds, casesToRemove));
+        context.phase("copyShared", () -> copySharedSnapshots(versionUuid, casesToCopy, context));
+
+        // Step 3: Apply in the same order as a full sync
+        GraphSyncResult result = new GraphSyncResult();
+        Set<RelationshipKey> relationshipsToRemove = removeRelationships.stream()
+                .filter(r -> !casesToRemove.contains(r.fromUuid))
+                .collect(Collectors.toSet());
+        if (!relationshipsToRemove.isEmpty()) {
+            result.setRelationshipsRemoved(context.phase("removeRelationships",
+                    () -> removeRelationships(versionUuid, relationshipsToRemove, context)));
+        }
+        if (!casesToRemove.isEmpty()) {
+            context.phase("removeCases", () -> removeCaseSnapshots(versionUuid, casesToRemove, context));
+        }
+        if (!casesToAdd.isEmpty()) {
+            context.phase("addCases", () -> addCases(versionUuid, casesToAdd, context));
+        }
+        if (!casesToRename.isEmpty()) {
+            context.phase("updateCases", () -> updateCases(versionUuid, casesToRename.entrySet().stream()
+                    .map(e -> new CaseNode(e.getKey(), e.getValue()))
+                    .collect(Collectors.toSet()), context));
+        }
+        if (!addRelationships.isEmpty()) {
+            result.setRelationshipsAdded(context.phase("addRelationships",
+                    () -> addRelationships(versionUuid, addRelationships, context)));
+        }
+
+        result.setVersionNumber(versionNumber);
+        result.setCasesAdded(casesToAdd.size());
+        result.setCasesRemoved(casesToRemove.size());
+        result.setCasesUpdated(casesToRename.size());
+        result.setSnapshotsCreated(casesToAdd.size() + casesToCopy.size());
+        context.finish(result);
+
+        Set<String> namedCases = new HashSet<>(casesToRename.keySet());
+        casesToAdd.forEach(c -> namedCases.add(c.getUuid()));
+        eventPublisher.publishEvent(DocketGraphChangedEvent.version(docketUuid, versionNumber, namedCases));
+
+        logger.info("Delta applied to docket {} version {} in {}ms: +{} -{} ~{} cases, +{} -{} relationships, {} snapshots copied",
+                docketUuid, versionNumber, result.getDurationMs(),
+                result.getCasesAdded(), result.getCasesRemoved(), result.getCasesUpdated(),
+                result.getRelationshipsAdded(), result.getRelationshipsRemoved(), casesToCopy.size());
+
+        return result;
+    }
+
+    private GraphSyncResult synchronize(
+            String docketUuid,
+            Integer versionNumber,
+            String versionUuid,
+            List<CaseNode> applicationCases,
+            List<CaseRelationship> applicationRelationships,
+            SyncContext context) {
+
+        GraphSyncResult result = new GraphSyncResult();
 
         // Step 2: Get current state from Neo4j (single query for efficiency)
-        GraphState currentState = getCurrentGraphState(docketUuid, versionNumber);
-        logger.debug("Current state: {} cases, {} relationships",
-                currentState.caseUuids.size(), currentState.relationships.size());
+        GraphState currentState = context.phase("loadState", () -> getCurrentGraphState(versionUuid));
+        logger.debug("Current state: {} cases ({} shared), {} relationships",
+                currentState.caseCount(), currentState.sharedCount(), currentState.relationshipCount());
 
         // Step 3: Calculate diff (in-memory, very fast)
-        GraphDiff diff = calculateDiff(currentState, applicationCases, applicationRelationships);
+        GraphDiff diff = context.phase("diff",
+                () -> calculateDiff(currentState, applicationCases, applicationRelationships));
         logger.debug("Diff calculated: +{} -{} ~{} cases, +{} -{} relationships",
                 diff.casesToAdd.size(), diff.casesToRemove.size(), diff.casesToUpdate.size(),
                 diff.relationshipsToAdd.size(), diff.relationshipsToRemove.size());
 
-        // Step 4: Apply changes efficiently using batched operations
-        applyCaseChanges(docketUuid, versionNumber, diff);
-        applyRelationshipChanges(docketUuid, versionNumber, diff);
+        // Step 4: Copy shared snapshots that are about to change, then apply changes using batched operations
+        Set<String> casesToCopy = context.phase("closure", () -> sharedClosure(currentState, diff));
+        context.phase("copyShared", () -> copySharedSnapshots(versionUuid, casesToCopy, context));
+        applyRelationshipRemovals(versionUuid, diff, context);
+        applyCaseChanges(versionUuid, diff, context);
+        applyRelationshipAdditions(versionUuid, diff, context);
 
         // Step 5: Populate result
+        result.setVersionNumber(versionNumber);
         result.setCasesAdded(diff.casesToAdd.size());
         result.setCasesRemoved(diff.casesToRemove.size());
         result.setCasesUpdated(diff.casesToUpdate.size());
         result.setRelationshipsAdded(diff.relationshipsToAdd.size());
         result.setRelationshipsRemoved(diff.relationshipsToRemove.size());
-        result.setDurationMs(System.currentTimeMillis() - startTime);
 
-        logger.info("Graph sync completed in {}ms", result.getDurationMs());
+        long sharedRemoved = diff.casesToRemove.stream().filter(currentState::isShared).count();
+        result.setSnapshotsShared((int) (currentState.sharedCount() - casesToCopy.size() - sharedRemoved));
+        result.setSnapshotsCreated(diff.casesToAdd.size() + casesToCopy.size());
+
+        // Added cases are MERGEd, so their (shared) Case names may have changed as well
+        Set<String> namedCases = new HashSet<>();
+        diff.casesToAdd.forEach(c -> namedCases.add(c.getUuid()));
+        diff.casesToUpdate.forEach(c -> namedCases.add(c.getUuid()));
+        eventPublisher.publishEvent(DocketGraphChangedEvent.version(docketUuid, versionNumber, namedCases));
 
         return result;
     }
 
     /**
-     * Ensures the DocketVersion node exists
+     * Deletes a staged version and its (never shared) snapshots
      */
-    private void ensureDocketVersionExists(String docketUuid, Integer versionNumber) {
+    private void discardStagedVersion(String versionUuid) {
         String query = """
-            MATCH (d:Docket {uuid: $docketUuid})
-            MERGE (d)-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
-            ON CREATE SET dv.uuid = randomUUID(),
-                         dv.createdAt = datetime(),
-                         dv.isActive = true,
-                         dv.description = 'Version ' + $versionNumber
-            RETURN dv.uuid as versionUuid
+            MATCH (dv:DocketVersion {uuid: $versionUuid})
+            WHERE dv.stagedFor IS NOT NULL
+            OPTIONAL MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)
+            DETACH DELETE cs, dv
             """;
 
         neo4jClient.query(query)
-                .bind(docketUuid).to("docketUuid")
-                .bind(versionNumber).to("versionNumber")
+                .bind(versionUuid).to("versionUuid")
                 .run();
     }
 
     /**
-     * Retrieves current graph state in a single optimized query
+     * Looks up the uuid of an existing version
      */
-    private GraphState getCurrentGraphState(String docketUuid, Integer versionNumber) {
+    private String findVersionUuid(String docketUuid, Integer versionNumber) {
         String query = """
             MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
-            OPTIONAL MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)-[:SNAPSHOT_OF]->(c:Case)
-            OPTIONAL MATCH (cs)-[r:RELATED_TO_CASE]->(relatedCs:CaseSnapshot)-[:SNAPSHOT_OF]->(relatedC:Case)
-            RETURN collect(DISTINCT {caseUuid: c.uuid, caseName: c.name, snapshotUuid: cs.uuid}) as cases,
-                   collect(DISTINCT {fromCaseUuid: c.uuid, toCaseUuid: relatedC.uuid}) as relationships
+            RETURN dv.uuid as versionUuid
             """;
 
-        Map<String, Object> result = neo4jClient.query(query)
+        return neo4jClient.query(query)
                 .bind(docketUuid).to("docketUuid")
                 .bind(versionNumber).to("versionNumber")
-                .fetch()
+                .fetchAs(String.class)
                 .one()
-                .orElse(Map.of("cases", List.of(), "relationships", List.of()));
-
-        return parseGraphState(result);
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Version " + versionNumber + " not found for docket " + docketUuid));
     }
 
-    private GraphState parseGraphState(Map<String, Object> result) {
-        GraphState state = new GraphState();
+    /**
+     * Returns the given cases that have a snapshot in the version, mapped to whether that snapshot is shared
+     */
+    private Map<String, Boolean> probeCases(String versionUuid, Set<String> caseUuids) {
+        Map<String, Boolean> present = new HashMap<>();
+        if (caseUuids.isEmpty()) {
+            return present;
+        }
 
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> casesRaw = (List<Map<String, Object>>) result.get("cases");
-        if (casesRaw != null) {
-            for (Map<String, Object> caseData : casesRaw) {
-                String caseUuid = (String) caseData.get("caseUuid");
-                if (caseUuid != null) {
-                    state.caseUuids.add(caseUuid);
-                    state.caseNames.put(caseUuid, (String) caseData.get("caseName"));
-                }
-            }
+        for (List<String> batch : partition(new ArrayList<>(caseUuids), BATCH_SIZE)) {
+            String query = """
+                MATCH (dv:DocketVersion {uuid: $versionUuid})
+                UNWIND $caseUuids as caseUuid
+                MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)-[:SNAPSHOT_OF]->(c:Case {uuid: caseUuid})
+                RETURN c.uuid as caseUuid,
+                       size([(cs)<-[:CONTAINS_CASE]-(:DocketVersion) | 1]) > 1 as shared
+                """;
+
+            neo4jClient.query(query)
+                    .bind(versionUuid).to("versionUuid")
+                    .bind(batch).to("caseUuids")
+                    .fetch()
+                    .all()
+                    .forEach(row -> present.put((String) row.get("caseUuid"), (Boolean) row.get("shared")));
         }
+        return present;
+    }
 
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> relsRaw = (List<Map<String, Object>>) result.get("relationships");
-        if (relsRaw != null) {
-            for (Map<String, Object> relData : relsRaw) {
-                String fromUuid = (String) relData.get("fromCaseUuid");
-                String toUuid = (String) relData.get("toCaseUuid");
-                if (fromUuid != null && toUuid != null) {
-                    state.relationships.add(new RelationshipKey(fromUuid, toUuid));
+    /**
+     * Same closure as {@link #sharedClosure(GraphState, GraphDiff)}, but walks the predecessors
+     * in the database one level at a time instead of over a fully loaded version
+     */
+    private Set<String> sharedClosure(String versionUuid, Set<String> sharedSeeds, Set<String> casesToRemove) {
+        Set<String> closure = new HashSet<>(sharedSeeds);
+        Set<String> frontier = new HashSet<>(sharedSeeds);
+        frontier.addAll(casesToRemove);
+
+        while (!frontier.isEmpty()) {
+            Set<String> next = new HashSet<>();
+            for (List<String> batch : partition(new ArrayList<>(frontier), BATCH_SIZE)) {
+                String query = """
+                    MATCH (dv:DocketVersion {uuid: $versionUuid})
+                    UNWIND $caseUuids as caseUuid
+                    MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)-[:SNAPSHOT_OF]->(:Case {uuid: caseUuid})
+                    MATCH (dv)-[:CONTAINS_CASE]->(pred:CaseSnapshot)-[:RELATED_TO_CASE]->(cs)
+                    WHERE size([(pred)<-[:CONTAINS_CASE]-(:DocketVersion) | 1]) > 1
+                    MATCH (pred)-[:SNAPSHOT_OF]->(pc:Case)
+                    RETURN DISTINCT pc.uuid as caseUuid
+                    """;
+
+                for (String pred : neo4jClient.query(query)
+                        .bind(versionUuid).to("versionUuid")
+                        .bind(batch).to("caseUuids")
+                        .fetchAs(String.class)
+                        .all()) {
+                    if (!casesToRemove.contains(pred) && closure.add(pred)) {
+                        next.add(pred);
+                    }
                 }
             }
+            frontier = next;
+        }
+
+        return closure;
+    }
+
+    /**
+     * Links every CaseSnapshot of the parent version into the new version (server side, no payload)
+     */
+    private long linkParentSnapshots(String docketUuid, Integer parentVersionNumber, String versionUuid) {
+        String query = """
+            MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(parent:DocketVersion {versionNumber: $parentVersionNumber})
+            MATCH (dv:DocketVersion {uuid: $versionUuid})
+            MATCH (parent)-[:CONTAINS_CASE]->(cs:CaseSnapshot)
+            CREATE (dv)-[:CONTAINS_CASE {versionUuid: dv.uuid, snapshotUuid: cs.uuid}]->(cs)
+            RETURN count(cs) as linked
+            """;
+
+        return neo4jClient.query(query)
+                .bind(docketUuid).to("docketUuid")
+                .bind(parentVersionNumber).to("parentVersionNumber")
+                .bind(versionUuid).to("versionUuid")
+                .fetchAs(Long.class)
+                .one()
+                .orElse(0L);
+    }
+
+    /**
+     * Retrieves current graph state, streaming cases and relationships straight into the encoded form
+     * (no intermediate collect() of the whole version into one record)
+     */
+    private GraphState getCurrentGraphState(String versionUuid) {
+        GraphState state = new GraphState();
+
+        String casesQuery = """
+            MATCH (dv:DocketVersion {uuid: $versionUuid})-[:CONTAINS_CASE]->(cs:CaseSnapshot)-[:SNAPSHOT_OF]->(c:Case)
+            RETURN c.uuid as caseUuid,
+                   coalesce(cs.name, c.name) as caseName,
+                   size([(cs)<-[:CONTAINS_CASE]-(:DocketVersion) | 1]) > 1 as shared
+            """;
+
+        neo4jClient.query(casesQuery)
+                .bind(versionUuid).to("versionUuid")
+                .fetchAs(Boolean.class)
+                .mappedBy((typeSystem, record) -> {
+                    state.addCase(record.get("caseUuid").asString(), record.get("caseName").asString(null),
+                            record.get("shared").asBoolean());
+                    return Boolean.TRUE;
+                })
+                .all();
+
+        String relationshipsQuery = """
+            MATCH (dv:DocketVersion {uuid: $versionUuid})-[:CONTAINS_CASE]->(cs:CaseSnapshot)-[:RELATED_TO_CASE]->(relatedCs:CaseSnapshot)
+            MATCH (cs)-[:SNAPSHOT_OF]->(c:Case)
+            MATCH (relatedCs)-[:SNAPSHOT_OF]->(relatedC:Case)
+            RETURN c.uuid as fromCaseUuid, relatedC.uuid as toCaseUuid
+            """;
+
+        long outside = neo4jClient.query(relationshipsQuery)
+                .bind(versionUuid).to("versionUuid")
+                .fetchAs(Boolean.class)
+                .mappedBy((typeSystem, record) -> state.addRelationship(
+                        record.get("fromCaseUuid").asString(), record.get("toCaseUuid").asString()))
+                .all()
+                .stream()
+                .filter(added -> !added)
+                .count();
+        if (outside > 0) {
+            logger.warn("Ignored {} relationships of version {} that point outside the version", outside, versionUuid);
         }
 
         return state;
@@ -150,104 +613,150 @@ public class GraphSyncService {
 
     /**
      * Calculates the diff between current and desired state
-     * This is done entirely in memory for maximum performance
+     * This is done entirely in memory on dictionary-encoded, primitive data (see GraphDiffEngine)
      */
     private GraphDiff calculateDiff(
             GraphState currentState,
             List<CaseNode> applicationCases,
             List<CaseRelationship> applicationRelationships) {
 
-        GraphDiff diff = new GraphDiff();
-
-        // Build sets for O(1) lookups
-        Set<String> appCaseUuids = applicationCases.stream()
-                .map(CaseNode::getUuid)
-                .collect(Collectors.toSet());
+        return GraphDiffEngine.diff(currentState, applicationCases, applicationRelationships);
+    }
 
-        Map<String, String> appCaseNames = applicationCases.stream()
-                .collect(Collectors.toMap(CaseNode::getUuid, CaseNode::getName));
+    /**
+     * Determines which shared snapshots of the version must be copied before the diff is applied.
+     * Seeds are shared cases whose outgoing relationships or name change, or that point at a removed case;
+     * every shared case that can reach a seed is copied as well, because its edges would otherwise
+     * point at a snapshot that is no longer part of this version.
+     */
+    private Set<String> sharedClosure(GraphState currentState, GraphDiff diff) {
+        List<String> seeds = new ArrayList<>();
+        diff.relationshipsToAdd.forEach(r -> seeds.add(r.fromUuid));
+        diff.relationshipsToRemove.forEach(r -> seeds.add(r.fromUuid));
+        diff.casesToUpdate.forEach(c -> seeds.add(c.getUuid()));
 
-        Set<RelationshipKey> appRelationships = applicationRelationships.stream()
-                .map(r -> new RelationshipKey(r.getFromCaseUuid(), r.getToCaseUuid()))
-                .collect(Collectors.toSet());
+        return currentState.sharedClosure(seeds, diff.casesToRemove);
+    }
 
-        // Calculate case diff
-        for (String appCaseUuid : appCaseUuids) {
-            if (!currentState.caseUuids.contains(appCaseUuid)) {
-                // Case exists in app but not in Neo4j - add it
-                diff.casesToAdd.add(new CaseNode(appCaseUuid, appCaseNames.get(appCaseUuid)));
-            } else {
-                // Case exists in both - check if name changed
-                String currentName = currentState.caseNames.get(appCaseUuid);
-                String appName = appCaseNames.get(appCaseUuid);
-                if (!Objects.equals(currentName, appName)) {
-                    diff.casesToUpdate.add(new CaseNode(appCaseUuid, appName));
-                }
-            }
+    /**
+     * Replaces shared snapshots with private copies for this version (batched).
+     * 1. Create the copies and unlink the shared snapshots from the version
+     * 2. Re-create the outgoing relationships of each copy against this version's snapshots
+     * 3. Re-point private snapshots that still reference an unlinked shared snapshot
+     */
+    private void copySharedSnapshots(String versionUuid, Set<String> caseUuids, SyncContext context) {
+        if (caseUuids.isEmpty()) {
+            return;
         }
 
-        for (String currentCaseUuid : currentState.caseUuids) {
-            if (!appCaseUuids.contains(currentCaseUuid)) {
-                // Case exists in Neo4j but not in app - remove it
-                diff.casesToRemove.add(currentCaseUuid);
-            }
-        }
+        List<String> sharedSnapshotUuids = new ArrayList<>();
+        for (List<String> batch : partition(new ArrayList<>(caseUuids), BATCH_SIZE)) {
+            String query = """
+                MATCH (dv:DocketVersion {uuid: $versionUuid})
+                UNWIND $caseUuids as caseUuid
+                MATCH (dv)-[cc:CONTAINS_CASE]->(shared:CaseSnapshot)-[:SNAPSHOT_OF]->(c:Case {uuid: caseUuid})
+                CREATE (copy:CaseSnapshot {
+                    uuid: randomUUID(),
+                    name: shared.name,
+                    snapshotAt: datetime()
+                })
+                CREATE (dv)-[:CONTAINS_CASE {versionUuid: dv.uuid, snapshotUuid: copy.uuid}]->(copy)
+                CREATE (copy)-[:SNAPSHOT_OF]->(c)
+                DELETE cc
+                RETURN shared.uuid as sharedUuid
+                """;
 
-        // Calculate relationship diff
-        for (RelationshipKey appRel : appRelationships) {
-            if (!currentState.relationships.contains(appRel)) {
-                diff.relationshipsToAdd.add(appRel);
-            }
+            sharedSnapshotUuids.addAll(context.batch("snapshotCopies", batch.size(), () -> neo4jClient.query(query)
+                    .bind(versionUuid).to("versionUuid")
+                    .bind(batch).to("caseUuids")
+                    .fetchAs(String.class)
+                    .all()));
         }
 
-        for (RelationshipKey currentRel : currentState.relationships) {
-            if (!appRelationships.contains(currentRel)) {
-                diff.relationshipsToRemove.add(currentRel);
-            }
+        for (List<String> batch : partition(sharedSnapshotUuids, BATCH_SIZE)) {
+            String copyEdgesQuery = """
+                MATCH (dv:DocketVersion {uuid: $versionUuid})
+                UNWIND $snapshotUuids as sharedUuid
+                MATCH (shared:CaseSnapshot {uuid: sharedUuid})-[:SNAPSHOT_OF]->(c:Case)
+                MATCH (dv)-[:CONTAINS_CASE]->(copy:CaseSnapshot)-[:SNAPSHOT_OF]->(c)
+                MATCH (shared)-[:RELATED_TO_CASE]->(:CaseSnapshot)-[:SNAPSHOT_OF]->(targetC:Case)
+                MATCH (dv)-[:CONTAINS_CASE]->(target:CaseSnapshot)-[:SNAPSHOT_OF]->(targetC)
+                CREATE (copy)-[:RELATED_TO_CASE]->(target)
+                """;
+
+            context.record(neo4jClient.query(copyEdgesQuery)
+                    .bind(versionUuid).to("versionUuid")
+                    .bind(batch).to("snapshotUuids")
+                    .run());
         }
 
-        return diff;
+        for (List<String> batch : partition(sharedSnapshotUuids, BATCH_SIZE)) {
+            String repointQuery = """
+                MATCH (dv:DocketVersion {uuid: $versionUuid})
+                UNWIND $snapshotUuids as sharedUuid
+                MATCH (shared:CaseSnapshot {uuid: sharedUuid})<-[r:RELATED_TO_CASE]-(fromCs:CaseSnapshot)<-[:CONTAINS_CASE]-(dv)
+                MATCH (shared)-[:SNAPSHOT_OF]->(c:Case)<-[:SNAPSHOT_OF]-(copy:CaseSnapshot)<-[:CONTAINS_CASE]-(dv)
+                CREATE (fromCs)-[:RELATED_TO_CASE]->(copy)
+                DELETE r
+                """;
+
+            context.record(neo4jClient.query(repointQuery)
+                    .bind(versionUuid).to("versionUuid")
+                    .bind(batch).to("snapshotUuids")
+                    .run());
+        }
     }
 
     /**
      * Applies case changes efficiently using batched operations
      */
-    private void applyCaseChanges(String docketUuid, Integer versionNumber, GraphDiff diff) {
+    private void applyCaseChanges(String versionUuid, GraphDiff diff, SyncContext context) {
         // Remove cases (snapshots only, keep underlying Case nodes)
         if (!diff.casesToRemove.isEmpty()) {
-            removeCaseSnapshots(docketUuid, versionNumber, diff.casesToRemove);
+            context.phase("removeCases", () -> removeCaseSnapshots(versionUuid, diff.casesToRemove, context));
         }
 
         // Add new cases (ensure Case nodes exist, create snapshots)
         if (!diff.casesToAdd.isEmpty()) {
-            addCases(docketUuid, versionNumber, diff.casesToAdd);
+            context.phase("addCases", () -> addCases(versionUuid, diff.casesToAdd, context));
         }
 
         // Update existing cases
         if (!diff.casesToUpdate.isEmpty()) {
-            updateCases(diff.casesToUpdate);
+            context.phase("updateCases", () -> updateCases(versionUuid, diff.casesToUpdate, context));
         }
     }
 
     /**
      * Removes case snapshots for a version (batched)
+     * Snapshots still contained in another version are only unlinked from this one
+     * Only edges of predecessors private to this version are deleted: a shared predecessor is either
+     * copied beforehand (see sharedClosure) or removed too, and then keeps its edges for the other versions
      */
-    private void removeCaseSnapshots(String docketUuid, Integer versionNumber, Set<String> caseUuids) {
+    private void removeCaseSnapshots(String versionUuid, Set<String> caseUuids, SyncContext context) {
         List<List<String>> batches = partition(new ArrayList<>(caseUuids), BATCH_SIZE);
 
         for (List<String> batch : batches) {
             String query = """
-                MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
-                MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)-[:SNAPSHOT_OF]->(c:Case)
+                MATCH (dv:DocketVersion {uuid: $versionUuid})
+                MATCH (dv)-[cc:CONTAINS_CASE]->(cs:CaseSnapshot)-[:SNAPSHOT_OF]->(c:Case)
                 WHERE c.uuid IN $caseUuids
+                CALL {
+                    WITH dv, cs
+                    MATCH (dv)-[:CONTAINS_CASE]->(pred:CaseSnapshot)-[r:RELATED_TO_CASE]->(cs)
+                    WHERE size([(pred)<-[:CONTAINS_CASE]-(:DocketVersion) | 1]) = 1
+                    DELETE r
+                }
+                DELETE cc
+                WITH cs
+                WHERE NOT (cs)<-[:CONTAINS_CASE]-(:DocketVersion)
                 DETACH DELETE cs
                 """;
 
-            neo4jClient.query(query)
-                    .bind(docketUuid).to("docketUuid")
-                    .bind(versionNumber).to("versionNumber")
+            context.batch("caseRemovals", batch.size(), () -> context.record(neo4jClient.query(query)
+                    .bind(versionUuid).to("versionUuid")
                     .bind(batch).to("caseUuids")
-                    .run();
+                    .run()));
         }
     }
 
@@ -255,142 +764,172 @@ public class GraphSyncService {
      * Adds cases efficiently using UNWIND for batch processing
      * Uses MERGE to avoid creating duplicate Case nodes
      */
-    private void addCases(String docketUuid, Integer versionNumber, Set<CaseNode> cases) {
-        List<List<CaseNode>> batches = partition(new ArrayList<>(cases), BATCH_SIZE);
-
-        for (List<CaseNode> batch : batches) {
-            // First ensure all Case nodes exist
-            String ensureCasesQuery = """
-                UNWIND $cases as caseData
-                MERGE (c:Case {uuid: caseData.uuid})
-                ON CREATE SET c.name = caseData.name,
-                             c.createdAt = datetime(),
-                             c.updatedAt = datetime()
-                ON MATCH SET c.name = caseData.name,
-                            c.updatedAt = datetime()
-                """;
-
-            List<Map<String, Object>> caseData = batch.stream()
-                    .map(c -> Map.<String, Object>of("uuid", c.getUuid(), "name", c.getName()))
-                    .collect(Collectors.toList());
+    private void addCases(String versionUuid, Collection<CaseNode> cases, SyncContext context) {
+        for (List<CaseNode> batch : partition(new ArrayList<>(cases), BATCH_SIZE)) {
+            context.batch("cases", batch.size(), () -> writeCaseBatch(versionUuid, toCaseData(batch), context));
+        }
+    }
 
-            neo4jClient.query(ensureCasesQuery)
-                    .bind(caseData).to("cases")
-                    .run();
+    private void writeCaseBatch(String versionUuid, List<Map<String, Object>> caseData, SyncContext context) {
+        // First ensure all Case nodes exist
+        String ensureCasesQuery = """
+            UNWIND $cases as caseData
+            MERGE (c:Case {uuid: caseData.uuid})
+            ON CREATE SET c.name = caseData.name,
+                         c.createdAt = datetime(),
+                         c.updatedAt = datetime()
+            ON MATCH SET c.name = caseData.name,
+                        c.updatedAt = datetime()
+            """;
 
-            // Then create snapshots and link them
-            String createSnapshotsQuery = """
-                MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
-                UNWIND $cases as caseData
-                MATCH (c:Case {uuid: caseData.uuid})
-                CREATE (cs:CaseSnapshot {
-                    uuid: randomUUID(),
-                    snapshotAt: datetime()
-                })
-                CREATE (dv)-[:CONTAINS_CASE]->(cs)
-                CREATE (cs)-[:SNAPSHOT_OF]->(c)
-                """;
+        context.record(neo4jClient.query(ensureCasesQuery)
+                .bind(caseData).to("cases")
+                .run());
+
+        // Then create snapshots and link them
+        String createSnapshotsQuery = """
+            MATCH (dv:DocketVersion {uuid: $versionUuid})
+            UNWIND $cases as caseData
+            MATCH (c:Case {uuid: caseData.uuid})
+            CREATE (cs:CaseSnapshot {
+                uuid: randomUUID(),
+                name: caseData.name,
+                snapshotAt: datetime()
+            })
+            CREATE (dv)-[:CONTAINS_CASE {versionUuid: dv.uuid, snapshotUuid: cs.uuid}]->(cs)
+            CREATE (cs)-[:SNAPSHOT_OF]->(c)
+            """;
 
-            neo4jClient.query(createSnapshotsQuery)
-                    .bind(docketUuid).to("docketUuid")
-                    .bind(versionNumber).to("versionNumber")
-                    .bind(caseData).to("cases")
-                    .run();
-        }
+        context.record(neo4jClient.query(createSnapshotsQuery)
+                .bind(versionUuid).to("versionUuid")
+                .bind(caseData).to("cases")
+                .run());
     }
 
     /**
      * Updates case names efficiently using UNWIND
      */
-    private void updateCases(Set<CaseNode> cases) {
-        List<List<CaseNode>> batches = partition(new ArrayList<>(cases), BATCH_SIZE);
-
-        for (List<CaseNode> batch : batches) {
-            String query = """
-                UNWIND $cases as caseData
-                MATCH (c:Case {uuid: caseData.uuid})
-                SET c.name = caseData.name,
-                    c.updatedAt = datetime()
-                """;
+    private void updateCases(String versionUuid, Set<CaseNode> cases, SyncContext context) {
+        for (List<CaseNode> batch : partition(new ArrayList<>(cases), BATCH_SIZE)) {
+            context.batch("caseUpdates", batch.size(), () -> writeCaseUpdateBatch(versionUuid, batch, context));
+        }
+    }
 
-            List<Map<String, Object>> caseData = batch.stream()
-                    .map(c -> Map.<String, Object>of("uuid", c.getUuid(), "name", c.getName()))
-                    .collect(Collectors.toList());
+    private void writeCaseUpdateBatch(String versionUuid, List<CaseNode> batch, SyncContext context) {
+        // The version's snapshots are private at this point (shared ones were copied first)
+        String query = """
+            MATCH (dv:DocketVersion {uuid: $versionUuid})
+            UNWIND $cases as caseData
+            MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)-[:SNAPSHOT_OF]->(c:Case {uuid: caseData.uuid})
+            SET cs.name = caseData.name,
+                c.name = caseData.name,
+                c.updatedAt = datetime()
+            """;
 
-            neo4jClient.query(query)
-                    .bind(caseData).to("cases")
-                    .run();
-        }
+        context.record(neo4jClient.query(query)
+                .bind(versionUuid).to("versionUuid")
+                .bind(toCaseData(batch)).to("cases")
+                .run());
     }
 
     /**
-     * Applies relationship changes efficiently
+     * Removes relationships before any case snapshot is unlinked.
+     * Edges leaving a removed case are dropped together with (or kept for the other versions of) its snapshot.
      */
-    private void applyRelationshipChanges(String docketUuid, Integer versionNumber, GraphDiff diff) {
-        // Remove relationships
-        if (!diff.relationshipsToRemove.isEmpty()) {
-            removeRelationships(docketUuid, versionNumber, diff.relationshipsToRemove);
+    private void applyRelationshipRemovals(String versionUuid, GraphDiff diff, SyncContext context) {
+        Set<RelationshipKey> relationships = diff.relationshipsToRemove.stream()
+                .filter(r -> !diff.casesToRemove.contains(r.fromUuid))
+                .collect(Collectors.toSet());
+
+        if (!relationships.isEmpty()) {
+            context.phase("removeRelationships", () -> removeRelationships(versionUuid, relationships, context));
         }
+    }
 
-        // Add relationships
+    /**
+     * Adds relationships once every case of the version has a snapshot
+     */
+    private void applyRelationshipAdditions(String versionUuid, GraphDiff diff, SyncContext context) {
         if (!diff.relationshipsToAdd.isEmpty()) {
-            addRelationships(docketUuid, versionNumber, diff.relationshipsToAdd);
+            context.phase("addRelationships", () -> addRelationships(versionUuid, diff.relationshipsToAdd, context));
         }
     }
 
     /**
      * Removes relationships efficiently using UNWIND
      */
-    private void removeRelationships(String docketUuid, Integer versionNumber, Set<RelationshipKey> relationships) {
-        List<List<RelationshipKey>> batches = partition(new ArrayList<>(relationships), BATCH_SIZE);
-
-        for (List<RelationshipKey> batch : batches) {
-            String query = """
-                MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
-                UNWIND $relationships as rel
-                MATCH (dv)-[:CONTAINS_CASE]->(fromCs:CaseSnapshot)-[:SNAPSHOT_OF]->(fromC:Case {uuid: rel.fromUuid})
-                MATCH (dv)-[:CONTAINS_CASE]->(toCs:CaseSnapshot)-[:SNAPSHOT_OF]->(toC:Case {uuid: rel.toUuid})
-                MATCH (fromCs)-[r:RELATED_TO_CASE]->(toCs)
-                DELETE r
-                """;
+    private int removeRelationships(String versionUuid, Set<RelationshipKey> relationships, SyncContext context) {
+        int removed = 0;
+        for (List<RelationshipKey> batch : partition(new ArrayList<>(relationships), BATCH_SIZE)) {
+            removed += context.batch("relationshipRemovals", batch.size(),
+                    () -> writeRelationshipRemovalBatch(versionUuid, batch, context));
+        }
+        return removed;
+    }
 
-            List<Map<String, Object>> relData = batch.stream()
-                    .map(r -> Map.<String, Object>of("fromUuid", r.fromUuid, "toUuid", r.toUuid))
-                    .collect(Collectors.toList());
+    private int writeRelationshipRemovalBatch(String versionUuid, List<RelationshipKey> batch, SyncContext context) {
+        String query = """
+            MATCH (dv:DocketVersion {uuid: $versionUuid})
+            UNWIND $relationships as rel
+            MATCH (dv)-[:CONTAINS_CASE]->(fromCs:CaseSnapshot)-[:SNAPSHOT_OF]->(fromC:Case {uuid: rel.fromUuid})
+            MATCH (dv)-[:CONTAINS_CASE]->(toCs:CaseSnapshot)-[:SNAPSHOT_OF]->(toC:Case {uuid: rel.toUuid})
+            MATCH (fromCs)-[r:RELATED_TO_CASE]->(toCs)
+            DELETE r
+            """;
 
-            neo4jClient.query(query)
-                    .bind(docketUuid).to("docketUuid")
-                    .bind(versionNumber).to("versionNumber")
-                    .bind(relData).to("relationships")
-                    .run();
-        }
+        return context.record(neo4jClient.query(query)
+                .bind(versionUuid).to("versionUuid")
+                .bind(toRelationshipData(batch)).to("relationships")
+                .run())
+                .counters()
+                .relationshipsDeleted();
     }
 
     /**
      * Adds relationships efficiently using UNWIND and MERGE
      */
-    private void addRelationships(String docketUuid, Integer versionNumber, Set<RelationshipKey> relationships) {
-        List<List<RelationshipKey>> batches = partition(new ArrayList<>(relationships), BATCH_SIZE);
+    private int addRelationships(String versionUuid, Collection<RelationshipKey> relationships, SyncContext context) {
+        int added = 0;
+        for (List<RelationshipKey> batch : partition(new ArrayList<>(relationships), BATCH_SIZE)) {
+            added += context.batch("relationships", batch.size(),
+                    () -> writeRelationshipBatch(versionUuid, toRelationshipData(batch), context));
+        }
+        return added;
+    }
 
-        for (List<RelationshipKey> batch : batches) {
-            String query = """
-                MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
-                UNWIND $relationships as rel
-                MATCH (dv)-[:CONTAINS_CASE]->(fromCs:CaseSnapshot)-[:SNAPSHOT_OF]->(fromC:Case {uuid: rel.fromUuid})
-                MATCH (dv)-[:CONTAINS_CASE]->(toCs:CaseSnapshot)-[:SNAPSHOT_OF]->(toC:Case {uuid: rel.toUuid})
-                MERGE (fromCs)-[:RELATED_TO_CASE]->(toCs)
-                """;
+    private int writeRelationshipBatch(String versionUuid, List<Map<String, Object>> relationshipData, SyncContext context) {
+        String query = """
+            MATCH (dv:DocketVersion {uuid: $versionUuid})
+            UNWIND $relationships as rel
+            MATCH (dv)-[:CONTAINS_CASE]->(fromCs:CaseSnapshot)-[:SNAPSHOT_OF]->(fromC:Case {uuid: rel.fromUuid})
+            MATCH (dv)-[:CONTAINS_CASE]->(toCs:CaseSnapshot)-[:SNAPSHOT_OF]->(toC:Case {uuid: rel.toUuid})
+            MERGE (fromCs)-[:RELATED_TO_CASE]->(toCs)
+            """;
 
-            List<Map<String, Object>> relData = batch.stream()
-                    .map(r -> Map.<String, Object>of("fromUuid", r.fromUuid, "toUuid", r.toUuid))
-                    .collect(Collectors.toList());
+        return context.record(neo4jClient.query(query)
+                .bind(versionUuid).to("versionUuid")
+                .bind(relationshipData).to("relationships")
+                .run())
+                .counters()
+                .relationshipsCreated();
+    }
 
-            neo4jClient.query(query)
-                    .bind(docketUuid).to("docketUuid")
-                    .bind(versionNumber).to("versionNumber")
-                    .bind(relData).to("relationships")
-                    .run();
-        }
+    private Set<RelationshipKey> toRelationshipKeys(List<CaseRelationship> relationships) {
+        return relationships.stream()
+                .map(r -> new RelationshipKey(r.getFromCaseUuid(), r.getToCaseUuid()))
+                .collect(Collectors.toSet());
+    }
+
+    private List<Map<String, Object>> toCaseData(List<CaseNode> batch) {
+        return batch.stream()
+                .map(c -> Map.<String, Object>of("uuid", c.getUuid(), "name", c.getName()))
+                .collect(Collectors.toList());
+    }
+
+    private List<Map<String, Object>> toRelationshipData(List<RelationshipKey> batch) {
+        return batch.stream()
+                .map(r -> Map.<String, Object>of("fromUuid", r.fromUuid, "toUuid", r.toUuid))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -403,54 +942,4 @@ public class GraphSyncService {
         }
         return batches.isEmpty() ? List.of(List.of()) : batches;
     }
-
-    // ============================================
-    // INTERNAL DATA STRUCTURES
-    // ============================================
-
-    /**
-     * Represents the current state of the graph in Neo4j
-     */
-    private static class GraphState {
-        Set<String> caseUuids = new HashSet<>();
-        Map<String, String> caseNames = new HashMap<>();
-        Set<RelationshipKey> relationships = new HashSet<>();
-    }
-
-    /**
-     * Represents the differences between current and desired state
-     */
-    private static class GraphDiff {
-        Set<CaseNode> casesToAdd = new HashSet<>();
-        Set<String> casesToRemove = new HashSet<>();
-        Set<CaseNode> casesToUpdate = new HashSet<>();
-        Set<RelationshipKey> relationshipsToAdd = new HashSet<>();
-        Set<RelationshipKey> relationshipsToRemove = new HashSet<>();
-    }
-
-    /**
-     * Efficient key for relationship comparison
-     */
-    private static class RelationshipKey {
-        final String fromUuid;
-        final String toUuid;
-
-        RelationshipKey(String fromUuid, String toUuid) {
-            this.fromUuid = fromUuid;
-            this.toUuid = toUuid;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            RelationshipKey that = (RelationshipKey) o;
-            return Objects.equals(fromUuid, that.fromUuid) && Objects.equals(toUuid, that.toUuid);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(fromUuid, toUuid);
-        }
-    }
 }
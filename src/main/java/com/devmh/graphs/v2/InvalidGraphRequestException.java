@@ -0,0 +1,7 @@
+package com.devmh.graphs.v2;
+
+public class InvalidGraphRequestException extends RuntimeException {
+    public InvalidGraphRequestException(String message) {
+        super(message);
+    }
+}
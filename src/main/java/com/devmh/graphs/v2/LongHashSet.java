@@ -0,0 +1,92 @@
+package com.devmh.graphs.v2;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of non-negative longs (linear probing); -1 marks an empty slot
+ * Used for edges packed as (fromId << 32 | toId)
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = -1L;
+
+    private long[] table;
+    private int mask;
+    private int size;
+
+    LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        table = newTable(capacity);
+        mask = capacity - 1;
+    }
+
+    static long pack(int fromId, int toId) {
+        return ((long) fromId << 32) | (toId & 0xFFFFFFFFL);
+    }
+
+    static int from(long edge) {
+        return (int) (edge >>> 32);
+    }
+
+    static int to(long edge) {
+        return (int) edge;
+    }
+
+    boolean add(long value) {
+        for (int i = index(value); ; i = (i + 1) & mask) {
+            long v = table[i];
+            if (v == EMPTY) {
+                table[i] = value;
+                if (++size * 2 > table.length) {
+                    grow();
+                }
+                return true;
+            }
+            if (v == value) {
+                return false;
+            }
+        }
+    }
+
+    boolean contains(long value) {
+        for (int i = index(value); ; i = (i + 1) & mask) {
+            long v = table[i];
+            if (v == EMPTY) {
+                return false;
+            }
+            if (v == value) {
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int index(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = newTable(old.length * 2);
+        mask = table.length - 1;
+        for (long v : old) {
+            if (v != EMPTY) {
+                int i = index(v);
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = v;
+            }
+        }
+    }
+
+    private static long[] newTable(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+}
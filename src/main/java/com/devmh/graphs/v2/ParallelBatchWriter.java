@@ -0,0 +1,144 @@
+package com.devmh.graphs.v2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes rows in hash partitions, each partition on its own session and thread.
+ * Rows with the same key always land in the same partition, so concurrent transactions
+ * never lock the same Case / CaseSnapshot through the key. Every batch commits on its own;
+ * callers are responsible for keeping uncommitted work invisible (see GraphSyncService#syncGraphParallel).
+ */
+@Component
+public class ParallelBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelBatchWriter.class);
+
+    private final AsyncTaskExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final GraphSyncProps props;
+
+    public ParallelBatchWriter(
+            @Qualifier("graphSyncWriteExecutor") AsyncTaskExecutor executor,
+            PlatformTransactionManager transactionManager,
+            GraphSyncProps props) {
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.props = props;
+    }
+
+    /**
+     * Partitions rows by key hash and writes each partition in batches of batchSize
+     * Blocks until every partition committed; after the first failure the other partitions stop before
+     * their next batch, and the failure is rethrown once none of them is still writing, so callers can
+     * clean up everything that was committed
+     */
+    public <T> void write(List<T> rows, Function<T, String> key, int batchSize, Consumer<List<T>> batchWriter) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        int partitionCount = Math.max(1, Math.min(props.getPartitions(), (rows.size() + batchSize - 1) / batchSize));
+        List<List<T>> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ArrayList<>(rows.size() / partitionCount + 1));
+        }
+        for (T row : rows) {
+            partitions.get(Math.floorMod(key.apply(row).hashCode(), partitionCount)).add(row);
+        }
+
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>(partitionCount);
+        for (List<T> partition : partitions) {
+            if (!partition.isEmpty()) {
+                futures.add(executor.submit(() -> writePartition(partition, batchSize, batchWriter, stopped)));
+            }
+        }
+
+        // Partitions are never interrupted, a batch in flight commits or fails on its own
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    stopped.set(true);
+                    if (failure == null) {
+                        failure = e;
+                    }
+                } catch (ExecutionException e) {
+                    stopped.set(true);
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure instanceof InterruptedException) {
+            throw new IllegalStateException("Interrupted while waiting for partition writes", failure);
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Partition write failed", failure);
+        }
+    }
+
+    private <T> void writePartition(List<T> partition, int batchSize, Consumer<List<T>> batchWriter, AtomicBoolean stopped) {
+        try {
+            for (int i = 0; i < partition.size(); i += batchSize) {
+                if (stopped.get()) {
+                    return;
+                }
+                List<T> batch = partition.subList(i, Math.min(i + batchSize, partition.size()));
+                writeBatch(batch, batchWriter);
+            }
+        } catch (RuntimeException | Error e) {
+            stopped.set(true);
+            throw e;
+        }
+    }
+
+    private <T> void writeBatch(List<T> batch, Consumer<List<T>> batchWriter) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> batchWriter.accept(batch));
+                return;
+            } catch (TransientDataAccessException e) {
+                // Relationship batches may still meet on the target snapshot; retry those
+                if (attempt >= props.getMaxRetries()) {
+                    throw e;
+                }
+                logger.debug("Retrying batch of {} rows after transient failure: {}", batch.size(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+
+@Data
+public class RankedCaseDTO {
+    private String caseUuid;
+    private int inDegree;
+    private int outDegree;
+    /** Only set when ranked by PageRank */
+    private Double pageRank;
+}
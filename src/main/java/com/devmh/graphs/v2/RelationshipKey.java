@@ -0,0 +1,29 @@
+package com.devmh.graphs.v2;
+
+import java.util.Objects;
+
+/**
+ * Efficient key for relationship comparison
+ */
+final class RelationshipKey {
+    final String fromUuid;
+    final String toUuid;
+
+    RelationshipKey(String fromUuid, String toUuid) {
+        this.fromUuid = fromUuid;
+        this.toUuid = toUuid;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RelationshipKey that = (RelationshipKey) o;
+        return Objects.equals(fromUuid, that.fromUuid) && Objects.equals(toUuid, that.toUuid);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(fromUuid) + Objects.hashCode(toUuid);
+    }
+}
@@ -9,4 +9,7 @@ public class ReplaceGraphRequest {
     private String description;
     private List<CaseNode> cases;
     private List<CaseRelationship> relationships;
+    private boolean copyOnWrite;
+    private Integer parentVersionNumber;
+    private boolean parallel;
 }
@@ -0,0 +1,51 @@
+package com.devmh.graphs.v2;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/dockets/{docketUuid}/retention")
+public class RetentionController {
+
+    private final DocketCompactor docketCompactor;
+
+    public RetentionController(DocketCompactor docketCompactor) {
+        this.docketCompactor = docketCompactor;
+    }
+
+    /**
+     * Effective retention policy of a docket
+     * GET /api/dockets/{docketUuid}/retention
+     */
+    @GetMapping
+    public ResponseEntity<RetentionPolicy> getPolicy(@PathVariable String docketUuid) {
+        return ResponseEntity.ok(docketCompactor.getPolicy(docketUuid));
+    }
+
+    /**
+     * Sets the retention policy of a docket; it applies from the next compaction on
+     * PUT /api/dockets/{docketUuid}/retention
+     * Body: { "keepLast": 10, "keepDaily": 7, "keepWeekly": 4, "keepWithinDays": 2 }
+     */
+    @PutMapping
+    public ResponseEntity<RetentionPolicy> setPolicy(
+            @PathVariable String docketUuid,
+            @RequestBody RetentionPolicy policy) {
+        return ResponseEntity.ok(docketCompactor.setPolicy(docketUuid, policy));
+    }
+
+    /**
+     * Compacts the docket's history now instead of waiting for the scheduled run
+     * POST /api/dockets/{docketUuid}/retention/compact
+     */
+    @PostMapping("/compact")
+    public ResponseEntity<CompactionResult> compact(@PathVariable String docketUuid) {
+        return ResponseEntity.ok(docketCompactor.compact(docketUuid));
+    }
+}
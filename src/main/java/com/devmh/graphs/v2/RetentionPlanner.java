@@ -0,0 +1,91 @@
+package com.devmh.graphs.v2;
+
+import java.time.LocalDateTime;
+import java.time.temporal.IsoFields;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Applies a RetentionPolicy to the versions of one docket
+ * Versions are ordered by version number, newest first; daily and weekly checkpoints keep the
+ * newest version of each period. Versions without a creation time are always kept.
+ */
+final class RetentionPlanner {
+
+    record VersionInfo(String uuid, int versionNumber, LocalDateTime createdAt, boolean latest) {
+    }
+
+    private RetentionPlanner() {
+    }
+
+    /**
+     * Versions the policy does not keep, oldest first; none for an empty policy
+     */
+    static List<VersionInfo> expired(List<VersionInfo> versions, RetentionPolicy policy, LocalDateTime now) {
+        if (policy.isEmpty()) {
+            return List.of();
+        }
+
+        List<VersionInfo> newestFirst = versions.stream()
+                .sorted(Comparator.comparingInt(VersionInfo::versionNumber).reversed())
+                .toList();
+
+        Set<String> keep = new HashSet<>();
+        for (VersionInfo version : newestFirst) {
+            if (version.latest() || version.createdAt() == null) {
+                keep.add(version.uuid());
+            }
+        }
+        if (policy.getKeepLast() != null) {
+            newestFirst.stream()
+                    .limit(policy.getKeepLast())
+                    .forEach(version -> keep.add(version.uuid()));
+        }
+        if (policy.getKeepWithinDays() != null) {
+            LocalDateTime cutoff = now.minusDays(policy.getKeepWithinDays());
+            newestFirst.stream()
+                    .filter(version -> version.createdAt() != null && !version.createdAt().isBefore(cutoff))
+                    .forEach(version -> keep.add(version.uuid()));
+        }
+        if (policy.getKeepDaily() != null) {
+            keepNewestPerPeriod(newestFirst, policy.getKeepDaily(),
+                    version -> version.createdAt().toLocalDate(), keep);
+        }
+        if (policy.getKeepWeekly() != null) {
+            keepNewestPerPeriod(newestFirst, policy.getKeepWeekly(),
+                    version -> version.createdAt().get(IsoFields.WEEK_BASED_YEAR) * 100
+                            + version.createdAt().get(IsoFields.WEEK_OF_WEEK_BASED_YEAR), keep);
+        }
+
+        return newestFirst.reversed().stream()
+                .filter(version -> !keep.contains(version.uuid()))
+                .toList();
+    }
+
+    private static void keepNewestPerPeriod(
+            List<VersionInfo> newestFirst,
+            int periods,
+            Function<VersionInfo, Object> periodOf,
+            Set<String> keep) {
+
+        Object currentPeriod = null;
+        int seen = 0;
+        for (VersionInfo version : newestFirst) {
+            if (version.createdAt() == null) {
+                continue;
+            }
+            Object period = periodOf.apply(version);
+            if (!period.equals(currentPeriod)) {
+                if (seen == periods) {
+                    return;
+                }
+                keep.add(version.uuid());
+                currentPeriod = period;
+                seen++;
+            }
+        }
+    }
+}
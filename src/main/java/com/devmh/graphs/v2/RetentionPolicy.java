@@ -0,0 +1,26 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+
+/**
+ * Which versions of a docket survive compaction: a version is kept if any rule keeps it,
+ * and the latest version is always kept. Unset rules keep nothing.
+ */
+@Data
+public class RetentionPolicy {
+    /** Newest versions to keep */
+    private Integer keepLast;
+    /** Days (with versions, newest first) for which the last version of the day is kept */
+    private Integer keepDaily;
+    /** ISO weeks (with versions, newest first) for which the last version of the week is kept */
+    private Integer keepWeekly;
+    /** Every version created within this many days is kept */
+    private Integer keepWithinDays;
+
+    /**
+     * A policy without rules keeps the whole history
+     */
+    public boolean isEmpty() {
+        return keepLast == null && keepDaily == null && keepWeekly == null && keepWithinDays == null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.devmh.graphs.v2;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "graphs.retention")
+public class RetentionProps {
+    /** Run the scheduled compactor */
+    private boolean enabled = true;
+    /** Delay between two compactor runs; ISO-8601 (PT15M) as @Scheduled reads the raw property too */
+    private Duration interval = Duration.ofMinutes(15);
+    /** Rows deleted per inner transaction, keeps lock times short for online writes */
+    private int chunkSize = 1_000;
+    /** Versions deleted per scheduled run over all dockets; the rest waits for the next run */
+    private int maxVersionsPerRun = 100;
+    /** Policy of dockets without their own; the empty default keeps all history */
+    private RetentionPolicy defaults = new RetentionPolicy();
+}
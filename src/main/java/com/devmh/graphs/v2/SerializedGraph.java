@@ -0,0 +1,83 @@
+package com.devmh.graphs.v2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON response of a version graph, serialized once and kept gzip-compressed.
+ * The strong ETag is a SHA-256 of the uncompressed JSON; the gzip representation carries
+ * the same tag with a "-gzip" suffix, since strong validators must differ per content coding.
+ */
+public final class SerializedGraph {
+
+    private final String etag;
+    private final byte[] gzipped;
+    private final int length;
+
+    private SerializedGraph(String etag, byte[] gzipped, int length) {
+        this.etag = etag;
+        this.gzipped = gzipped;
+        this.length = length;
+    }
+
+    static SerializedGraph of(byte[] json, String hash) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 8));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new SerializedGraph("\"" + hash + "\"", out.toByteArray(), json.length);
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    public String getGzipETag() {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    public byte[] getGzipped() {
+        return gzipped;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Inflates the JSON for clients that do not accept gzip
+     */
+    public byte[] getUncompressed() {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return gzip.readNBytes(length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * True if an If-None-Match header names either representation (or is "*")
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String gzipETag = getGzipETag();
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals(gzipETag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
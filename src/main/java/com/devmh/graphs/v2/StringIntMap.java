@@ -0,0 +1,81 @@
+package com.devmh.graphs.v2;
+
+/**
+ * Open-addressing map from String to non-negative int (linear probing, no boxing, no entry objects)
+ * Keys are stored by reference, so dictionary-encoding uuids costs two array slots per uuid
+ */
+final class StringIntMap {
+
+    static final int MISSING = -1;
+
+    private String[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    StringIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new String[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    int get(String key) {
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            String k = keys[i];
+            if (k == null) {
+                return MISSING;
+            }
+            if (k.equals(key)) {
+                return values[i];
+            }
+        }
+    }
+
+    /**
+     * Maps key to value unless it is already mapped; returns the previous value or MISSING
+     */
+    int putIfAbsent(String key, int value) {
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            String k = keys[i];
+            if (k == null) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > keys.length) {
+                    grow();
+                }
+                return MISSING;
+            }
+            if (k.equals(key)) {
+                return values[i];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int index(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = index(oldKeys[j]);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
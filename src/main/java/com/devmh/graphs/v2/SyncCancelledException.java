@@ -0,0 +1,7 @@
+package com.devmh.graphs.v2;
+
+public class SyncCancelledException extends RuntimeException {
+    public SyncCancelledException(String message) {
+        super(message);
+    }
+}
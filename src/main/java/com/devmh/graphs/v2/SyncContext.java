@@ -0,0 +1,174 @@
+package com.devmh.graphs.v2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.summary.SummaryCounters;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Measurements of one sync operation (see SyncMetrics)
+ * Phases run one after another on the calling thread; batches may run concurrently on the
+ * parallel writer's threads. Phases that run more than once (stream appends) accumulate.
+ * With a SyncMonitor attached, every phase and batch first checks whether the sync was cancelled.
+ */
+public class SyncContext {
+
+    private final MeterRegistry registry;
+    private final String operation;
+    private final SyncMonitor monitor;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private volatile String currentPhase;
+
+    SyncContext(MeterRegistry registry, String operation, SyncMonitor monitor) {
+        this.registry = registry;
+        this.operation = operation;
+        this.monitor = monitor;
+        if (monitor != null) {
+            monitor.attach(this);
+        }
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    /** Phase currently running, null between phases */
+    public String getCurrentPhase() {
+        return currentPhase;
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public long getElapsedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /** Phase durations in the order the phases first ran */
+    public synchronized Map<String, Long> getPhaseDurationsMs() {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        phaseNanos.forEach((phase, nanos) -> durations.put(phase, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        return durations;
+    }
+
+    <T> T phase(String phase, Supplier<T> body) {
+        checkCancelled();
+        currentPhase = phase;
+        long start = System.nanoTime();
+        try {
+            return body.get();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            synchronized (this) {
+                phaseNanos.merge(phase, nanos, Long::sum);
+            }
+            currentPhase = null;
+            Timer.builder("graphs.sync.phase")
+                    .description("Duration of one phase of a graph sync")
+                    .tag("operation", operation)
+                    .tag("phase", phase)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void phase(String phase, Runnable body) {
+        phase(phase, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Times one batch of rows and counts the rows once it completed
+     */
+    <T> T batch(String kind, int rows, Supplier<T> body) {
+        checkCancelled();
+        long start = System.nanoTime();
+        T result = body.get();
+        Timer.builder("graphs.sync.batch")
+                .description("Duration of one batched write of a graph sync")
+                .tag("operation", operation)
+                .tag("kind", kind)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        Counter.builder("graphs.sync.rows")
+                .description("Rows written by graph syncs")
+                .tag("operation", operation)
+                .tag("kind", kind)
+                .register(registry)
+                .increment(rows);
+        batchesWritten.incrementAndGet();
+        rowsWritten.addAndGet(rows);
+        return result;
+    }
+
+    void batch(String kind, int rows, Runnable body) {
+        batch(kind, rows, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Adds the update counters of a Neo4j result summary; returns the summary for chaining
+     */
+    ResultSummary record(ResultSummary summary) {
+        SummaryCounters counters = summary.counters();
+        count("nodes_created", counters.nodesCreated());
+        count("nodes_deleted", counters.nodesDeleted());
+        count("relationships_created", counters.relationshipsCreated());
+        count("relationships_deleted", counters.relationshipsDeleted());
+        count("properties_set", counters.propertiesSet());
+        return summary;
+    }
+
+    /**
+     * Records the total duration and copies the timings into the result
+     */
+    GraphSyncResult finish(GraphSyncResult result) {
+        long nanos = System.nanoTime() - startNanos;
+        Timer.builder("graphs.sync")
+                .description("Total duration of a graph sync")
+                .tag("operation", operation)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        result.setDurationMs(TimeUnit.NANOSECONDS.toMillis(nanos));
+        result.setPhaseDurationsMs(getPhaseDurationsMs());
+        return result;
+    }
+
+    private void checkCancelled() {
+        if (monitor != null && monitor.isCancelled()) {
+            throw new SyncCancelledException("Graph " + operation + " cancelled");
+        }
+    }
+
+    private void count(String counter, int value) {
+        if (value > 0) {
+            Counter.builder("graphs.sync.neo4j")
+                    .description("Neo4j update counters reported by graph sync queries")
+                    .tag("operation", operation)
+                    .tag("counter", counter)
+                    .register(registry)
+                    .increment(value);
+        }
+    }
+}
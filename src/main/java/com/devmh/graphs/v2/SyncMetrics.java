@@ -0,0 +1,44 @@
+package com.devmh.graphs.v2;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entry point for graph sync instrumentation
+ * Meters (all tagged with the operation: sync, fork, parallel, delta, stream or import):
+ *   graphs.sync            total duration of an operation
+ *   graphs.sync.phase      duration per phase (tag phase), with percentile histogram
+ *   graphs.sync.batch      duration per written batch (tag kind), with percentile histogram
+ *   graphs.sync.rows       rows written (tag kind)
+ *   graphs.sync.neo4j      Neo4j result summary counters (tag counter)
+ */
+@Component
+public class SyncMetrics {
+
+    static final String SYNC = "sync";
+    static final String FORK = "fork";
+    static final String PARALLEL = "parallel";
+    static final String DELTA = "delta";
+    static final String STREAM = "stream";
+    static final String IMPORT = "import";
+
+    private final MeterRegistry registry;
+
+    public SyncMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Starts measuring one operation; pass the context through every phase and batch of it
+     */
+    public SyncContext start(String operation) {
+        return new SyncContext(registry, operation, null);
+    }
+
+    /**
+     * Starts measuring one operation that the monitor can follow and cancel (monitor may be null)
+     */
+    public SyncContext start(String operation, SyncMonitor monitor) {
+        return new SyncContext(registry, operation, monitor);
+    }
+}
@@ -0,0 +1,29 @@
+package com.devmh.graphs.v2;
+
+/**
+ * Lets a caller follow and cancel a running sync
+ * The sync attaches its SyncContext on start and checks for cancellation before every phase and batch;
+ * a cancelled sync fails with SyncCancelledException, so its transaction rolls back
+ */
+public class SyncMonitor {
+
+    private volatile SyncContext context;
+    private volatile boolean cancelled;
+
+    /** Context of the running sync, null until it started */
+    public SyncContext getContext() {
+        return context;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    void attach(SyncContext context) {
+        this.context = context;
+    }
+}
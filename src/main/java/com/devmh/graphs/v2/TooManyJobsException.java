@@ -0,0 +1,7 @@
+package com.devmh.graphs.v2;
+
+public class TooManyJobsException extends RuntimeException {
+    public TooManyJobsException(String message) {
+        super(message);
+    }
+}
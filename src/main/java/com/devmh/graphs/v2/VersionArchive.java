@@ -0,0 +1,271 @@
+package com.devmh.graphs.v2;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary file of one docket version, for backups, copies between environments and warm-up
+ * Layout (big-endian ints, every section 4-byte aligned):
+ *   header        "DKGV", u16 format version, u16 flags (0), stringCount, caseCount, relationshipCount,
+ *                 source docket (string index), source version number, description (string index or -1)
+ *   stringOffsets int[stringCount + 1], byte offsets of each string in the string data
+ *   cases         int[caseCount * 2], uuid and name string index (-1 for no name) per case
+ *   relationships int[relationshipCount * 2], from and to case index per relationship
+ *   stringData    UTF-8 bytes of the dictionary, padded to 4 bytes
+ *   crc           CRC32 of everything before it
+ * Uuids and names are stored once each however often they are used. The reader maps the file and
+ * decodes straight from the mapping, so nothing but the strings asked for is ever copied to the heap.
+ */
+final class VersionArchive {
+
+    static final String MEDIA_TYPE = "application/vnd.devmh.docket-version";
+
+    private static final int MAGIC = 0x444B4756; // "DKGV"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int NONE = -1;
+
+    private final ByteBuffer buffer;
+    private final IntBuffer stringOffsets;
+    private final IntBuffer cases;
+    private final IntBuffer relationships;
+    private final int stringData;
+    private final int stringCount;
+    private final int caseCount;
+    private final int relationshipCount;
+    private final String[] decoded;
+
+    private VersionArchive(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES + 8 || buffer.getInt(0) != MAGIC) {
+            throw invalid("not a docket version archive");
+        }
+        int formatVersion = Short.toUnsignedInt(buffer.getShort(4));
+        if (formatVersion != FORMAT_VERSION) {
+            throw invalid("unsupported format version " + formatVersion);
+        }
+        this.buffer = buffer;
+        this.stringCount = buffer.getInt(8);
+        this.caseCount = buffer.getInt(12);
+        this.relationshipCount = buffer.getInt(16);
+        if (stringCount < 0 || caseCount < 0 || relationshipCount < 0) {
+            throw invalid("negative section size");
+        }
+
+        long offsetsAt = HEADER_BYTES;
+        long casesAt = offsetsAt + 4L * (stringCount + 1);
+        long relationshipsAt = casesAt + 8L * caseCount;
+        long stringDataAt = relationshipsAt + 8L * relationshipCount;
+        if (stringDataAt + 4 > buffer.limit()) {
+            throw invalid("truncated");
+        }
+        this.stringOffsets = buffer.slice((int) offsetsAt, 4 * (stringCount + 1)).asIntBuffer();
+        this.cases = buffer.slice((int) casesAt, 8 * caseCount).asIntBuffer();
+        this.relationships = buffer.slice((int) relationshipsAt, 8 * relationshipCount).asIntBuffer();
+        this.stringData = (int) stringDataAt;
+
+        int stringBytes = stringOffsets.get(stringCount);
+        if (stringBytes < 0 || stringDataAt + align(stringBytes) + 4 != buffer.limit()) {
+            throw invalid("truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, buffer.limit() - 4));
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+            throw invalid("checksum mismatch");
+        }
+        this.decoded = new String[stringCount];
+    }
+
+    /**
+     * Maps an archive file read-only and verifies its structure and checksum
+     * The mapping outlives the channel and is released with the returned archive
+     */
+    static VersionArchive open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw invalid("larger than 2 GiB");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new VersionArchive(mapped);
+        }
+    }
+
+    /** Reads an archive held in memory */
+    static VersionArchive of(ByteBuffer buffer) {
+        return new VersionArchive(buffer.slice());
+    }
+
+    int caseCount() {
+        return caseCount;
+    }
+
+    int relationshipCount() {
+        return relationshipCount;
+    }
+
+    String sourceDocketUuid() {
+        return string(buffer.getInt(20));
+    }
+
+    int sourceVersionNumber() {
+        return buffer.getInt(24);
+    }
+
+    String description() {
+        return string(buffer.getInt(28));
+    }
+
+    String caseUuid(int index) {
+        return string(cases.get(2 * checkIndex(index, caseCount)));
+    }
+
+    String caseName(int index) {
+        return string(cases.get(2 * checkIndex(index, caseCount) + 1));
+    }
+
+    /** Case index of the relationship's source */
+    int relationshipFrom(int index) {
+        return checkIndex(relationships.get(2 * checkIndex(index, relationshipCount)), caseCount);
+    }
+
+    /** Case index of the relationship's target */
+    int relationshipTo(int index) {
+        return checkIndex(relationships.get(2 * checkIndex(index, relationshipCount) + 1), caseCount);
+    }
+
+    /**
+     * Dictionary string; each one is decoded once and then shared by every case and relationship using it
+     */
+    private String string(int index) {
+        if (index == NONE) {
+            return null;
+        }
+        checkIndex(index, stringCount);
+        String value = decoded[index];
+        if (value == null) {
+            int start = stringOffsets.get(index);
+            int end = stringOffsets.get(index + 1);
+            if (start < 0 || end < start || end > stringOffsets.get(stringCount)) {
+                throw invalid("string " + index + " out of bounds");
+            }
+            byte[] bytes = new byte[end - start];
+            buffer.get(stringData + start, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            decoded[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Writes a version graph as an archive; relationships whose ends are not cases of the graph are dropped
+     */
+    static void write(DocketGraphDTO graph, OutputStream out) throws IOException {
+        List<byte[]> strings = new ArrayList<>();
+        StringIntMap dictionary = new StringIntMap(graph.getCases().size() * 2);
+        StringIntMap caseIndexes = new StringIntMap(graph.getCases().size());
+
+        int[] caseStrings = new int[graph.getCases().size() * 2];
+        int caseCount = 0;
+        for (CaseNode c : graph.getCases()) {
+            if (caseIndexes.putIfAbsent(c.getUuid(), caseCount) == StringIntMap.MISSING) {
+                caseStrings[2 * caseCount] = intern(c.getUuid(), dictionary, strings);
+                caseStrings[2 * caseCount + 1] = intern(c.getName(), dictionary, strings);
+                caseCount++;
+            }
+        }
+
+        int[] ends = new int[graph.getRelationships().size() * 2];
+        int relationshipCount = 0;
+        for (CaseRelationship r : graph.getRelationships()) {
+            int from = caseIndexes.get(r.getFromCaseUuid());
+            int to = caseIndexes.get(r.getToCaseUuid());
+            if (from != StringIntMap.MISSING && to != StringIntMap.MISSING) {
+                ends[2 * relationshipCount] = from;
+                ends[2 * relationshipCount + 1] = to;
+                relationshipCount++;
+            }
+        }
+
+        int sourceDocket = intern(graph.getDocketUuid(), dictionary, strings);
+        int description = intern(graph.getVersionDescription(), dictionary, strings);
+
+        CRC32 crc = new CRC32();
+        BufferedOutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+        DataOutputStream data = new DataOutputStream(new CheckedOutputStream(buffered, crc));
+
+        data.writeInt(MAGIC);
+        data.writeShort(FORMAT_VERSION);
+        data.writeShort(0);
+        data.writeInt(strings.size());
+        data.writeInt(caseCount);
+        data.writeInt(relationshipCount);
+        data.writeInt(sourceDocket);
+        data.writeInt(graph.getVersionNumber() != null ? graph.getVersionNumber() : 0);
+        data.writeInt(description);
+
+        long offset = 0;
+        data.writeInt(0);
+        for (byte[] string : strings) {
+            offset += string.length;
+            if (offset > Integer.MAX_VALUE) {
+                throw new IllegalStateException("String data of the version exceeds 2 GiB");
+            }
+            data.writeInt((int) offset);
+        }
+        for (int i = 0; i < 2 * caseCount; i++) {
+            data.writeInt(caseStrings[i]);
+        }
+        for (int i = 0; i < 2 * relationshipCount; i++) {
+            data.writeInt(ends[i]);
+        }
+        for (byte[] string : strings) {
+            data.write(string);
+        }
+        for (long i = offset; i < align(offset); i++) {
+            data.writeByte(0);
+        }
+
+        data.flush();
+        new DataOutputStream(buffered).writeInt((int) crc.getValue());
+        buffered.flush();
+    }
+
+    private static int intern(String value, StringIntMap dictionary, List<byte[]> strings) {
+        if (value == null) {
+            return NONE;
+        }
+        int index = dictionary.putIfAbsent(value, strings.size());
+        if (index == StringIntMap.MISSING) {
+            index = strings.size();
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 3) & ~3L;
+    }
+
+    private static int checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw invalid("index " + index + " out of bounds for " + size);
+        }
+        return index;
+    }
+
+    private static InvalidGraphRequestException invalid(String reason) {
+        return new InvalidGraphRequestException("Invalid docket version archive: " + reason);
+    }
+}
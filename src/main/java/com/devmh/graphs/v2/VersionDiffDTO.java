@@ -0,0 +1,32 @@
+package com.devmh.graphs.v2;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class VersionDiffDTO {
+    private String docketUuid;
+    private Integer fromVersion;
+    private Integer toVersion;
+    private List<CaseNode> addedCases = new ArrayList<>();
+    private List<CaseNode> removedCases = new ArrayList<>();
+    private List<CaseRename> renamedCases = new ArrayList<>();
+    private List<CaseRelationship> addedRelationships = new ArrayList<>();
+    private List<CaseRelationship> removedRelationships = new ArrayList<>();
+    private long unchangedCases;
+    private long unchangedRelationships;
+    private long durationMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CaseRename {
+        private String uuid;
+        private String oldName;
+        private String newName;
+    }
+}
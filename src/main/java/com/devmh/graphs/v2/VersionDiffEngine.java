@@ -0,0 +1,202 @@
+package com.devmh.graphs.v2;
+
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Computes the structural difference of two docket versions in linear time.
+ * The case keys and the edge keys of both versions are streamed from two sessions in sorted
+ * order and merge-joined in the JVM, so neither version is ever materialized in memory
+ * (only the differences are) and Cypher never evaluates list membership.
+ */
+@Component
+public class VersionDiffEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(VersionDiffEngine.class);
+
+    private static final String CASES_QUERY = """
+        MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
+        MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)-[:SNAPSHOT_OF]->(c:Case)
+        RETURN c.uuid as caseUuid, coalesce(cs.name, c.name) as caseName
+        ORDER BY caseUuid
+        """;
+
+    private static final String RELATIONSHIPS_QUERY = """
+        MATCH (d:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(dv:DocketVersion {versionNumber: $versionNumber})
+        MATCH (dv)-[:CONTAINS_CASE]->(cs:CaseSnapshot)-[:RELATED_TO_CASE]->(relatedCs:CaseSnapshot)
+        MATCH (cs)-[:SNAPSHOT_OF]->(c:Case)
+        MATCH (relatedCs)-[:SNAPSHOT_OF]->(relatedC:Case)
+        RETURN c.uuid as fromCaseUuid, relatedC.uuid as toCaseUuid
+        ORDER BY fromCaseUuid, toCaseUuid
+        """;
+
+    private final Driver driver;
+    private final String database;
+
+    public VersionDiffEngine(Driver driver, @Value("${spring.data.neo4j.database:neo4j}") String database) {
+        this.driver = driver;
+        this.database = database;
+    }
+
+    /**
+     * Diffs version fromVersion against toVersion; both must exist
+     * unchangedCaseSink (optional) receives the uuid of every case present in both versions under the same name
+     */
+    public VersionDiffDTO compare(
+            String docketUuid,
+            Integer fromVersion,
+            Integer toVersion,
+            Consumer<String> unchangedCaseSink) {
+
+        long startTime = System.currentTimeMillis();
+
+        VersionDiffDTO diff = new VersionDiffDTO();
+        diff.setDocketUuid(docketUuid);
+        diff.setFromVersion(fromVersion);
+        diff.setToVersion(toVersion);
+
+        SessionConfig config = SessionConfig.builder()
+                .withDatabase(database)
+                .withDefaultAccessMode(AccessMode.READ)
+                .build();
+
+        try (Session fromSession = driver.session(config); Session toSession = driver.session(config)) {
+            mergeCases(
+                    new SortedKeys(fromSession.run(CASES_QUERY, params(docketUuid, fromVersion)), "caseUuid", null),
+                    new SortedKeys(toSession.run(CASES_QUERY, params(docketUuid, toVersion)), "caseUuid", null),
+                    diff,
+                    unchangedCaseSink);
+
+            mergeRelationships(
+                    new SortedKeys(fromSession.run(RELATIONSHIPS_QUERY, params(docketUuid, fromVersion)), "fromCaseUuid", "toCaseUuid"),
+                    new SortedKeys(toSession.run(RELATIONSHIPS_QUERY, params(docketUuid, toVersion)), "fromCaseUuid", "toCaseUuid"),
+                    diff);
+        }
+
+        diff.setDurationMs(System.currentTimeMillis() - startTime);
+        logger.debug("Compared docket {} versions {} and {} in {}ms", docketUuid, fromVersion, toVersion, diff.getDurationMs());
+
+        return diff;
+    }
+
+    private void mergeCases(SortedKeys from, SortedKeys to, VersionDiffDTO diff, Consumer<String> unchangedCaseSink) {
+        while (from.current != null || to.current != null) {
+            int cmp = compare(from, to);
+            if (cmp < 0) {
+                diff.getRemovedCases().add(new CaseNode(from.key1, from.current.get("caseName").asString(null)));
+                from.advance();
+            } else if (cmp > 0) {
+                diff.getAddedCases().add(new CaseNode(to.key1, to.current.get("caseName").asString(null)));
+                to.advance();
+            } else {
+                String oldName = from.current.get("caseName").asString(null);
+                String newName = to.current.get("caseName").asString(null);
+                if (!Objects.equals(oldName, newName)) {
+                    diff.getRenamedCases().add(new VersionDiffDTO.CaseRename(from.key1, oldName, newName));
+                } else {
+                    diff.setUnchangedCases(diff.getUnchangedCases() + 1);
+                    if (unchangedCaseSink != null) {
+                        unchangedCaseSink.accept(from.key1);
+                    }
+                }
+                from.advance();
+                to.advance();
+            }
+        }
+    }
+
+    private void mergeRelationships(SortedKeys from, SortedKeys to, VersionDiffDTO diff) {
+        while (from.current != null || to.current != null) {
+            int cmp = compare(from, to);
+            if (cmp < 0) {
+                diff.getRemovedRelationships().add(relationship(from));
+                from.advance();
+            } else if (cmp > 0) {
+                diff.getAddedRelationships().add(relationship(to));
+                to.advance();
+            } else {
+                diff.setUnchangedRelationships(diff.getUnchangedRelationships() + 1);
+                from.advance();
+                to.advance();
+            }
+        }
+    }
+
+    private static int compare(SortedKeys from, SortedKeys to) {
+        if (from.current == null) {
+            return 1;
+        }
+        if (to.current == null) {
+            return -1;
+        }
+        return SortedKeys.compare(from.key1, from.key2, to.key1, to.key2);
+    }
+
+    private static CaseRelationship relationship(SortedKeys keys) {
+        CaseRelationship relationship = new CaseRelationship();
+        relationship.setFromCaseUuid(keys.key1);
+        relationship.setToCaseUuid(keys.key2);
+        return relationship;
+    }
+
+    private static Map<String, Object> params(String docketUuid, Integer versionNumber) {
+        return Map.of("docketUuid", docketUuid, "versionNumber", versionNumber);
+    }
+
+    /**
+     * Cursor over a result ordered by one or two string keys
+     * Verifies the order while reading, since the merge is only correct on sorted input
+     */
+    private static final class SortedKeys {
+        private final Result result;
+        private final String field1;
+        private final String field2;
+        private Record current;
+        private String key1;
+        private String key2;
+
+        SortedKeys(Result result, String field1, String field2) {
+            this.result = result;
+            this.field1 = field1;
+            this.field2 = field2;
+            advance();
+        }
+
+        void advance() {
+            if (!result.hasNext()) {
+                current = null;
+                return;
+            }
+            Record next = result.next();
+            String nextKey1 = next.get(field1).asString();
+            String nextKey2 = field2 != null ? next.get(field2).asString() : null;
+            if (current != null && compare(key1, key2, nextKey1, nextKey2) >= 0) {
+                throw new IllegalStateException("Keys out of order or duplicated: " + nextKey1
+                        + (nextKey2 != null ? "->" + nextKey2 : "") + " after " + key1);
+            }
+            current = next;
+            key1 = nextKey1;
+            key2 = nextKey2;
+        }
+
+        static int compare(String a1, String a2, String b1, String b2) {
+            int cmp = a1.compareTo(b1);
+            if (cmp != 0 || a2 == null) {
+                return cmp;
+            }
+            return a2.compareTo(b2);
+        }
+    }
+}
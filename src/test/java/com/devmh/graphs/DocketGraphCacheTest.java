@@ -0,0 +1,107 @@
+package com.devmh.graphs;
+
+import com.devmh.graphs.v2.CaseNode;
+import com.devmh.graphs.v2.DocketGraphCache;
+import com.devmh.graphs.v2.DocketGraphChangedEvent;
+import com.devmh.graphs.v2.DocketGraphDTO;
+import com.devmh.graphs.v2.GraphCacheProps;
+import com.devmh.graphs.v2.SerializedGraph;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocketGraphCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void serves_hits_until_the_version_changes() {
+        DocketGraphCache cache = new DocketGraphCache(new GraphCacheProps(), new ObjectMapper());
+
+        cache.get("d1", 1, () -> graph("a"));
+        cache.get("d1", 1, () -> graph("a"));
+        cache.get("d1", 2, () -> graph("b"));
+        assertThat(loads).hasValue(2);
+
+        cache.onGraphChanged(DocketGraphChangedEvent.version("d1", 2, List.of()));
+        cache.get("d1", 1, () -> graph("a"));
+        cache.get("d1", 2, () -> graph("b"));
+        assertThat(loads).hasValue(3);
+
+        assertThat(cache.getStatistics()).containsEntry("hitCount", 2L).containsEntry("missCount", 3L);
+    }
+
+    @Test
+    void case_rename_drops_every_graph_showing_the_case() {
+        DocketGraphCache cache = new DocketGraphCache(new GraphCacheProps(), new ObjectMapper());
+        cache.get("d1", 1, () -> graph("a", "b"));
+        cache.get("d2", 1, () -> graph("b"));
+        cache.get("d3", 1, () -> graph("c"));
+
+        cache.onGraphChanged(DocketGraphChangedEvent.cases(List.of("b")));
+        cache.get("d1", 1, () -> graph("a", "b"));
+        cache.get("d2", 1, () -> graph("b"));
+        cache.get("d3", 1, () -> graph("c"));
+
+        assertThat(loads).hasValue(5);
+    }
+
+    @Test
+    void docket_delete_drops_all_its_versions() {
+        DocketGraphCache cache = new DocketGraphCache(new GraphCacheProps(), new ObjectMapper());
+        cache.get("d1", 1, () -> graph("a"));
+        cache.get("d1", 2, () -> graph("a"));
+        cache.get("d2", 1, () -> graph("a"));
+
+        cache.onGraphChanged(DocketGraphChangedEvent.docket("d1"));
+        cache.get("d1", 1, () -> graph("a"));
+        cache.get("d1", 2, () -> graph("a"));
+        cache.get("d2", 1, () -> graph("a"));
+
+        assertThat(loads).hasValue(5);
+    }
+
+    @Test
+    void evicts_by_graph_weight() {
+        GraphCacheProps props = new GraphCacheProps();
+        props.setMaxWeight(10);
+        DocketGraphCache cache = new DocketGraphCache(props, new ObjectMapper());
+
+        for (int v = 1; v <= 5; v++) {
+            cache.get("d1", v, () -> graph("a", "b", "c", "d"));
+        }
+
+        assertThat((Long) cache.getStatistics().get("weight")).isLessThanOrEqualTo(10L);
+        assertThat((Long) cache.getStatistics().get("evictionCount")).isPositive();
+    }
+
+    @Test
+    void serialized_response_is_reused_and_etag_follows_content() {
+        DocketGraphCache cache = new DocketGraphCache(new GraphCacheProps(), new ObjectMapper());
+
+        SerializedGraph first = cache.getSerialized("d1", 1, () -> graph("a"));
+        SerializedGraph second = cache.getSerialized("d1", 1, () -> graph("a"));
+        assertThat(second).isSameAs(first);
+        assertThat(new String(first.getUncompressed())).contains("\"uuid\":\"a\"");
+        assertThat(first.matches("W/\"x\", " + first.getGzipETag())).isTrue();
+
+        cache.onGraphChanged(DocketGraphChangedEvent.version("d1", 1, List.of()));
+        SerializedGraph same = cache.getSerialized("d1", 1, () -> graph("a"));
+        SerializedGraph changed = cache.getSerialized("d2", 1, () -> graph("b"));
+        assertThat(same.getETag()).isEqualTo(first.getETag());
+        assertThat(changed.matches(first.getETag())).isFalse();
+    }
+
+    private DocketGraphDTO graph(String... caseUuids) {
+        loads.incrementAndGet();
+        DocketGraphDTO graph = new DocketGraphDTO();
+        for (String uuid : caseUuids) {
+            graph.getCases().add(new CaseNode(uuid, uuid.toUpperCase()));
+        }
+        return graph;
+    }
+}
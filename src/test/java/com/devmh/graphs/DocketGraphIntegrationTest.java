@@ -0,0 +1,419 @@
+package com.devmh.graphs;
+
+import com.devmh.graphs.v2.CaseNode;
+import com.devmh.graphs.v2.CaseRelationship;
+import com.devmh.graphs.v2.CreateDocketRequest;
+import com.devmh.graphs.v2.DocketGraphController;
+import com.devmh.graphs.v2.DocketGraphDTO;
+import com.devmh.graphs.v2.DocketGraphRepository;
+import com.devmh.graphs.v2.DocketGraphService;
+import com.devmh.graphs.v2.DocketService;
+import com.devmh.graphs.v2.DocketVersionRepository;
+import com.devmh.graphs.v2.GraphAnalyticsService;
+import com.devmh.graphs.v2.GraphDeltaRequest;
+import com.devmh.graphs.v2.GraphPage;
+import com.devmh.graphs.v2.GraphSyncResult;
+import com.devmh.graphs.v2.InvalidGraphRequestException;
+import com.devmh.graphs.v2.ReplaceGraphRequest;
+import com.devmh.graphs.v2.ResourceNotFoundException;
+import com.devmh.graphs.v2.VersionDiffDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.Neo4jContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@Testcontainers
+class DocketGraphIntegrationTest {
+
+    @Container
+    static Neo4jContainer<?> neo4j = new Neo4jContainer<>("neo4j:5.21-community")
+            .withAdminPassword("secretpwd");
+
+    @DynamicPropertySource
+    static void registerProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.neo4j.uri", neo4j::getBoltUrl);
+        registry.add("spring.neo4j.authentication.username", () -> "neo4j");
+        registry.add("spring.neo4j.authentication.password", () -> "secretpwd");
+    }
+
+    @Autowired DocketService docketService;
+    @Autowired DocketGraphService docketGraphService;
+    @Autowired DocketVersionRepository docketVersionRepository;
+    @Autowired GraphAnalyticsService graphAnalyticsService;
+    @Autowired DocketGraphController docketGraphController;
+    @Autowired DocketGraphRepository docketGraphRepository;
+    @Autowired Neo4jClient neo4jClient;
+
+    @Test
+    void delta_on_copy_on_write_version_leaves_parent_untouched() {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("delta");
+        String docketUuid = docketService.createDocket(create).getUuid();
+
+        // v2: a -> b -> c, d -> c
+        ReplaceGraphRequest base = new ReplaceGraphRequest();
+        base.setCases(new ArrayList<>(List.of(
+                new CaseNode("a", "A"), new CaseNode("b", "B"), new CaseNode("c", "C"), new CaseNode("d", "D"))));
+        base.setRelationships(new ArrayList<>(List.of(rel("a", "b"), rel("b", "c"), rel("d", "c"))));
+        docketGraphService.replaceGraph(docketUuid, base);
+
+        // v3 shares every snapshot with v2
+        base.setCopyOnWrite(true);
+        docketGraphService.replaceGraph(docketUuid, base);
+
+        GraphDeltaRequest delta = new GraphDeltaRequest();
+        delta.setAddCases(List.of(new CaseNode("e", "E")));
+        delta.setRemoveCases(List.of("c", "missing"));
+        delta.setAddRelationships(List.of(rel("b", "e"), rel("e", "a")));
+        delta.setRemoveRelationships(List.of(rel("a", "b"), rel("x", "y")));
+
+        GraphSyncResult result = docketGraphService.applyVersionDelta(docketUuid, 3, delta);
+
+        assertThat(result.getCasesAdded()).isEqualTo(1);
+        assertThat(result.getCasesRemoved()).isEqualTo(1);
+        assertThat(result.getRelationshipsAdded()).isEqualTo(2);
+        assertThat(result.getRelationshipsRemoved()).isEqualTo(1);
+
+        DocketGraphDTO v3 = docketGraphService.getDocketVersionGraph(docketUuid, 3);
+        assertThat(caseUuids(v3)).containsExactlyInAnyOrder("a", "b", "d", "e");
+        assertThat(relationshipKeys(v3)).containsExactlyInAnyOrder("b->e", "e->a");
+
+        DocketGraphDTO v2 = docketGraphService.getDocketVersionGraph(docketUuid, 2);
+        assertThat(caseUuids(v2)).containsExactlyInAnyOrder("a", "b", "c", "d");
+        assertThat(relationshipKeys(v2)).containsExactlyInAnyOrder("a->b", "b->c", "d->c");
+
+        GraphDeltaRequest nameless = new GraphDeltaRequest();
+        nameless.setRenameCases(List.of(new CaseNode("a", null)));
+        assertThatThrownBy(() -> docketGraphService.applyVersionDelta(docketUuid, 3, nameless))
+                .isInstanceOf(InvalidGraphRequestException.class);
+        GraphDeltaRequest openEnded = new GraphDeltaRequest();
+        openEnded.setAddRelationships(List.of(rel("a", null)));
+        assertThatThrownBy(() -> docketGraphService.applyVersionDelta(docketUuid, 3, openEnded))
+                .isInstanceOf(InvalidGraphRequestException.class);
+    }
+
+    @Test
+    void removing_connected_shared_cases_from_a_fork_keeps_the_parent_intact() {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("shared-removal");
+        String docketUuid = docketService.createDocket(create).getUuid();
+
+        // v1: a -> b, c -> a, d
+        ReplaceGraphRequest base = new ReplaceGraphRequest();
+        base.setCases(new ArrayList<>(List.of(
+                new CaseNode("a", "A"), new CaseNode("b", "B"), new CaseNode("c", "C"), new CaseNode("d", "D"))));
+        base.setRelationships(new ArrayList<>(List.of(rel("a", "b"), rel("c", "a"))));
+        docketGraphService.replaceGraph(docketUuid, base);
+        Map<String, Object> parentStatistics = docketGraphService.getVersionStatistics(docketUuid, 1);
+        assertThat(parentStatistics.get("relationshipCount")).isEqualTo(2L);
+
+        // v2: full sync of a copy-on-write fork without a and b
+        ReplaceGraphRequest fork = new ReplaceGraphRequest();
+        fork.setCopyOnWrite(true);
+        fork.setParentVersionNumber(1);
+        fork.setCases(new ArrayList<>(List.of(new CaseNode("c", "C"), new CaseNode("d", "D"))));
+        fork.setRelationships(new ArrayList<>());
+        assertThat(docketGraphService.replaceGraph(docketUuid, fork).getVersionNumber()).isEqualTo(2);
+
+        // v3: an unchanged fork, then a delta removing a and b
+        base.setCopyOnWrite(true);
+        base.setParentVersionNumber(1);
+        assertThat(docketGraphService.replaceGraph(docketUuid, base).getVersionNumber()).isEqualTo(3);
+        GraphDeltaRequest delta = new GraphDeltaRequest();
+        delta.setRemoveCases(List.of("a", "b"));
+        docketGraphService.applyVersionDelta(docketUuid, 3, delta);
+
+        for (int version : List.of(2, 3)) {
+            DocketGraphDTO forked = docketGraphService.getDocketVersionGraph(docketUuid, version);
+            assertThat(caseUuids(forked)).containsExactlyInAnyOrder("c", "d");
+            assertThat(forked.getRelationships()).isEmpty();
+        }
+
+        DocketGraphDTO parent = docketGraphService.getDocketVersionGraph(docketUuid, 1);
+        assertThat(caseUuids(parent)).containsExactlyInAnyOrder("a", "b", "c", "d");
+        assertThat(relationshipKeys(parent)).containsExactlyInAnyOrder("a->b", "c->a");
+        assertThat(docketGraphService.getVersionStatistics(docketUuid, 1)).isEqualTo(parentStatistics);
+    }
+
+    @Test
+    void pages_cover_the_version_exactly_once() {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("paging");
+        String docketUuid = docketService.createDocket(create).getUuid();
+
+        ReplaceGraphRequest request = new ReplaceGraphRequest();
+        List<CaseNode> cases = new ArrayList<>();
+        List<CaseRelationship> relationships = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            cases.add(new CaseNode("p" + i, "P" + i));
+        }
+        for (int i = 0; i < 250; i++) {
+            relationships.add(rel("p" + i, "p" + ((i + 1) % 250)));
+            relationships.add(rel("p" + i, "p" + ((i + 7) % 250)));
+        }
+        request.setCases(cases);
+        request.setRelationships(relationships);
+        docketGraphService.replaceGraph(docketUuid, request);
+
+        List<String> pagedCases = new ArrayList<>();
+        String cursor = null;
+        do {
+            GraphPage<CaseNode> page = docketGraphService.getDocketVersionCasePage(docketUuid, 2, cursor, 64);
+            page.getItems().forEach(c -> pagedCases.add(c.getUuid()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<String> pagedRelationships = new ArrayList<>();
+        cursor = null;
+        do {
+            GraphPage<CaseRelationship> page = docketGraphService.getDocketVersionRelationshipPage(docketUuid, 2, cursor, 33);
+            page.getItems().forEach(r -> pagedRelationships.add(r.getFromCaseUuid() + "->" + r.getToCaseUuid()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(pagedCases).hasSize(250).doesNotHaveDuplicates();
+        assertThat(pagedRelationships).hasSize(500).doesNotHaveDuplicates();
+        assertThat(Set.copyOf(pagedRelationships))
+                .isEqualTo(relationshipKeys(docketGraphService.getDocketVersionGraph(docketUuid, 2)));
+    }
+
+    @Test
+    void pages_only_see_their_version_including_links_written_without_page_keys() {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("scoped paging");
+        String docketUuid = docketService.createDocket(create).getUuid();
+
+        ReplaceGraphRequest first = new ReplaceGraphRequest();
+        first.setCases(List.of(new CaseNode("s1", "S1"), new CaseNode("s2", "S2"), new CaseNode("s3", "S3")));
+        first.setRelationships(List.of(rel("s1", "s2")));
+        docketGraphService.replaceGraph(docketUuid, first);
+
+        ReplaceGraphRequest second = new ReplaceGraphRequest();
+        second.setCases(List.of(new CaseNode("s2", "S2"), new CaseNode("s4", "S4")));
+        second.setRelationships(List.of(rel("s4", "s2")));
+        docketGraphService.replaceGraph(docketUuid, second);
+
+        // links of version 2 as written before CONTAINS_CASE carried its page keys
+        neo4jClient.query("""
+                MATCH (:Docket {uuid: $docketUuid})-[:HAS_VERSION]->(:DocketVersion {versionNumber: 2})-[cc:CONTAINS_CASE]->()
+                REMOVE cc.versionUuid, cc.snapshotUuid
+                """)
+                .bind(docketUuid).to("docketUuid")
+                .run();
+        docketGraphRepository.backfillContainsCaseKeys();
+
+        assertThat(pagedCaseUuids(docketUuid, 2)).containsExactlyInAnyOrder("s1", "s2", "s3");
+        assertThat(pagedCaseUuids(docketUuid, 3)).containsExactlyInAnyOrder("s2", "s4");
+        assertThat(docketGraphService.getDocketVersionRelationshipPage(docketUuid, 3, null, 10).getItems())
+                .extracting(r -> r.getFromCaseUuid() + "->" + r.getToCaseUuid())
+                .containsExactly("s4->s2");
+    }
+
+    private List<String> pagedCaseUuids(String docketUuid, int versionNumber) {
+        List<String> uuids = new ArrayList<>();
+        String cursor = null;
+        do {
+            GraphPage<CaseNode> page = docketGraphService.getDocketVersionCasePage(docketUuid, versionNumber, cursor, 1);
+            page.getItems().forEach(c -> uuids.add(c.getUuid()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return uuids;
+    }
+
+    @Test
+    void full_compare_reports_renames_and_relationship_changes() {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("compare");
+        String docketUuid = docketService.createDocket(create).getUuid();
+
+        ReplaceGraphRequest base = new ReplaceGraphRequest();
+        base.setCases(List.of(new CaseNode("k1", "One"), new CaseNode("k2", "Two"), new CaseNode("k3", "Three")));
+        base.setRelationships(List.of(rel("k1", "k2"), rel("k2", "k3")));
+        docketGraphService.replaceGraph(docketUuid, base);
+
+        ReplaceGraphRequest next = new ReplaceGraphRequest();
+        next.setCopyOnWrite(true);
+        next.setCases(List.of(new CaseNode("k1", "One"), new CaseNode("k2", "Two (amended)"), new CaseNode("k4", "Four")));
+        next.setRelationships(List.of(rel("k1", "k2"), rel("k2", "k4")));
+        docketGraphService.replaceGraph(docketUuid, next);
+
+        VersionDiffDTO diff = docketGraphService.compareVersionsFull(docketUuid, 2, 3);
+
+        assertThat(diff.getAddedCases()).extracting(CaseNode::getUuid).containsExactly("k4");
+        assertThat(diff.getRemovedCases()).extracting(CaseNode::getUuid).containsExactly("k3");
+        assertThat(diff.getRenamedCases()).containsExactly(new VersionDiffDTO.CaseRename("k2", "Two", "Two (amended)"));
+        assertThat(diff.getAddedRelationships()).extracting(r -> r.getFromCaseUuid() + "->" + r.getToCaseUuid())
+                .containsExactly("k2->k4");
+        assertThat(diff.getRemovedRelationships()).extracting(r -> r.getFromCaseUuid() + "->" + r.getToCaseUuid())
+                .containsExactly("k2->k3");
+        assertThat(diff.getUnchangedCases()).isEqualTo(1);
+        assertThat(diff.getUnchangedRelationships()).isEqualTo(1);
+
+        // The rename belongs to version 3 only
+        assertThat(docketGraphService.getDocketVersionGraph(docketUuid, 2).getCases())
+                .extracting(CaseNode::getName).contains("Two");
+    }
+
+    @Test
+    void concurrent_replacements_get_distinct_version_numbers() throws Exception {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("concurrent");
+        String docketUuid = docketService.createDocket(create).getUuid();
+
+        int writers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<GraphSyncResult>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                ReplaceGraphRequest request = new ReplaceGraphRequest();
+                request.setCases(List.of(new CaseNode("w" + i, "W" + i)));
+                request.setRelationships(List.of());
+                request.setParallel(i % 2 == 0);
+                futures.add(executor.submit(() -> docketGraphService.replaceGraph(docketUuid, request)));
+            }
+            Set<Integer> versionNumbers = new HashSet<>();
+            for (Future<GraphSyncResult> future : futures) {
+                versionNumbers.add(future.get().getVersionNumber());
+            }
+            assertThat(versionNumbers).hasSize(writers).allMatch(n -> n >= 2 && n <= writers + 1);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(docketService.getDocketWithVersions(docketUuid).getVersionNumbers()).hasSize(writers + 1);
+        assertThat(docketVersionRepository.findLatestVersionNumber(docketUuid)).contains(writers + 1);
+    }
+
+    @Test
+    void as_of_resolves_the_version_that_was_latest_at_the_time() throws Exception {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("as-of");
+        String docketUuid = docketService.createDocket(create).getUuid();
+        Instant beforeV2 = Instant.now();
+        Thread.sleep(5);
+
+        ReplaceGraphRequest request = new ReplaceGraphRequest();
+        request.setCases(List.of(new CaseNode("t1", "T1")));
+        request.setRelationships(List.of());
+        docketGraphService.replaceGraph(docketUuid, request);
+        Thread.sleep(5);
+        Instant beforeV3 = Instant.now();
+        Thread.sleep(5);
+
+        // the timeline is loaded here, v3 then arrives through the version event
+        assertThat(docketGraphService.resolveVersionAsOf(docketUuid, beforeV3)).isEqualTo(2);
+        request.setParallel(true);
+        docketGraphService.replaceGraph(docketUuid, request);
+
+        assertThat(docketGraphService.resolveVersionAsOf(docketUuid, beforeV2)).isEqualTo(1);
+        assertThat(docketGraphService.resolveVersionAsOf(docketUuid, beforeV3)).isEqualTo(2);
+        assertThat(docketGraphService.resolveVersionAsOf(docketUuid, Instant.now())).isEqualTo(3);
+        assertThatThrownBy(() -> docketGraphService.resolveVersionAsOf(docketUuid, Instant.EPOCH))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void analytics_follow_writes_to_the_version() {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("analytics");
+        String docketUuid = docketService.createDocket(create).getUuid();
+
+        // a -> b -> c, d alone
+        ReplaceGraphRequest request = new ReplaceGraphRequest();
+        request.setCases(List.of(new CaseNode("a", "A"), new CaseNode("b", "B"),
+                new CaseNode("c", "C"), new CaseNode("d", "D")));
+        request.setRelationships(List.of(rel("a", "b"), rel("b", "c")));
+        docketGraphService.replaceGraph(docketUuid, request);
+
+        assertThat(graphAnalyticsService.getComponents(docketUuid, 2, 10).getComponentCount()).isEqualTo(2);
+        assertThat(graphAnalyticsService.getShortestPath(docketUuid, 2, "a", "c", true).getCaseUuids())
+                .containsExactly("a", "b", "c");
+        assertThat(graphAnalyticsService.getRanking(docketUuid, 2, "degree", 1).get(0).getCaseUuid()).isEqualTo("b");
+
+        // the cached CSR is dropped once the delta commits
+        GraphDeltaRequest delta = new GraphDeltaRequest();
+        delta.setAddRelationships(List.of(rel("c", "d"), rel("a", "d")));
+        docketGraphService.applyVersionDelta(docketUuid, 2, delta);
+
+        assertThat(graphAnalyticsService.getComponents(docketUuid, 2, 10).getComponentCount()).isEqualTo(1);
+        assertThat(graphAnalyticsService.getShortestPath(docketUuid, 2, "a", "c", false).getLength()).isEqualTo(2);
+        assertThatThrownBy(() -> graphAnalyticsService.getShortestPath(docketUuid, 2, "a", "zz", false))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void archive_import_recreates_the_exported_version() throws Exception {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("archive");
+        String sourceDocket = docketService.createDocket(create).getUuid();
+        String targetDocket = docketService.createDocket(create).getUuid();
+
+        ReplaceGraphRequest request = new ReplaceGraphRequest();
+        request.setDescription("before archive");
+        request.setCases(List.of(new CaseNode("ar1", "AR1"), new CaseNode("ar2", "AR2"), new CaseNode("ar3", "AR3")));
+        request.setRelationships(List.of(rel("ar1", "ar2"), rel("ar2", "ar3")));
+        docketGraphService.replaceGraph(sourceDocket, request);
+        DocketGraphDTO source = docketGraphService.getDocketVersionGraph(sourceDocket, 2);
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        docketGraphController.exportVersionArchive(sourceDocket, 2).getBody().writeTo(archive);
+        GraphSyncResult result = docketGraphService.importVersionArchive(
+                targetDocket, new ByteArrayInputStream(archive.toByteArray()), null);
+
+        assertThat(result.getVersionNumber()).isEqualTo(2);
+        assertThat(result.getRelationshipsAdded()).isEqualTo(2);
+        DocketGraphDTO imported = docketGraphService.getDocketVersionGraph(targetDocket, 2);
+        assertThat(imported.getVersionDescription()).isEqualTo("before archive");
+        assertThat(caseUuids(imported)).isEqualTo(caseUuids(source));
+        assertThat(relationshipKeys(imported)).isEqualTo(relationshipKeys(source));
+
+        byte[] corrupt = archive.toByteArray();
+        corrupt[corrupt.length - 1] ^= 1;
+        assertThatThrownBy(() -> docketGraphService.importVersionArchive(
+                targetDocket, new ByteArrayInputStream(corrupt), null))
+                .isInstanceOf(InvalidGraphRequestException.class);
+        assertThat(docketService.getDocketWithVersions(targetDocket).getVersionNumbers()).containsExactly(1, 2);
+    }
+
+    private CaseRelationship rel(String from, String to) {
+        CaseRelationship relationship = new CaseRelationship();
+        relationship.setFromCaseUuid(from);
+        relationship.setToCaseUuid(to);
+        return relationship;
+    }
+
+    private Set<String> caseUuids(DocketGraphDTO graph) {
+        return graph.getCases().stream().map(CaseNode::getUuid).collect(Collectors.toSet());
+    }
+
+    private Set<String> relationshipKeys(DocketGraphDTO graph) {
+        return graph.getRelationships().stream()
+                .map(r -> r.getFromCaseUuid() + "->" + r.getToCaseUuid())
+                .collect(Collectors.toSet());
+    }
+}
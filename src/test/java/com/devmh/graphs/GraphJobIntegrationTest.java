@@ -0,0 +1,112 @@
+package com.devmh.graphs;
+
+import com.devmh.graphs.v2.CaseNode;
+import com.devmh.graphs.v2.CaseRelationship;
+import com.devmh.graphs.v2.CreateDocketRequest;
+import com.devmh.graphs.v2.DocketGraphService;
+import com.devmh.graphs.v2.DocketService;
+import com.devmh.graphs.v2.GraphJobService;
+import com.devmh.graphs.v2.GraphJobStatus;
+import com.devmh.graphs.v2.ReplaceGraphRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.Neo4jContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@Testcontainers
+class GraphJobIntegrationTest {
+
+    @Container
+    static Neo4jContainer<?> neo4j = new Neo4jContainer<>("neo4j:5.21-community")
+            .withAdminPassword("secretpwd");
+
+    @DynamicPropertySource
+    static void registerProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.neo4j.uri", neo4j::getBoltUrl);
+        registry.add("spring.neo4j.authentication.username", () -> "neo4j");
+        registry.add("spring.neo4j.authentication.password", () -> "secretpwd");
+    }
+
+    @Autowired DocketService docketService;
+    @Autowired DocketGraphService docketGraphService;
+    @Autowired GraphJobService graphJobService;
+
+    @Test
+    void job_runs_in_background_and_reports_result() throws Exception {
+        String docketUuid = createDocket("job");
+
+        GraphJobStatus submitted = graphJobService.submit(docketUuid, randomGraph(new Random(1), 2_000, 5_000));
+        assertThat(submitted.getRowsRequested()).isEqualTo(7_000);
+
+        GraphJobStatus done = awaitFinished(submitted.getJobId());
+        assertThat(done.getState()).isEqualTo(GraphJobStatus.State.SUCCEEDED);
+        assertThat(done.getResult().getVersionNumber()).isEqualTo(2);
+        assertThat(done.getRowsWritten()).isGreaterThanOrEqualTo(7_000);
+        assertThat(done.getPhaseDurationsMs()).containsKeys("allocateVersion", "addCases", "addRelationships");
+        assertThat(docketGraphService.getDocketVersionGraph(docketUuid, 2).getCases()).hasSize(2_000);
+    }
+
+    @Test
+    void queued_job_behind_same_docket_can_be_cancelled() throws Exception {
+        String docketUuid = createDocket("job-cancel");
+
+        GraphJobStatus first = graphJobService.submit(docketUuid, randomGraph(new Random(2), 5_000, 20_000));
+        GraphJobStatus second = graphJobService.submit(docketUuid, randomGraph(new Random(3), 10, 10));
+        GraphJobStatus cancelled = graphJobService.cancel(second.getJobId());
+
+        assertThat(cancelled.isCancelRequested()).isTrue();
+        assertThat(awaitFinished(second.getJobId()).getState()).isEqualTo(GraphJobStatus.State.CANCELLED);
+        assertThat(awaitFinished(first.getJobId()).getState()).isEqualTo(GraphJobStatus.State.SUCCEEDED);
+        assertThat(graphJobService.getStatuses(docketUuid)).hasSize(2);
+    }
+
+    private GraphJobStatus awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 600; i++) {
+            GraphJobStatus status = graphJobService.getStatus(jobId);
+            if (status.getFinishedAt() != null) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Job " + jobId + " did not finish");
+    }
+
+    private String createDocket(String name) {
+        CreateDocketRequest request = new CreateDocketRequest();
+        request.setName(name);
+        return docketService.createDocket(request).getUuid();
+    }
+
+    private ReplaceGraphRequest randomGraph(Random random, int caseCount, int relationshipCount) {
+        List<CaseNode> cases = new ArrayList<>(caseCount);
+        for (int i = 0; i < caseCount; i++) {
+            cases.add(new CaseNode(UUID.randomUUID().toString(), "Case " + i));
+        }
+        List<CaseRelationship> relationships = new ArrayList<>(relationshipCount);
+        for (int i = 0; i < relationshipCount; i++) {
+            CaseRelationship relationship = new CaseRelationship();
+            relationship.setFromCaseUuid(cases.get(random.nextInt(caseCount)).getUuid());
+            relationship.setToCaseUuid(cases.get(random.nextInt(caseCount)).getUuid());
+            relationships.add(relationship);
+        }
+        ReplaceGraphRequest request = new ReplaceGraphRequest();
+        request.setCases(cases);
+        request.setRelationships(relationships);
+        return request;
+    }
+}
@@ -0,0 +1,164 @@
+package com.devmh.graphs;
+
+import com.devmh.graphs.v2.CaseNode;
+import com.devmh.graphs.v2.CaseRelationship;
+import com.devmh.graphs.v2.CreateDocketRequest;
+import com.devmh.graphs.v2.DocketGraphDTO;
+import com.devmh.graphs.v2.DocketGraphService;
+import com.devmh.graphs.v2.DocketService;
+import com.devmh.graphs.v2.GraphSyncResult;
+import com.devmh.graphs.v2.InvalidGraphRequestException;
+import com.devmh.graphs.v2.ReplaceGraphRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.Neo4jContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@Testcontainers
+class ParallelGraphSyncIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelGraphSyncIntegrationTest.class);
+
+    private static final int CASES = 20_000;
+    private static final int RELATIONSHIPS = 60_000;
+
+    @Container
+    static Neo4jContainer<?> neo4j = new Neo4jContainer<>("neo4j:5.21-community")
+            .withAdminPassword("secretpwd");
+
+    @DynamicPropertySource
+    static void registerProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.neo4j.uri", neo4j::getBoltUrl);
+        registry.add("spring.neo4j.authentication.username", () -> "neo4j");
+        registry.add("spring.neo4j.authentication.password", () -> "secretpwd");
+    }
+
+    @Autowired DocketService docketService;
+    @Autowired DocketGraphService docketGraphService;
+    @Autowired Neo4jClient neo4jClient;
+
+    @Test
+    void parallel_write_matches_serial_write_and_reports_throughput() {
+        ReplaceGraphRequest request = randomGraph(new Random(42));
+        String serialDocket = createDocket("serial");
+        String parallelDocket = createDocket("parallel");
+
+        // Warm up driver connections and query plans on a small graph
+        ReplaceGraphRequest warmup = randomGraph(new Random(7), 500, 1_000);
+        docketGraphService.replaceGraph(createDocket("warmup-serial"), warmup);
+        warmup.setParallel(true);
+        docketGraphService.replaceGraph(createDocket("warmup-parallel"), warmup);
+
+        request.setParallel(false);
+        GraphSyncResult serial = docketGraphService.replaceGraph(serialDocket, request);
+        request.setParallel(true);
+        GraphSyncResult parallel = docketGraphService.replaceGraph(parallelDocket, request);
+
+        int rows = CASES + RELATIONSHIPS;
+        logger.info("serial:   {} ms ({} rows/s), phases {}",
+                serial.getDurationMs(), rows * 1000L / Math.max(1, serial.getDurationMs()), serial.getPhaseDurationsMs());
+        logger.info("parallel: {} ms ({} rows/s), phases {}",
+                parallel.getDurationMs(), rows * 1000L / Math.max(1, parallel.getDurationMs()), parallel.getPhaseDurationsMs());
+        assertThat(parallel.getPhaseDurationsMs()).containsKeys("stage", "addCases", "addRelationships", "publish");
+        assertThat(serial.getPhaseDurationsMs()).containsKeys("ensureVersion", "loadState", "diff", "addCases");
+
+        assertThat(parallel.getCasesAdded()).isEqualTo(serial.getCasesAdded());
+        assertThat(parallel.getRelationshipsAdded()).isEqualTo(serial.getRelationshipsAdded());
+
+        DocketGraphDTO serialGraph = docketGraphService.getDocketVersionGraph(serialDocket, 2);
+        DocketGraphDTO parallelGraph = docketGraphService.getDocketVersionGraph(parallelDocket, 2);
+        assertThat(caseKeys(parallelGraph)).isEqualTo(caseKeys(serialGraph)).hasSize(CASES);
+        assertThat(relationshipKeys(parallelGraph)).isEqualTo(relationshipKeys(serialGraph));
+
+        Long staged = neo4jClient.query("MATCH (dv:DocketVersion) WHERE dv.stagedFor IS NOT NULL RETURN count(dv)")
+                .fetchAs(Long.class).one().orElseThrow();
+        assertThat(staged).isZero();
+    }
+
+    @Test
+    void parallel_write_rejects_invalid_cases_and_counts_only_created_relationships() {
+        String docketUuid = createDocket("parallel-validation");
+        ReplaceGraphRequest request = new ReplaceGraphRequest();
+        request.setParallel(true);
+        request.setCases(new ArrayList<>(List.of(new CaseNode("a", "A"), new CaseNode("a", "A2"))));
+        request.setRelationships(new ArrayList<>());
+        assertThatThrownBy(() -> docketGraphService.replaceGraph(docketUuid, request))
+                .isInstanceOf(InvalidGraphRequestException.class);
+
+        request.setCases(new ArrayList<>(List.of(new CaseNode("a", null))));
+        assertThatThrownBy(() -> docketGraphService.replaceGraph(docketUuid, request))
+                .isInstanceOf(InvalidGraphRequestException.class);
+
+        request.setCases(new ArrayList<>(List.of(new CaseNode("a", "A"), new CaseNode("b", "B"))));
+        request.setRelationships(new ArrayList<>(List.of(rel("a", "b"), rel("a", "missing"))));
+        assertThat(docketGraphService.replaceGraph(docketUuid, request).getRelationshipsAdded()).isEqualTo(1);
+    }
+
+    private String createDocket(String name) {
+        CreateDocketRequest request = new CreateDocketRequest();
+        request.setName(name);
+        return docketService.createDocket(request).getUuid();
+    }
+
+    private ReplaceGraphRequest randomGraph(Random random) {
+        return randomGraph(random, CASES, RELATIONSHIPS);
+    }
+
+    private ReplaceGraphRequest randomGraph(Random random, int caseCount, int relationshipCount) {
+        List<CaseNode> cases = new ArrayList<>(caseCount);
+        for (int i = 0; i < caseCount; i++) {
+            cases.add(new CaseNode(UUID.randomUUID().toString(), "Case " + i));
+        }
+        List<CaseRelationship> relationships = new ArrayList<>(relationshipCount);
+        for (int i = 0; i < relationshipCount; i++) {
+            CaseRelationship relationship = new CaseRelationship();
+            relationship.setFromCaseUuid(cases.get(random.nextInt(caseCount)).getUuid());
+            relationship.setToCaseUuid(cases.get(random.nextInt(caseCount)).getUuid());
+            relationships.add(relationship);
+        }
+        ReplaceGraphRequest request = new ReplaceGraphRequest();
+        request.setCases(cases);
+        request.setRelationships(relationships);
+        return request;
+    }
+
+    private CaseRelationship rel(String from, String to) {
+        CaseRelationship relationship = new CaseRelationship();
+        relationship.setFromCaseUuid(from);
+        relationship.setToCaseUuid(to);
+        return relationship;
+    }
+
+    private Set<String> caseKeys(DocketGraphDTO graph) {
+        return graph.getCases().stream()
+                .map(c -> c.getUuid() + ":" + c.getName())
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> relationshipKeys(DocketGraphDTO graph) {
+        return graph.getRelationships().stream()
+                .map(r -> r.getFromCaseUuid() + "->" + r.getToCaseUuid())
+                .collect(Collectors.toSet());
+    }
+}
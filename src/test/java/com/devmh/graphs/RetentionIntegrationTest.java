@@ -0,0 +1,108 @@
+package com.devmh.graphs;
+
+import com.devmh.graphs.v2.CaseNode;
+import com.devmh.graphs.v2.CaseRelationship;
+import com.devmh.graphs.v2.CompactionResult;
+import com.devmh.graphs.v2.CreateDocketRequest;
+import com.devmh.graphs.v2.DocketCompactor;
+import com.devmh.graphs.v2.DocketGraphDTO;
+import com.devmh.graphs.v2.DocketGraphService;
+import com.devmh.graphs.v2.DocketService;
+import com.devmh.graphs.v2.GraphDeltaRequest;
+import com.devmh.graphs.v2.ReplaceGraphRequest;
+import com.devmh.graphs.v2.RetentionPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.Neo4jContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@Testcontainers
+class RetentionIntegrationTest {
+
+    @Container
+    static Neo4jContainer<?> neo4j = new Neo4jContainer<>("neo4j:5.21-community")
+            .withAdminPassword("secretpwd");
+
+    @DynamicPropertySource
+    static void registerProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.neo4j.uri", neo4j::getBoltUrl);
+        registry.add("spring.neo4j.authentication.username", () -> "neo4j");
+        registry.add("spring.neo4j.authentication.password", () -> "secretpwd");
+    }
+
+    @Autowired DocketService docketService;
+    @Autowired DocketGraphService docketGraphService;
+    @Autowired DocketCompactor docketCompactor;
+    @Autowired Neo4jClient neo4jClient;
+
+    @Test
+    void compaction_keeps_snapshots_shared_with_surviving_versions() {
+        CreateDocketRequest create = new CreateDocketRequest();
+        create.setName("retention");
+        String docketUuid = docketService.createDocket(create).getUuid();
+
+        // v2: a -> b -> c
+        ReplaceGraphRequest base = new ReplaceGraphRequest();
+        base.setCases(List.of(new CaseNode("a", "A"), new CaseNode("b", "B"), new CaseNode("c", "C")));
+        base.setRelationships(List.of(rel("a", "b"), rel("b", "c")));
+        docketGraphService.replaceGraph(docketUuid, base);
+
+        // v3 shares every snapshot with v2, then drops c and gains d
+        base.setCopyOnWrite(true);
+        docketGraphService.replaceGraph(docketUuid, base);
+        GraphDeltaRequest delta = new GraphDeltaRequest();
+        delta.setAddCases(List.of(new CaseNode("d", "D")));
+        delta.setRemoveCases(List.of("c"));
+        delta.setAddRelationships(List.of(rel("a", "d")));
+        docketGraphService.applyVersionDelta(docketUuid, 3, delta);
+
+        // keepLast 0 still keeps the latest version
+        RetentionPolicy policy = new RetentionPolicy();
+        policy.setKeepLast(0);
+        assertThat(docketCompactor.setPolicy(docketUuid, policy).getKeepLast()).isZero();
+
+        CompactionResult result = docketCompactor.compact(docketUuid);
+
+        assertThat(result.getVersionsDeleted()).containsExactly(1, 2);
+        assertThat(result.getNodesDeleted()).isGreaterThanOrEqualTo(3);
+        assertThat(docketService.getDocketWithVersions(docketUuid).getVersionNumbers()).containsExactly(3);
+
+        DocketGraphDTO v3 = docketGraphService.getDocketVersionGraph(docketUuid, 3);
+        assertThat(v3.getCases().stream().map(CaseNode::getUuid).collect(Collectors.toSet()))
+                .containsExactlyInAnyOrder("a", "b", "d");
+        assertThat(v3.getRelationships().stream()
+                .map(r -> r.getFromCaseUuid() + "->" + r.getToCaseUuid())
+                .collect(Collectors.toSet()))
+                .containsExactlyInAnyOrder("a->b", "a->d");
+
+        // only c's snapshot was exclusive to v2; nothing is left without a version
+        long orphans = neo4jClient.query("""
+                MATCH (cs:CaseSnapshot) WHERE NOT (cs)<-[:CONTAINS_CASE]-(:DocketVersion)
+                RETURN count(cs)
+                """).fetchAs(Long.class).one().orElseThrow();
+        assertThat(orphans).isZero();
+
+        assertThat(docketCompactor.compact(docketUuid).getVersionsDeleted()).isEmpty();
+    }
+
+    private CaseRelationship rel(String from, String to) {
+        CaseRelationship relationship = new CaseRelationship();
+        relationship.setFromCaseUuid(from);
+        relationship.setToCaseUuid(to);
+        return relationship;
+    }
+}
@@ -0,0 +1,68 @@
+package com.devmh.graphs;
+
+import com.devmh.graphs.schema.SchemaCatalog;
+import com.devmh.graphs.schema.SchemaManager;
+import com.devmh.graphs.schema.SchemaReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.Neo4jContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@Testcontainers
+class SchemaIntegrationTest {
+
+    @Container
+    static Neo4jContainer<?> neo4j = new Neo4jContainer<>("neo4j:5.21-community")
+            .withAdminPassword("secretpwd");
+
+    @DynamicPropertySource
+    static void registerProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.neo4j.uri", neo4j::getBoltUrl);
+        registry.add("spring.neo4j.authentication.username", () -> "neo4j");
+        registry.add("spring.neo4j.authentication.password", () -> "secretpwd");
+    }
+
+    @Autowired SchemaManager schemaManager;
+    @Autowired Neo4jClient neo4jClient;
+
+    @Test
+    void schema_is_applied_at_startup_and_reapplying_is_idempotent() {
+        SchemaReport report = schemaManager.report();
+        assertThat(report.getDeclared()).isEqualTo(SchemaCatalog.DEFINITIONS.size());
+        assertThat(report.getMissing()).isEmpty();
+        assertThat(report.getFailed()).isEmpty();
+        assertThat(report.getNotOnline()).isEmpty();
+
+        schemaManager.apply(60);
+
+        SchemaReport again = schemaManager.report();
+        assertThat(again.getMissing()).isEmpty();
+        assertThat(again.getFailed()).isEmpty();
+    }
+
+    @Test
+    void reports_dropped_and_undeclared_indexes() {
+        neo4jClient.query("DROP INDEX docket_version_number").run();
+        neo4jClient.query("CREATE INDEX ad_hoc_case_name IF NOT EXISTS FOR (n:Case) ON (n.name)").run();
+        try {
+            SchemaReport report = schemaManager.report();
+            assertThat(report.getMissing()).extracting(d -> d.name()).containsExactly("docket_version_number");
+            assertThat(report.getUndeclared()).extracting(SchemaReport.IndexInfo::name).contains("ad_hoc_case_name");
+        } finally {
+            neo4jClient.query("DROP INDEX ad_hoc_case_name IF EXISTS").run();
+            schemaManager.apply(60);
+        }
+        assertThat(schemaManager.report().getMissing()).isEmpty();
+    }
+}
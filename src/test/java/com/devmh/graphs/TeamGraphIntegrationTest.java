@@ -0,0 +1,297 @@
+package com.devmh.graphs;
+
+import com.devmh.graphs.v1.CaseGraphController;
+import com.devmh.graphs.v1.CaseVersionGraph;
+import com.devmh.graphs.v1.CaseVersionGraphPatchService;
+import com.devmh.graphs.v1.CaseVersionGraphRepository;
+import com.devmh.graphs.v1.CaseVersionRef;
+import com.devmh.graphs.v1.CaseVersionSnapshot;
+import com.devmh.graphs.v1.CaseVersionSnapshotService;
+import com.devmh.graphs.v1.EdgeView;
+import com.devmh.graphs.v1.GraphDelta;
+import com.devmh.graphs.v1.RevisionedGraph;
+import com.devmh.graphs.v1.TeamHierarchyController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.Neo4jContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@Testcontainers
+class TeamGraphIntegrationTest {
+
+    @Container
+    static Neo4jContainer<?> neo4j = new Neo4jContainer<>("neo4j:5.21-community")
+            .withAdminPassword("secretpwd");
+
+    @DynamicPropertySource
+    static void registerProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.neo4j.uri", neo4j::getBoltUrl);
+        registry.add("spring.neo4j.authentication.username", () -> "neo4j");
+        registry.add("spring.neo4j.authentication.password", () -> "secretpwd");
+    }
+
+    @Autowired CaseVersionGraphPatchService patchService;
+    @Autowired CaseVersionGraphRepository graphRepo;
+    @Autowired Neo4jClient neo4jClient;
+    @Autowired CaseGraphController caseGraphController;
+    @Autowired CaseVersionSnapshotService snapshotService;
+    @Autowired TeamHierarchyController hierarchyController;
+    @Autowired ObjectMapper om;
+
+    @Test
+    void delta_larger_than_a_batch_is_applied_in_full() {
+        createCaseVersion("case-batch", "case-batch-v1", 1500);
+
+        // a chain over 1500 teams: more rows than one UNWIND batch
+        Set<String> teams = new LinkedHashSet<>();
+        Set<EdgeView> edges = new LinkedHashSet<>();
+        for (int i = 0; i < 1500; i++) {
+            teams.add("team-" + i);
+            if (i > 0) {
+                edges.add(new EdgeView(i % 2 == 0 ? "rel-" + i : null, "team-" + i, "team-" + (i - 1), "REPORTS_TO"));
+            }
+        }
+        patchService.applyDelta("case-batch", "case-batch-v1", new GraphDelta(teams, Set.of(), edges, Set.of()));
+
+        CaseVersionGraph graph = graphRepo.loadGraph("case-batch", "case-batch-v1");
+        assertThat(graph.teamIds()).hasSize(1500);
+        assertThat(graph.edges()).hasSize(1499);
+        assertThat(graph.edges()).allSatisfy(e -> assertThat(e.id()).isNotBlank());
+
+        // remove one edge by id, one by composite key, and a team
+        Set<EdgeView> removals = Set.of(
+                new EdgeView("rel-2", null, null, null),
+                new EdgeView(null, "team-3", "team-2", "REPORTS_TO"));
+        patchService.applyDelta("case-batch", "case-batch-v1",
+                new GraphDelta(Set.of(), Set.of("team-1499"), Set.of(), removals));
+
+        CaseVersionGraph patched = graphRepo.loadGraph("case-batch", "case-batch-v1");
+        assertThat(patched.teamIds()).hasSize(1499).doesNotContain("team-1499");
+        Set<String> keys = patched.edges().stream()
+                .map(e -> e.from() + "->" + e.to())
+                .collect(Collectors.toSet());
+        assertThat(keys).doesNotContain("team-2->team-1", "team-3->team-2", "team-1499->team-1498");
+        assertThat(keys).contains("team-1->team-0", "team-4->team-3");
+    }
+
+    @Test
+    void append_patch_and_diffed_patch_agree() throws Exception {
+        createCaseVersion("case-patch", "case-patch-v1", 3);
+        patchService.applyDelta("case-patch", "case-patch-v1",
+                new GraphDelta(Set.of("team-0", "team-1"), Set.of(), Set.of(), Set.of()));
+
+        // compiled: appends only
+        CaseVersionGraph appended = caseGraphController.patchTeamGraph("case-patch", "case-patch-v1", om.readTree("""
+                [
+                  {"op": "add", "path": "/teamIds/-", "value": "team-2"},
+                  {"op": "add", "path": "/edges/-", "value": {"from": "team-2", "to": "team-0", "kind": "REPORTS_TO"}}
+                ]
+                """), null).getBody();
+        assertThat(appended.teamIds()).containsExactlyInAnyOrder("team-0", "team-1", "team-2");
+        assertThat(appended.edges()).singleElement()
+                .satisfies(e -> assertThat(e.from() + "->" + e.to()).isEqualTo("team-2->team-0"));
+
+        // diffed: a positional removal goes through the load, patch and diff path
+        CaseVersionGraph removed = caseGraphController.patchTeamGraph("case-patch", "case-patch-v1", om.readTree("""
+                [{"op": "remove", "path": "/edges/0"}]
+                """), null).getBody();
+        assertThat(removed.edges()).isEmpty();
+    }
+
+    @Test
+    void patches_are_conditional_on_the_revision_and_return_the_patched_projection() throws Exception {
+        createCaseVersion("case-rev", "case-rev-v1", 3);
+        ResponseEntity<CaseVersionGraph> initial = caseGraphController.getTeamGraph("case-rev", "case-rev-v1");
+        assertThat(initial.getHeaders().getETag()).isEqualTo("\"0\"");
+
+        ResponseEntity<CaseVersionGraph> first = caseGraphController.patchTeamGraph("case-rev", "case-rev-v1", om.readTree("""
+                [
+                  {"op": "add", "path": "/teamIds/-", "value": "team-0"},
+                  {"op": "add", "path": "/teamIds/-", "value": "team-1"},
+                  {"op": "add", "path": "/teamIds/-", "value": "no-such-team"},
+                  {"op": "add", "path": "/edges/-", "value": {"from": "team-1", "to": "team-0", "kind": "REPORTS_TO"}}
+                ]
+                """), "\"0\"");
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getHeaders().getETag()).isEqualTo("\"1\"");
+        // the in-memory projection matches what a reload returns, generated edge id included
+        CaseVersionGraph reloaded = graphRepo.loadGraph("case-rev", "case-rev-v1");
+        assertThat(first.getBody().teamIds()).containsExactlyInAnyOrderElementsOf(reloaded.teamIds());
+        assertThat(first.getBody().edges()).containsExactlyInAnyOrderElementsOf(reloaded.edges());
+        assertThat(first.getBody().edges()).singleElement().satisfies(e -> assertThat(e.id()).isNotBlank());
+
+        // a second writer still holding revision 0 is rejected
+        ResponseEntity<CaseVersionGraph> stale = caseGraphController.patchTeamGraph("case-rev", "case-rev-v1", om.readTree("""
+                [{"op": "remove", "path": "/teamIds/0"}]
+                """), "\"0\"");
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(stale.getHeaders().getETag()).isEqualTo("\"1\"");
+
+        // unassigning a team hides its edges, assigning it again shows them
+        caseGraphController.patchTeamGraph("case-rev", "case-rev-v1", om.readTree("""
+                [{"op": "replace", "path": "/teamIds", "value": ["team-0"]}]
+                """), "\"1\"");
+        ResponseEntity<CaseVersionGraph> readded = caseGraphController.patchTeamGraph("case-rev", "case-rev-v1", om.readTree("""
+                [{"op": "add", "path": "/teamIds/-", "value": "team-1"}]
+                """), "*");
+        assertThat(readded.getHeaders().getETag()).isEqualTo("\"3\"");
+        assertThat(readded.getBody().edges()).containsExactlyElementsOf(reloaded.edges());
+
+        assertThat(caseGraphController.patchTeamGraph("case-rev", "no-such-version", om.readTree("""
+                [{"op": "add", "path": "/teamIds/-", "value": "team-2"}]
+                """), null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void snapshot_copies_the_team_graph_into_an_independent_version() {
+        createCaseVersion("case-snap", "case-snap-v1", 4);
+        Set<EdgeView> edges = Set.of(
+                new EdgeView(null, "team-1", "team-0", "REPORTS_TO"),
+                new EdgeView(null, "team-2", "team-0", "REPORTS_TO"));
+        patchService.applyDelta("case-snap", "case-snap-v1",
+                new GraphDelta(Set.of("team-0", "team-1", "team-2"), Set.of(), edges, Set.of()));
+
+        CaseVersionSnapshot snapshot = snapshotService.snapshot("case-snap", "case-snap-v1", null).orElseThrow();
+        assertThat(snapshot.teams()).isEqualTo(3);
+        assertThat(snapshot.edges()).isEqualTo(2);
+
+        // changing the source leaves the copy as it was
+        patchService.applyDelta("case-snap", "case-snap-v1",
+                new GraphDelta(Set.of("team-3"), Set.of("team-2"), Set.of(), Set.of()));
+        CaseVersionGraph copy = graphRepo.loadGraph("case-snap", snapshot.versionId());
+        assertThat(copy.teamIds()).containsExactlyInAnyOrder("team-0", "team-1", "team-2");
+        assertThat(copy.edges()).extracting(e -> e.from() + "->" + e.to())
+                .containsExactlyInAnyOrder("team-1->team-0", "team-2->team-0");
+        assertThat(copy.edges()).extracting(EdgeView::id)
+                .doesNotContainAnyElementsOf(graphRepo.loadGraph("case-snap", "case-snap-v1").edges().stream()
+                        .map(EdgeView::id).toList());
+
+        assertThat(snapshotService.snapshot("case-snap", "no-such-version", null)).isEmpty();
+    }
+
+    @Test
+    void as_of_resolves_the_version_and_follows_snapshots() {
+        createCaseVersion("case-asof", "case-asof-v1", 2);
+        patchService.applyDelta("case-asof", "case-asof-v1",
+                new GraphDelta(Set.of("team-0"), Set.of(), Set.of(), Set.of()));
+        Instant v1AsOf = Instant.now();
+
+        ResponseEntity<CaseVersionGraph> first = graphAsOf("case-asof", v1AsOf);
+        assertThat(first.getHeaders().getFirst("Content-Location")).endsWith("/versions/case-asof-v1/team-graph");
+        assertThat(first.getBody().teamIds()).containsExactly("team-0");
+        assertThat(graphAsOf("case-asof", Instant.parse("2000-01-01T00:00:00Z")).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        // the timeline is cached by now; the snapshot's event drops it
+        Instant later = Instant.now().plusSeconds(3600);
+        CaseVersionSnapshot snapshot = snapshotService.snapshot("case-asof", "case-asof-v1", later).orElseThrow();
+        patchService.applyDelta("case-asof", snapshot.versionId(),
+                new GraphDelta(Set.of("team-1"), Set.of(), Set.of(), Set.of()));
+
+        assertThat(graphAsOf("case-asof", v1AsOf).getBody().teamIds()).containsExactly("team-0");
+        ResponseEntity<CaseVersionGraph> second = graphAsOf("case-asof", later);
+        assertThat(second.getHeaders().getFirst("Content-Location")).contains(snapshot.versionId());
+        assertThat(second.getBody().teamIds()).containsExactlyInAnyOrder("team-0", "team-1");
+    }
+
+    @Test
+    void bulk_load_returns_each_version_in_order_including_edge_less_ones() {
+        createCaseVersion("case-bulk", "case-bulk-v1", 3);
+        createCaseVersion("case-bulk", "case-bulk-v2", 3);
+        createCaseVersion("case-bulk", "case-bulk-v3", 3);
+        patchService.applyDelta("case-bulk", "case-bulk-v1", new GraphDelta(Set.of("team-0", "team-1"), Set.of(),
+                Set.of(new EdgeView(null, "team-1", "team-0", "REPORTS_TO"),
+                        new EdgeView(null, "team-2", "team-0", "REPORTS_TO")), Set.of()));
+        // teams but no edges
+        patchService.applyDelta("case-bulk", "case-bulk-v2",
+                new GraphDelta(Set.of("team-2"), Set.of(), Set.of(), Set.of()));
+
+        List<RevisionedGraph> graphs = graphRepo.loadGraphs(List.of(
+                new CaseVersionRef("case-bulk", "case-bulk-v3"),
+                new CaseVersionRef("case-bulk", "no-such-version"),
+                new CaseVersionRef("case-bulk", "case-bulk-v2"),
+                new CaseVersionRef("case-bulk", "case-bulk-v1")));
+
+        assertThat(graphs).extracting(RevisionedGraph::versionId)
+                .containsExactly("case-bulk-v3", "case-bulk-v2", "case-bulk-v1");
+        assertThat(graphs.get(0).graph().teamIds()).isEmpty();
+        assertThat(graphs.get(1).graph().teamIds()).containsExactly("team-2");
+        assertThat(graphs.get(1).graph().edges()).isEmpty();
+        // team-2 is not assigned in v1, so only one of its two edges is visible
+        assertThat(graphs.get(2).graph().edges()).extracting(e -> e.from() + "->" + e.to())
+                .containsExactly("team-1->team-0");
+        assertThat(graphs.get(2).revision()).isEqualTo(1);
+    }
+
+    @Test
+    void hierarchy_queries_are_answered_from_the_index_and_see_committed_patches() {
+        createCaseVersion("case-tree", "case-tree-v1", 4);
+        patchService.applyDelta("case-tree", "case-tree-v1", new GraphDelta(
+                Set.of("team-0", "team-1", "team-2", "team-3"), Set.of(),
+                Set.of(new EdgeView(null, "team-1", "team-0", "REPORTS_TO"),
+                        new EdgeView(null, "team-2", "team-1", "REPORTS_TO"),
+                        new EdgeView(null, "team-3", "team-0", "WORKS_WITH")), Set.of()));
+
+        assertThat(hierarchyController.getDescendants("case-tree", "case-tree-v1", "team-0").getBody())
+                .containsExactly("team-1", "team-2");
+        assertThat(hierarchyController.getAncestors("case-tree", "case-tree-v1", "team-2").getBody())
+                .containsExactly("team-1", "team-0");
+        assertThat(hierarchyController.getDepth("case-tree", "case-tree-v1", "team-2").getBody())
+                .isEqualTo(new TeamHierarchyController.TeamDepth("team-2", 2, false));
+        assertThat(hierarchyController.getCycles("case-tree", "case-tree-v1").getBody()).isEmpty();
+
+        // the cached index is dropped once the patch commits
+        patchService.applyDelta("case-tree", "case-tree-v1", new GraphDelta(Set.of(), Set.of(),
+                Set.of(new EdgeView(null, "team-0", "team-2", "REPORTS_TO")), Set.of()));
+        assertThat(hierarchyController.getCycles("case-tree", "case-tree-v1").getBody())
+                .singleElement().satisfies(c -> assertThat(c).containsExactlyInAnyOrder("team-0", "team-1", "team-2"));
+        assertThat(hierarchyController.getHierarchy("case-tree", "case-tree-v1").getBody())
+                .isEqualTo(new TeamHierarchyController.HierarchySummary(4, 3, 0,
+                        hierarchyController.getCycles("case-tree", "case-tree-v1").getBody()));
+
+        assertThat(hierarchyController.getDepth("case-tree", "case-tree-v1", "team-9").getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(hierarchyController.getHierarchy("case-tree", "no-such-version").getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private ResponseEntity<CaseVersionGraph> graphAsOf(String caseId, Instant asOf) {
+        return caseGraphController.getTeamGraphAsOf(caseId, asOf.atOffset(ZoneOffset.UTC));
+    }
+
+    private void createCaseVersion(String caseId, String versionId, int teamCount) {
+        neo4jClient.query("""
+                MERGE (c:Case {caseId: $caseId})
+                CREATE (c)-[:HAS_VERSION]->(:CaseVersion {versionId: $versionId, caseId: $caseId,
+                                                          asOf: datetime(), createdAt: datetime()})
+                WITH c
+                UNWIND range(0, $teamCount - 1) AS i
+                MERGE (:Team {teamId: 'team-' + i})
+                """)
+                .bind(caseId).to("caseId")
+                .bind(versionId).to("versionId")
+                .bind(teamCount).to("teamCount")
+                .run();
+    }
+}
@@ -0,0 +1,52 @@
+package com.devmh.graphs.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CaseTimelineCacheTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void resolves_the_last_version_at_or_before_the_instant() {
+        CaseTimelineCache.Timeline timeline = new CaseTimelineCache.Timeline(
+                List.of(T0, T0.plusSeconds(60), T0.plusSeconds(60), T0.plusSeconds(120)),
+                List.of("v1", "v2", "v3", "v4"));
+
+        assertThat(timeline.resolve(T0.minusNanos(1))).isEmpty();
+        assertThat(timeline.resolve(T0)).contains("v1");
+        assertThat(timeline.resolve(T0.plusSeconds(59))).contains("v1");
+        // equal asOf: the later-created version wins
+        assertThat(timeline.resolve(T0.plusSeconds(60))).contains("v3");
+        assertThat(timeline.resolve(T0.plusSeconds(3600))).contains("v4");
+    }
+
+    @Test
+    void empty_timeline_resolves_nothing_and_events_drop_the_case() {
+        CaseTimelineCache cache = new CaseTimelineCache();
+        cache.put("case", new CaseTimelineCache.Timeline(List.of(), List.of()), cache.generation("case"));
+
+        assertThat(cache.get("case").orElseThrow().resolve(T0)).isEmpty();
+
+        cache.onVersionsChanged(new CaseVersionsChangedEvent("case"));
+        assertThat(cache.get("case")).isEmpty();
+    }
+
+    @Test
+    void timeline_queried_before_a_version_was_added_is_not_stored() {
+        CaseTimelineCache cache = new CaseTimelineCache();
+        long generation = cache.generation("case");
+
+        // a snapshot commits while the timeline query runs
+        cache.onVersionsChanged(new CaseVersionsChangedEvent("case"));
+        cache.put("case", new CaseTimelineCache.Timeline(List.of(T0), List.of("v1")), generation);
+        assertThat(cache.get("case")).isEmpty();
+
+        cache.put("case", new CaseTimelineCache.Timeline(List.of(T0), List.of("v1")), cache.generation("case"));
+        assertThat(cache.get("case")).isPresent();
+    }
+}
@@ -0,0 +1,53 @@
+package com.devmh.graphs.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GraphDifferTest {
+
+    @Test
+    void applied_delta_projects_like_a_reload() {
+        CaseVersionGraph before = new CaseVersionGraph(
+                List.of("a", "b", "c"),
+                List.of(new EdgeView("e1", "b", "a", "REPORTS_TO"),
+                        new EdgeView("e2", "c", "a", "REPORTS_TO"),
+                        new EdgeView("e3", "c", "b", "ADVISES")));
+        CaseVersionGraph after = new CaseVersionGraph(
+                List.of("a", "b", "d", "x"),
+                List.of(new EdgeView("e1", "b", "a", "REPORTS_TO"),
+                        new EdgeView(null, "d", "a", "REPORTS_TO")));
+
+        GraphDelta delta = GraphDiffer.diff(before, after);
+        assertThat(delta.addTeams()).containsExactlyInAnyOrder("d", "x");
+        assertThat(delta.removeTeams()).containsExactly("c");
+        assertThat(delta.removeEdges()).extracting(EdgeView::id).containsExactly("e2", "e3");
+
+        // "x" is not a known team, so it was not assigned; the new edge got an id
+        AppliedDelta applied = new AppliedDelta(4, Set.of("d"), List.of(new EdgeView("g1", "d", "a", "REPORTS_TO")));
+        CaseVersionGraph projected = GraphDiffer.apply(before, delta, applied);
+
+        assertThat(projected.teamIds()).containsExactly("a", "b", "d");
+        assertThat(projected.edges()).containsExactly(
+                new EdgeView("e1", "b", "a", "REPORTS_TO"),
+                new EdgeView("g1", "d", "a", "REPORTS_TO"));
+    }
+
+    @Test
+    void edges_of_an_unassigned_team_are_hidden_and_composite_removals_match_any_id() {
+        CaseVersionGraph before = new CaseVersionGraph(
+                List.of("a", "b", "c"),
+                List.of(new EdgeView("e1", "b", "a", "REPORTS_TO"),
+                        new EdgeView("e2", "c", "a", "REPORTS_TO")));
+        GraphDelta delta = new GraphDelta(Set.of(), Set.of("b"), Set.of(),
+                Set.of(new EdgeView(null, "c", "a", "REPORTS_TO")));
+
+        CaseVersionGraph projected = GraphDiffer.apply(before, delta, new AppliedDelta(1, Set.of(), List.of()));
+
+        assertThat(projected.teamIds()).containsExactly("a", "c");
+        assertThat(projected.edges()).isEmpty();
+    }
+}
@@ -0,0 +1,65 @@
+package com.devmh.graphs.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TeamGraphPatchCompilerTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    @Test
+    void compiles_appends_to_teams_and_edges() throws Exception {
+        Optional<GraphDelta> delta = TeamGraphPatchCompiler.compile(json("""
+                [
+                  {"op": "add", "path": "/teamIds/-", "value": "t3"},
+                  {"op": "add", "path": "/edges/-", "value": {"from": "t3", "to": "t1", "kind": "REPORTS_TO"}},
+                  {"op": "add", "path": "/edges/-", "value": {"id": null, "from": "t2", "to": "t1", "kind": "REPORTS_TO"}}
+                ]
+                """));
+
+        assertThat(delta).isPresent();
+        assertThat(delta.get().addTeams()).containsExactly("t3");
+        assertThat(delta.get().addEdges()).containsExactly(
+                new EdgeView(null, "t3", "t1", "REPORTS_TO"),
+                new EdgeView(null, "t2", "t1", "REPORTS_TO"));
+        assertThat(delta.get().removeTeams()).isEmpty();
+        assertThat(delta.get().removeEdges()).isEmpty();
+    }
+
+    @Test
+    void leaves_patches_that_need_the_current_graph_to_the_diff() throws Exception {
+        for (String patch : List.of(
+                "[{\"op\": \"remove\", \"path\": \"/teamIds/0\"}]",
+                "[{\"op\": \"add\", \"path\": \"/teamIds/0\", \"value\": \"t3\"}]",
+                "[{\"op\": \"test\", \"path\": \"/teamIds/0\", \"value\": \"t1\"}]",
+                "[{\"op\": \"move\", \"from\": \"/edges/0\", \"path\": \"/edges/-\"}]",
+                "[{\"op\": \"replace\", \"path\": \"/edges\", \"value\": []}]",
+                "[{\"op\": \"add\", \"path\": \"/edges/-\", \"value\": {\"id\": \"e1\", \"from\": \"a\", \"to\": \"b\", \"kind\": \"REPORTS_TO\"}}]",
+                "[{\"op\": \"add\", \"path\": \"/teamIds/-\", \"value\": \"t3\"}, {\"op\": \"remove\", \"path\": \"/edges/1\"}]",
+                "[]")) {
+            assertThat(TeamGraphPatchCompiler.compile(json(patch))).as(patch).isEmpty();
+        }
+    }
+
+    @Test
+    void leaves_invalid_values_to_the_validating_path() throws Exception {
+        for (String patch : List.of(
+                "[{\"op\": \"add\", \"path\": \"/teamIds/-\", \"value\": 7}]",
+                "[{\"op\": \"add\", \"path\": \"/edges/-\", \"value\": {\"from\": \"a\", \"to\": \" \", \"kind\": \"REPORTS_TO\"}}]",
+                "[{\"op\": \"add\", \"path\": \"/edges/-\", \"value\": {\"from\": \"a\", \"to\": \"b\"}}]",
+                "[{\"op\": \"add\", \"path\": \"/edges/-\", \"value\": {\"from\": \"a\", \"to\": \"b\", \"kind\": \"X\", \"weight\": 2}}]",
+                "{\"op\": \"add\", \"path\": \"/teamIds/-\", \"value\": \"t3\"}")) {
+            assertThat(TeamGraphPatchCompiler.compile(json(patch))).as(patch).isEmpty();
+        }
+    }
+
+    private JsonNode json(String text) throws Exception {
+        return om.readTree(text);
+    }
+}
@@ -0,0 +1,72 @@
+package com.devmh.graphs.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TeamHierarchyCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private long revision = 1;
+    private Runnable duringLoad = () -> { };
+
+    private final CaseVersionGraphRepository repo = new CaseVersionGraphRepository() {
+        @Override
+        public CaseVersionGraph loadGraph(String caseId, String versionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<RevisionedGraph> loadRevisionedGraph(String caseId, String versionId) {
+            loads.incrementAndGet();
+            long loaded = revision;
+            duringLoad.run();
+            return Optional.of(new RevisionedGraph(versionId,
+                    new CaseVersionGraph(List.of("team-" + loaded), List.of()), loaded));
+        }
+
+        @Override
+        public List<RevisionedGraph> loadGraphs(List<CaseVersionRef> versions) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<RevisionedGraph> loadGraphAsOf(String caseId, Instant asOf) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private final TeamHierarchyCache cache = new TeamHierarchyCache(repo);
+
+    @Test
+    void index_is_reused_until_the_version_is_patched() {
+        assertThat(cache.get("c", "v").orElseThrow().revision()).isEqualTo(1);
+        assertThat(cache.get("c", "v").orElseThrow().revision()).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+
+        revision = 2;
+        cache.onTeamGraphChanged(new TeamGraphChangedEvent("c", "v", 2));
+        assertThat(cache.get("c", "v").orElseThrow().contains("team-2")).isTrue();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void index_loaded_before_a_patch_committed_is_not_cached_after_it() {
+        // the load reads revision 1, then the patch to revision 2 commits before the index is stored
+        duringLoad = () -> {
+            revision = 2;
+            cache.onTeamGraphChanged(new TeamGraphChangedEvent("c", "v", 2));
+            duringLoad = () -> { };
+        };
+        assertThat(cache.get("c", "v").orElseThrow().revision()).isEqualTo(1);
+
+        assertThat(cache.get("c", "v").orElseThrow().revision()).isEqualTo(2);
+        assertThat(cache.get("c", "v").orElseThrow().revision()).isEqualTo(2);
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,78 @@
+package com.devmh.graphs.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TeamHierarchyTest {
+
+    private static EdgeView reportsTo(String from, String to) {
+        return new EdgeView(from + "->" + to, from, to, TeamHierarchy.REPORTS_TO);
+    }
+
+    @Test
+    void descendants_ancestors_and_depth_follow_reports_to_chains() {
+        // a <- b <- d, a <- c, c <- d (d reports to both b and c); e works with a but reports to nobody
+        TeamHierarchy h = TeamHierarchy.of(new CaseVersionGraph(
+                List.of("a", "b", "c", "d", "e"),
+                List.of(reportsTo("b", "a"), reportsTo("c", "a"), reportsTo("d", "b"), reportsTo("d", "c"),
+                        new EdgeView("x", "e", "a", "WORKS_WITH"),
+                        reportsTo("d", "unassigned"))), 3);
+
+        assertThat(h.revision()).isEqualTo(3);
+        assertThat(h.edgeCount()).isEqualTo(4);
+        assertThat(h.descendants("a")).containsExactlyInAnyOrder("b", "c", "d");
+        assertThat(h.descendants("a").get(2)).isEqualTo("d");
+        assertThat(h.descendants("d")).isEmpty();
+        assertThat(h.ancestors("d")).containsExactlyInAnyOrder("b", "c", "a");
+        assertThat(h.ancestors("d").get(2)).isEqualTo("a");
+        assertThat(h.depth("a")).isZero();
+        assertThat(h.depth("d")).isEqualTo(2);
+        assertThat(h.depth("e")).isZero();
+        assertThat(h.maxDepth()).isEqualTo(2);
+        assertThat(h.cycles()).isEmpty();
+        assertThat(h.contains("unassigned")).isFalse();
+    }
+
+    @Test
+    void cycles_are_reported_and_share_a_finite_depth() {
+        // root <- x <-> y <- z, plus a team reporting to itself
+        TeamHierarchy h = TeamHierarchy.of(new CaseVersionGraph(
+                List.of("root", "x", "y", "z", "self"),
+                List.of(reportsTo("x", "root"), reportsTo("x", "y"), reportsTo("y", "x"), reportsTo("z", "y"),
+                        reportsTo("self", "self"))), 0);
+
+        assertThat(h.cycles()).hasSize(2);
+        assertThat(h.cycles()).anySatisfy(c -> assertThat(c).containsExactlyInAnyOrder("x", "y"));
+        assertThat(h.cycles()).anySatisfy(c -> assertThat(c).containsExactly("self"));
+        assertThat(h.inCycle("x")).isTrue();
+        assertThat(h.inCycle("z")).isFalse();
+        assertThat(h.depth("x")).isEqualTo(1);
+        assertThat(h.depth("y")).isEqualTo(1);
+        assertThat(h.depth("z")).isEqualTo(2);
+        assertThat(h.depth("self")).isZero();
+        assertThat(h.ancestors("z")).containsExactlyInAnyOrder("y", "x", "root");
+        assertThat(h.descendants("self")).isEmpty();
+    }
+
+    @Test
+    void long_chains_do_not_overflow_the_stack() {
+        int n = 200_000;
+        List<String> teams = new ArrayList<>();
+        List<EdgeView> edges = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            teams.add("t" + i);
+            if (i > 0) {
+                edges.add(reportsTo("t" + i, "t" + (i - 1)));
+            }
+        }
+        TeamHierarchy h = TeamHierarchy.of(new CaseVersionGraph(teams, edges), 0);
+
+        assertThat(h.depth("t" + (n - 1))).isEqualTo(n - 1);
+        assertThat(h.descendants("t0")).hasSize(n - 1);
+        assertThat(h.cycles()).isEmpty();
+    }
+}
@@ -0,0 +1,57 @@
+package com.devmh.graphs.v2;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocketTimelineTest {
+
+    @Test
+    void resolves_latest_version_created_at_or_before_a_time() {
+        DocketTimeline.Timeline timeline = DocketTimeline.Timeline.EMPTY
+                .with(1, 100)
+                .with(2, 200)
+                .with(3, 300);
+
+        assertThat(timeline.latestAt(99)).isZero();
+        assertThat(timeline.latestAt(100)).isEqualTo(1);
+        assertThat(timeline.latestAt(250)).isEqualTo(2);
+        assertThat(timeline.latestAt(Long.MAX_VALUE)).isEqualTo(3);
+    }
+
+    @Test
+    void higher_version_created_earlier_wins_from_its_creation_on() {
+        // version 3 was allocated by a transaction that started before the one of version 2
+        DocketTimeline.Timeline timeline = DocketTimeline.Timeline.EMPTY
+                .with(1, 100)
+                .with(2, 300)
+                .with(3, 200);
+
+        assertThat(timeline.latestAt(250)).isEqualTo(3);
+        assertThat(timeline.latestAt(350)).isEqualTo(3);
+    }
+
+    @Test
+    void deleted_versions_fall_back_to_the_previous_survivor() {
+        DocketTimeline.Timeline timeline = DocketTimeline.Timeline.EMPTY
+                .with(1, 100)
+                .with(2, 200)
+                .with(3, 300)
+                .without(2)
+                .without(7);
+
+        assertThat(timeline.size()).isEqualTo(2);
+        assertThat(timeline.latestAt(250)).isEqualTo(1);
+    }
+
+    @Test
+    void re_adding_a_version_moves_it() {
+        DocketTimeline.Timeline timeline = DocketTimeline.Timeline.EMPTY
+                .with(1, 100)
+                .with(2, 200)
+                .with(2, 50);
+
+        assertThat(timeline.size()).isEqualTo(2);
+        assertThat(timeline.latestAt(60)).isEqualTo(2);
+    }
+}
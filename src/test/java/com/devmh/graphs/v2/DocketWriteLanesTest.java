@@ -0,0 +1,165 @@
+package com.devmh.graphs.v2;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocketWriteLanesTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DocketWriteLanes lanes = new DocketWriteLanes(registry);
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        lanes.shutdown();
+        callers.shutdown();
+    }
+
+    @Test
+    void queued_replacements_of_a_version_are_coalesced_into_the_last_one() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<GraphSyncResult> blocker = call(() -> lanes.write("d1", 1, () -> {
+            started.countDown();
+            await(release);
+            return sync("blocker");
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        CompletableFuture<GraphSyncResult> a = call(() -> lanes.replace("d1", 1, "a", this::sync));
+        CompletableFuture<GraphSyncResult> b = call(() -> lanes.replace("d1", 1, "b", this::sync));
+        awaitCoalesced(1);
+        CompletableFuture<GraphSyncResult> c = call(() -> lanes.replace("d1", 1, "c", this::sync));
+        awaitCoalesced(2);
+        release.countDown();
+
+        GraphSyncResult last = c.get(5, TimeUnit.SECONDS);
+        assertThat(a.get(5, TimeUnit.SECONDS)).isSameAs(last);
+        assertThat(b.get(5, TimeUnit.SECONDS)).isSameAs(last);
+        assertThat(last.getCoalescedRequests()).isEqualTo(2);
+        assertThat(blocker.get(5, TimeUnit.SECONDS).getCoalescedRequests()).isZero();
+        assertThat(executed).containsExactly("blocker", "c");
+    }
+
+    @Test
+    void replacement_does_not_overtake_a_later_delta() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        call(() -> lanes.write("d1", 1, () -> {
+            started.countDown();
+            await(release);
+            return sync("blocker");
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        CompletableFuture<GraphSyncResult> first = call(() -> lanes.replace("d1", 1, "first", this::sync));
+        awaitQueued(first);
+        CompletableFuture<GraphSyncResult> delta = call(() -> lanes.write("d1", 1, () -> sync("delta")));
+        awaitQueued(delta);
+        CompletableFuture<GraphSyncResult> second = call(() -> lanes.replace("d1", 1, "second", this::sync));
+        awaitQueued(second);
+        release.countDown();
+
+        CompletableFuture.allOf(first, delta, second).get(5, TimeUnit.SECONDS);
+        assertThat(executed).containsExactly("blocker", "first", "delta", "second");
+        assertThat(registry.get("graphs.sync.coalesced").counter().count()).isZero();
+    }
+
+    @Test
+    void different_dockets_write_in_parallel() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        Supplier<GraphSyncResult> body = () -> {
+            bothRunning.countDown();
+            await(bothRunning);
+            return new GraphSyncResult();
+        };
+
+        CompletableFuture<GraphSyncResult> d1 = call(() -> lanes.write("d1", 1, body));
+        CompletableFuture<GraphSyncResult> d2 = call(() -> lanes.write("d2", 1, body));
+
+        CompletableFuture.allOf(d1, d2).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void failure_reaches_every_coalesced_caller() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        call(() -> lanes.write("d1", 1, () -> {
+            started.countDown();
+            await(release);
+            return sync("blocker");
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        CompletableFuture<GraphSyncResult> a = call(() -> lanes.replace("d1", 1, "a", this::sync));
+        CompletableFuture<GraphSyncResult> b = call(() -> lanes.replace("d1", 1, "b", this::sync));
+        awaitCoalesced(1);
+        CompletableFuture<GraphSyncResult> failing = call(() -> lanes.replace("d1", 1, "fail",
+                request -> { throw new InvalidGraphRequestException("bad graph"); }));
+        awaitCoalesced(2);
+        release.countDown();
+
+        for (CompletableFuture<GraphSyncResult> future : List.of(a, b, failing)) {
+            assertThat(future).failsWithin(5, TimeUnit.SECONDS)
+                    .withThrowableOfType(ExecutionException.class)
+                    .withCauseInstanceOf(InvalidGraphRequestException.class);
+        }
+    }
+
+    @Test
+    void error_fails_its_caller_and_the_lane_keeps_running() throws Exception {
+        CompletableFuture<GraphSyncResult> failing = call(() -> lanes.write("d1", 1,
+                () -> { throw new StackOverflowError("deep"); }));
+
+        assertThat(failing).failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(StackOverflowError.class);
+        assertThat(call(() -> lanes.write("d1", 1, () -> sync("after"))).get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(executed).containsExactly("after");
+    }
+
+    private GraphSyncResult sync(String name) {
+        executed.add(name);
+        return new GraphSyncResult();
+    }
+
+    private CompletableFuture<GraphSyncResult> call(Supplier<GraphSyncResult> caller) {
+        return CompletableFuture.supplyAsync(caller, callers);
+    }
+
+    /** Callers block until their write ran, so a queued caller shows up as a waiting thread */
+    private void awaitQueued(CompletableFuture<GraphSyncResult> caller) throws InterruptedException {
+        Thread.sleep(100);
+        assertThat(caller).isNotDone();
+    }
+
+    private void awaitCoalesced(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("graphs.sync.coalesced").counter().count() < count) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
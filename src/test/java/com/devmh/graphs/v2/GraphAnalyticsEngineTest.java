@@ -0,0 +1,113 @@
+package com.devmh.graphs.v2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class GraphAnalyticsEngineTest {
+
+    @Test
+    void components_ignore_direction_and_dangling_relationships() {
+        // a -> b <- c, d -> e, f alone, g -> missing
+        CaseGraphCsr graph = graph(new String[]{"a", "b", "c", "d", "e", "f", "g"},
+                "a>b", "c>b", "d>e", "g>missing");
+
+        int[] labels = GraphAnalyticsEngine.components(graph);
+
+        assertThat(graph.edgeCount()).isEqualTo(3);
+        assertThat(labels).containsExactly(0, 0, 0, 3, 3, 5, 6);
+    }
+
+    @Test
+    void components_above_parallel_threshold_match_chain_blocks() {
+        // chains of 1000 cases, alternating direction
+        int n = 50_000;
+        String[] uuids = new String[n];
+        String[] edges = new String[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            uuids[i] = "c" + i;
+            if (i % 1000 != 0) {
+                edges[count++] = i % 2 == 0 ? "c" + (i - 1) + ">c" + i : "c" + i + ">c" + (i - 1);
+            }
+        }
+        int[] labels = GraphAnalyticsEngine.components(graph(uuids, Arrays.copyOf(edges, count)));
+
+        for (int i = 0; i < n; i++) {
+            assertThat(labels[i]).isEqualTo(i / 1000 * 1000);
+        }
+    }
+
+    @Test
+    void shortest_path_respects_direction_when_asked() {
+        // a -> b -> c -> d, a <- x -> d
+        CaseGraphCsr graph = graph(new String[]{"a", "b", "c", "d", "x"}, "a>b", "b>c", "c>d", "x>a", "x>d");
+
+        assertThat(uuids(graph, GraphAnalyticsEngine.shortestPath(graph, 0, 3, true))).containsExactly("a", "b", "c", "d");
+        assertThat(uuids(graph, GraphAnalyticsEngine.shortestPath(graph, 0, 3, false))).containsExactly("a", "x", "d");
+        assertThat(GraphAnalyticsEngine.shortestPath(graph, 3, 0, true)).isEmpty();
+        assertThat(GraphAnalyticsEngine.shortestPath(graph, 2, 2, true)).containsExactly(2);
+    }
+
+    @Test
+    void shortest_path_through_wide_frontier() {
+        // s fans out to 10000 cases, of which only the last reaches t
+        int width = 10_000;
+        String[] uuids = new String[width + 2];
+        String[] edges = new String[width + 1];
+        uuids[0] = "s";
+        uuids[1] = "t";
+        for (int i = 0; i < width; i++) {
+            uuids[i + 2] = "m" + i;
+            edges[i] = "s>m" + i;
+        }
+        edges[width] = "m" + (width - 1) + ">t";
+        CaseGraphCsr graph = graph(uuids, edges);
+
+        assertThat(uuids(graph, GraphAnalyticsEngine.shortestPath(graph, 0, 1, true)))
+                .containsExactly("s", "m" + (width - 1), "t");
+    }
+
+    @Test
+    void page_rank_sums_to_one_and_favours_the_hub() {
+        // every spoke points at the hub, the hub points back at the first spoke, z dangles
+        CaseGraphCsr graph = graph(new String[]{"hub", "s1", "s2", "s3", "z"}, "s1>hub", "s2>hub", "s3>hub", "hub>s1");
+
+        double[] rank = GraphAnalyticsEngine.pageRank(graph, 0.85, 100, 1e-12);
+
+        assertThat(Arrays.stream(rank).sum()).isCloseTo(1.0, within(1e-9));
+        assertThat(GraphAnalyticsEngine.top(graph.caseCount(), 2, id -> rank[id])).containsExactly(0, 1);
+        assertThat(rank[2]).isCloseTo(rank[3], within(1e-12));
+    }
+
+    @Test
+    void top_breaks_ties_by_lower_id_above_parallel_threshold() {
+        int n = 100_000;
+        int[] top = GraphAnalyticsEngine.top(n, 5, id -> id % 1000);
+
+        assertThat(top).containsExactly(999, 1999, 2999, 3999, 4999);
+        assertThat(GraphAnalyticsEngine.top(3, 5, id -> 0)).containsExactly(0, 1, 2);
+    }
+
+    private static CaseGraphCsr graph(String[] caseUuids, String... edges) {
+        DocketGraphDTO dto = new DocketGraphDTO();
+        for (String uuid : caseUuids) {
+            dto.getCases().add(new CaseNode(uuid, uuid.toUpperCase()));
+        }
+        for (String edge : edges) {
+            String[] ends = edge.split(">");
+            CaseRelationship relationship = new CaseRelationship();
+            relationship.setFromCaseUuid(ends[0]);
+            relationship.setToCaseUuid(ends[1]);
+            dto.getRelationships().add(relationship);
+        }
+        return CaseGraphCsr.of(dto);
+    }
+
+    private static String[] uuids(CaseGraphCsr graph, int[] ids) {
+        return Arrays.stream(ids).mapToObj(graph::uuid).toArray(String[]::new);
+    }
+}
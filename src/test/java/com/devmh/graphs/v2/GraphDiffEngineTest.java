@@ -0,0 +1,140 @@
+package com.devmh.graphs.v2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GraphDiffEngineTest {
+
+    @Test
+    void matches_set_based_diff_on_small_graphs() {
+        assertMatchesReference(new Random(1), 200, 600);
+    }
+
+    @Test
+    void matches_set_based_diff_above_parallel_threshold() {
+        assertMatchesReference(new Random(2), 60_000, 150_000);
+    }
+
+    @Test
+    void rejects_duplicate_case_uuids() {
+        GraphState state = new GraphState();
+        List<CaseNode> cases = List.of(new CaseNode("a", "A"), new CaseNode("a", "A2"));
+
+        assertThatThrownBy(() -> GraphDiffEngine.diff(state, cases, List.of()))
+                .isInstanceOf(InvalidGraphRequestException.class)
+                .hasMessageContaining("a");
+    }
+
+    @Test
+    void shared_closure_follows_shared_predecessors_only() {
+        // x -> a -> b -> c, p -> c with p private; a, b, x shared
+        GraphState state = new GraphState();
+        state.addCase("x", "X", true);
+        state.addCase("a", "A", true);
+        state.addCase("b", "B", true);
+        state.addCase("c", "C", false);
+        state.addCase("p", "P", false);
+        state.addRelationship("x", "a");
+        state.addRelationship("a", "b");
+        state.addRelationship("b", "c");
+        state.addRelationship("p", "c");
+
+        assertThat(state.sharedClosure(List.of("b"), Set.of())).containsExactlyInAnyOrder("x", "a", "b");
+        assertThat(state.sharedClosure(List.of(), Set.of("c"))).containsExactlyInAnyOrder("x", "a", "b");
+        assertThat(state.sharedClosure(List.of(), Set.of("c", "a"))).containsExactlyInAnyOrder("x", "b");
+        assertThat(state.sharedClosure(List.of("p"), Set.of())).isEmpty();
+    }
+
+    private void assertMatchesReference(Random random, int caseCount, int relationshipCount) {
+        List<String> uuids = new ArrayList<>();
+        for (int i = 0; i < caseCount * 3 / 2; i++) {
+            uuids.add("case-" + i);
+        }
+
+        // Current version: first caseCount uuids; application: a shifted window with some renames
+        GraphState state = new GraphState();
+        Map<String, String> currentNames = new HashMap<>();
+        for (int i = 0; i < caseCount; i++) {
+            currentNames.put(uuids.get(i), "name-" + i);
+            state.addCase(uuids.get(i), "name-" + i, random.nextInt(4) == 0);
+        }
+        Set<RelationshipKey> currentRelationships = new HashSet<>();
+        for (int i = 0; i < relationshipCount; i++) {
+            String from = uuids.get(random.nextInt(caseCount));
+            String to = uuids.get(random.nextInt(caseCount));
+            state.addRelationship(from, to);
+            currentRelationships.add(new RelationshipKey(from, to));
+        }
+
+        List<CaseNode> appCases = new ArrayList<>();
+        for (int i = caseCount / 4; i < uuids.size(); i++) {
+            String name = random.nextInt(10) == 0 ? "renamed-" + i : "name-" + i;
+            appCases.add(new CaseNode(uuids.get(i), name));
+        }
+        List<CaseRelationship> appRelationships = new ArrayList<>();
+        for (RelationshipKey key : currentRelationships) {
+            if (random.nextInt(5) != 0) {
+                appRelationships.add(relationship(key.fromUuid, key.toUuid));
+            }
+        }
+        for (int i = 0; i < relationshipCount / 5; i++) {
+            appRelationships.add(relationship(
+                    uuids.get(random.nextInt(uuids.size())), uuids.get(random.nextInt(uuids.size()))));
+        }
+        appRelationships.add(appRelationships.get(0));
+
+        GraphDiff expected = referenceDiff(currentNames, currentRelationships, appCases, appRelationships);
+        GraphDiff actual = GraphDiffEngine.diff(state, appCases, appRelationships);
+
+        assertThat(actual.casesToAdd).isEqualTo(expected.casesToAdd);
+        assertThat(actual.casesToUpdate).isEqualTo(expected.casesToUpdate);
+        assertThat(actual.casesToRemove).isEqualTo(expected.casesToRemove);
+        assertThat(actual.relationshipsToAdd).isEqualTo(expected.relationshipsToAdd);
+        assertThat(actual.relationshipsToRemove).isEqualTo(expected.relationshipsToRemove);
+    }
+
+    /** The original HashSet/HashMap based diff */
+    private GraphDiff referenceDiff(
+            Map<String, String> currentNames,
+            Set<RelationshipKey> currentRelationships,
+            List<CaseNode> appCases,
+            List<CaseRelationship> appRelationships) {
+
+        GraphDiff diff = new GraphDiff();
+        Map<String, String> appNames = appCases.stream().collect(Collectors.toMap(CaseNode::getUuid, CaseNode::getName));
+        Set<RelationshipKey> appKeys = appRelationships.stream()
+                .map(r -> new RelationshipKey(r.getFromCaseUuid(), r.getToCaseUuid()))
+                .collect(Collectors.toSet());
+
+        appNames.forEach((uuid, name) -> {
+            if (!currentNames.containsKey(uuid)) {
+                diff.casesToAdd.add(new CaseNode(uuid, name));
+            } else if (!Objects.equals(currentNames.get(uuid), name)) {
+                diff.casesToUpdate.add(new CaseNode(uuid, name));
+            }
+        });
+        currentNames.keySet().stream().filter(uuid -> !appNames.containsKey(uuid)).forEach(diff.casesToRemove::add);
+        appKeys.stream().filter(k -> !currentRelationships.contains(k)).forEach(diff.relationshipsToAdd::add);
+        currentRelationships.stream().filter(k -> !appKeys.contains(k)).forEach(diff.relationshipsToRemove::add);
+        return diff;
+    }
+
+    private CaseRelationship relationship(String from, String to) {
+        CaseRelationship relationship = new CaseRelationship();
+        relationship.setFromCaseUuid(from);
+        relationship.setToCaseUuid(to);
+        return relationship;
+    }
+}
@@ -0,0 +1,63 @@
+package com.devmh.graphs.v2;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GraphStreamReaderTest {
+
+    private final GraphStreamReader reader = new GraphStreamReader(new ObjectMapper());
+    private final List<CaseNode> cases = new ArrayList<>();
+    private final List<CaseRelationship> relationships = new ArrayList<>();
+
+    @Test
+    void reads_ndjson_in_batches_with_cases_flushed_before_relationships() throws IOException {
+        GraphStreamReader.StreamCounts counts = read("""
+                {"uuid": "c1", "name": "One"}
+                {"uuid": "c2", "name": "Two", "extra": {"ignored": [1, 2]}}
+                {"fromCaseUuid": "c1", "toCaseUuid": "c2"}
+                """);
+
+        assertThat(counts.getCases()).isEqualTo(2);
+        assertThat(counts.getRelationships()).isEqualTo(1);
+        assertThat(cases).extracting(CaseNode::getUuid).containsExactly("c1", "c2");
+        assertThat(relationships).extracting(CaseRelationship::getToCaseUuid).containsExactly("c2");
+    }
+
+    @Test
+    void rejects_duplicate_case_uuids_across_batches() {
+        assertThatThrownBy(() -> read("""
+                {"uuid": "c1", "name": "One"}
+                {"uuid": "c2", "name": "Two"}
+                {"uuid": "c1", "name": "Again"}
+                """))
+                .isInstanceOf(InvalidGraphRequestException.class)
+                .hasMessageContaining("c1");
+    }
+
+    @Test
+    void rejects_cases_without_a_name() {
+        assertThatThrownBy(() -> read("""
+                [{"uuid": "c1", "name": null}]
+                """))
+                .isInstanceOf(InvalidGraphRequestException.class)
+                .hasMessageContaining("no name");
+        assertThatThrownBy(() -> read("""
+                {"uuid": "c2"}
+                """))
+                .isInstanceOf(InvalidGraphRequestException.class);
+    }
+
+    private GraphStreamReader.StreamCounts read(String body) throws IOException {
+        return reader.read(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), 1,
+                cases::addAll, relationships::addAll);
+    }
+}
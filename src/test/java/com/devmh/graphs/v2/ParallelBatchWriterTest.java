@@ -0,0 +1,84 @@
+package com.devmh.graphs.v2;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelBatchWriterTest {
+
+    private final GraphSyncProps props = new GraphSyncProps();
+    private final ParallelBatchWriter writer = new ParallelBatchWriter(
+            new SimpleAsyncTaskExecutor(), new NoTransactions(), props);
+
+    @Test
+    void failure_is_rethrown_only_after_batches_in_flight_finished() throws Exception {
+        props.setPartitions(2);
+        // keys "a" and "b" hash into different partitions of 2, each partition gets 3 batches of 1
+        List<String> rows = List.of("a", "b", "a", "b", "a", "b");
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger slowBatches = new AtomicInteger();
+        AtomicInteger slowFinished = new AtomicInteger();
+
+        assertThatThrownBy(() -> writer.write(rows, row -> row, 1, batch -> {
+            if (batch.get(0).equals("a")) {
+                slowBatches.incrementAndGet();
+                slowStarted.countDown();
+                await(failed);
+                sleep();
+                slowFinished.incrementAndGet();
+            } else {
+                await(slowStarted);
+                failed.countDown();
+                throw new InvalidGraphRequestException("bad batch");
+            }
+        })).isInstanceOf(InvalidGraphRequestException.class);
+
+        // the slow partition finished its batch in flight and started no other
+        assertThat(slowFinished).hasValue(1);
+        assertThat(slowBatches).hasValue(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Runs every batch as if it committed */
+    private static final class NoTransactions implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
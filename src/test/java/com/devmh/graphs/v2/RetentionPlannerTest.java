@@ -0,0 +1,79 @@
+package com.devmh.graphs.v2;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetentionPlannerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 14, 12, 0);
+
+    @Test
+    void empty_policy_keeps_everything() {
+        assertThat(RetentionPlanner.expired(versions(10, 1), new RetentionPolicy(), NOW)).isEmpty();
+    }
+
+    @Test
+    void keep_last_expires_older_versions_oldest_first() {
+        RetentionPolicy policy = new RetentionPolicy();
+        policy.setKeepLast(3);
+
+        assertThat(numbers(RetentionPlanner.expired(versions(6, 1), policy, NOW))).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void latest_version_is_kept_even_by_keep_last_zero() {
+        RetentionPolicy policy = new RetentionPolicy();
+        policy.setKeepLast(0);
+
+        assertThat(numbers(RetentionPlanner.expired(versions(3, 1), policy, NOW))).containsExactly(1, 2);
+    }
+
+    @Test
+    void daily_checkpoints_keep_the_newest_version_of_each_day() {
+        // four versions a day, six hours apart, over five days
+        List<RetentionPlanner.VersionInfo> versions = versions(20, 6);
+        RetentionPolicy policy = new RetentionPolicy();
+        policy.setKeepDaily(3);
+
+        List<Integer> expired = numbers(RetentionPlanner.expired(versions, policy, NOW));
+
+        // kept: 20 (today 12:00), 17 (yesterday 18:00), 13 (the day before, 18:00)
+        assertThat(expired).doesNotContain(20, 17, 13).hasSize(17);
+    }
+
+    @Test
+    void weekly_checkpoints_and_keep_within_combine() {
+        // one version a day over five weeks, version 35 created at NOW
+        List<RetentionPlanner.VersionInfo> versions = versions(35, 24);
+        RetentionPolicy policy = new RetentionPolicy();
+        policy.setKeepWeekly(2);
+        policy.setKeepWithinDays(1);
+
+        List<Integer> kept = new ArrayList<>(List.of(35, 34));
+        // NOW is a Friday, the previous ISO week ended on Sunday version 30
+        kept.add(30);
+
+        List<Integer> expired = numbers(RetentionPlanner.expired(versions, policy, NOW));
+
+        assertThat(expired).doesNotContainAnyElementsOf(kept).hasSize(35 - kept.size());
+    }
+
+    /** Versions 1..count, the last created at NOW and each one hoursApart before the next */
+    private static List<RetentionPlanner.VersionInfo> versions(int count, int hoursApart) {
+        List<RetentionPlanner.VersionInfo> versions = new ArrayList<>();
+        for (int n = 1; n <= count; n++) {
+            versions.add(new RetentionPlanner.VersionInfo(
+                    "v" + n, n, NOW.minusHours((long) (count - n) * hoursApart), n == count));
+        }
+        return versions;
+    }
+
+    private static List<Integer> numbers(List<RetentionPlanner.VersionInfo> versions) {
+        return versions.stream().map(RetentionPlanner.VersionInfo::versionNumber).toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.devmh.graphs.v2;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyncContextTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SyncMetrics syncMetrics = new SyncMetrics(registry);
+
+    @Test
+    void records_phases_in_order_and_accumulates_repeated_phases() {
+        SyncContext context = syncMetrics.start(SyncMetrics.STREAM);
+
+        context.phase("ensureVersion", () -> { });
+        context.phase("addCases", () -> { });
+        context.phase("addRelationships", () -> { });
+        context.phase("addCases", () -> { });
+
+        assertThat(context.getPhaseDurationsMs()).containsOnlyKeys("ensureVersion", "addCases", "addRelationships");
+        assertThat(context.getPhaseDurationsMs().keySet()).containsExactly("ensureVersion", "addCases", "addRelationships");
+        assertThat(registry.get("graphs.sync.phase").tags("operation", "stream", "phase", "addCases").timer().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void counts_batches_and_rows_by_kind() {
+        SyncContext context = syncMetrics.start(SyncMetrics.SYNC);
+
+        int result = context.phase("addRelationships", () -> context.batch("relationships", 1000, () -> 7)
+                + context.batch("relationships", 250, () -> 3));
+
+        assertThat(result).isEqualTo(10);
+        assertThat(context.getBatchesWritten()).isEqualTo(2);
+        assertThat(context.getRowsWritten()).isEqualTo(1250);
+        assertThat(registry.get("graphs.sync.rows").tags("operation", "sync", "kind", "relationships").counter().count())
+                .isEqualTo(1250);
+        assertThat(registry.get("graphs.sync.batch").tags("operation", "sync", "kind", "relationships").timer().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void records_failed_phase_and_finishes_result() {
+        SyncContext context = syncMetrics.start(SyncMetrics.DELTA);
+
+        assertThatThrownBy(() -> context.phase("probe", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(context.getCurrentPhase()).isNull();
+
+        GraphSyncResult result = context.finish(new GraphSyncResult());
+
+        assertThat(result.getPhaseDurationsMs()).containsOnlyKeys("probe");
+        assertThat(registry.get("graphs.sync").tags("operation", "delta").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,129 @@
+package com.devmh.graphs.v2;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VersionArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void round_trips_a_version_through_a_mapped_file() throws IOException {
+        DocketGraphDTO graph = graph(new Random(7), 5_000, 20_000);
+        graph.getCases().add(new CaseNode("unnamed", null));
+        graph.getRelationships().add(rel("unnamed", "c0"));
+
+        Path file = tempDir.resolve("v3.dkgv");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            VersionArchive.write(graph, out);
+        }
+        VersionArchive archive = VersionArchive.open(file);
+
+        assertThat(archive.sourceDocketUuid()).isEqualTo("docket");
+        assertThat(archive.sourceVersionNumber()).isEqualTo(3);
+        assertThat(archive.description()).isEqualTo("nightly");
+        assertThat(archive.caseCount()).isEqualTo(graph.getCases().size());
+        assertThat(archive.relationshipCount()).isEqualTo(graph.getRelationships().size());
+        for (int i = 0; i < archive.caseCount(); i++) {
+            assertThat(archive.caseUuid(i)).isEqualTo(graph.getCases().get(i).getUuid());
+            assertThat(archive.caseName(i)).isEqualTo(graph.getCases().get(i).getName());
+        }
+        for (int i = 0; i < archive.relationshipCount(); i++) {
+            CaseRelationship r = graph.getRelationships().get(i);
+            assertThat(archive.caseUuid(archive.relationshipFrom(i))).isEqualTo(r.getFromCaseUuid());
+            assertThat(archive.caseUuid(archive.relationshipTo(i))).isEqualTo(r.getToCaseUuid());
+        }
+    }
+
+    @Test
+    void stores_repeated_strings_once_and_drops_dangling_relationships() throws IOException {
+        DocketGraphDTO graph = new DocketGraphDTO();
+        graph.setDocketUuid("d");
+        graph.setVersionNumber(1);
+        graph.getCases().add(new CaseNode("a", "same name"));
+        graph.getCases().add(new CaseNode("b", "same name"));
+        graph.getRelationships().add(rel("a", "b"));
+        graph.getRelationships().add(rel("a", "missing"));
+
+        VersionArchive archive = VersionArchive.of(ByteBuffer.wrap(bytes(graph)));
+
+        assertThat(archive.relationshipCount()).isEqualTo(1);
+        assertThat(archive.caseName(1)).isSameAs(archive.caseName(0));
+        assertThat(archive.description()).isNull();
+    }
+
+    @Test
+    void archives_are_several_times_smaller_than_the_json() throws IOException {
+        DocketGraphDTO graph = graph(new Random(11), 2_000, 10_000);
+        byte[] json = new ObjectMapper().writeValueAsBytes(graph);
+
+        assertThat(bytes(graph).length * 3).isLessThan(json.length);
+    }
+
+    @Test
+    void rejects_corrupt_and_foreign_files() throws IOException {
+        byte[] archive = bytes(graph(new Random(3), 10, 20));
+
+        byte[] flipped = archive.clone();
+        flipped[archive.length / 2] ^= 1;
+        assertThatThrownBy(() -> VersionArchive.of(ByteBuffer.wrap(flipped)))
+                .isInstanceOf(InvalidGraphRequestException.class)
+                .hasMessageContaining("checksum");
+
+        byte[] truncated = Arrays.copyOf(archive, archive.length - 8);
+        assertThatThrownBy(() -> VersionArchive.of(ByteBuffer.wrap(truncated)))
+                .isInstanceOf(InvalidGraphRequestException.class)
+                .hasMessageContaining("truncated");
+
+        assertThatThrownBy(() -> VersionArchive.of(ByteBuffer.wrap("{\"cases\": []}                             ".getBytes())))
+                .isInstanceOf(InvalidGraphRequestException.class)
+                .hasMessageContaining("not a docket version archive");
+    }
+
+    private static byte[] bytes(DocketGraphDTO graph) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VersionArchive.write(graph, out);
+        return out.toByteArray();
+    }
+
+    private static DocketGraphDTO graph(Random random, int caseCount, int relationshipCount) {
+        DocketGraphDTO graph = new DocketGraphDTO();
+        graph.setDocketUuid("docket");
+        graph.setVersionNumber(3);
+        graph.setVersionDescription("nightly");
+        List<CaseNode> cases = new ArrayList<>();
+        for (int i = 0; i < caseCount; i++) {
+            cases.add(new CaseNode("c" + i, "Case " + random.nextInt(caseCount / 2 + 1)));
+        }
+        graph.setCases(cases);
+        List<CaseRelationship> relationships = new ArrayList<>();
+        for (int i = 0; i < relationshipCount; i++) {
+            relationships.add(rel("c" + random.nextInt(caseCount), "c" + random.nextInt(caseCount)));
+        }
+        graph.setRelationships(relationships);
+        return graph;
+    }
+
+    private static CaseRelationship rel(String from, String to) {
+        CaseRelationship relationship = new CaseRelationship();
+        relationship.setFromCaseUuid(from);
+        relationship.setToCaseUuid(to);
+        return relationship;
+    }
+}